@@ -0,0 +1,96 @@
+package com.boostphysio;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+// A booking system populated at the scale given by the JMH parameters.
+// Physios get hourly slots on consecutive weekdays and two expertise areas
+// with one treatment each; bookedPercent of all slots hold appointments for
+// random patients. The data comes from a fixed seed, so every fork and every
+// run measures the same system.
+@State(Scope.Thread)
+public abstract class BenchmarkData {
+    static final String[] EXPERTISE = {"Physiotherapy", "Sports Therapy", "Rehabilitation", "Osteopathy"};
+    static final LocalDate FIRST_DAY = LocalDate.of(2031, 1, 6);
+    static final long SEED = 42;
+
+    @Param({"10", "200"})
+    public int physios;
+
+    @Param({"1000", "50000"})
+    public int patients;
+
+    @Param({"40", "400"})
+    public int slotsPerPhysio;
+
+    @Param({"25"})
+    public int bookedPercent;
+
+    BookingSystem system;
+    Random random;
+
+    // Slots and appointments in the order they were created
+    final List<SlotOffer> freeSlots = new ArrayList<>();
+    final List<Appointment> booked = new ArrayList<>();
+
+    void populate() {
+        system = new BookingSystem();
+        random = new Random(SEED);
+        freeSlots.clear();
+        booked.clear();
+
+        List<Patient> newPatients = new ArrayList<>(patients);
+        for (int id = 1; id <= patients; id++) {
+            newPatients.add(new Patient(id, "Patient " + id, id + " Benchmark Road", "555-" + id));
+        }
+        system.addPatients(newPatients);
+
+        for (int id = 1; id <= physios; id++) {
+            Physiotherapist physio = new Physiotherapist(id, "Physio " + id, id + " Clinic Lane", "555-" + id);
+            String first = EXPERTISE[id % EXPERTISE.length];
+            String second = EXPERTISE[(id + 1) % EXPERTISE.length];
+            physio.addExpertiseArea(first);
+            physio.addExpertiseArea(second);
+            physio.addTreatment(new Treatment(first + " Session", first, 30));
+            physio.addTreatment(new Treatment(second + " Session", second, 60));
+
+            List<TimeSlot> slots = new ArrayList<>(slotsPerPhysio);
+            LocalDate day = FIRST_DAY;
+            for (int i = 0; i < slotsPerPhysio; i++) {
+                int hour = 9 + i % 8;
+                if (i > 0 && hour == 9) {
+                    day = day.plusDays(day.getDayOfWeek().getValue() == 5 ? 3 : 1);
+                }
+                LocalDateTime start = day.atTime(hour, 0);
+                slots.add(new TimeSlot(start, start.plusHours(1)));
+            }
+            physio.addTimeSlots(slots);
+            system.addPhysiotherapist(physio);
+
+            List<Treatment> treatments = physio.getTreatments();
+            for (TimeSlot slot : slots) {
+                Treatment treatment = treatments.get(random.nextInt(treatments.size()));
+                if (random.nextInt(100) < bookedPercent) {
+                    booked.add(system.bookAppointment(randomPatient(), physio, treatment, slot));
+                } else {
+                    freeSlots.add(new SlotOffer(physio, treatment, slot, slot.getDate()));
+                }
+            }
+        }
+    }
+
+    Patient randomPatient() {
+        return system.getPatientById(1 + random.nextInt(patients));
+    }
+
+    Physiotherapist randomPhysiotherapist() {
+        return system.getPhysiotherapistById(1 + random.nextInt(physios));
+    }
+}
@@ -0,0 +1,196 @@
+package com.boostphysio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The mutating operations. Each invocation performs OPS of them on targets
+// picked beforehand, and an untimed teardown puts the system back so the
+// next invocation finds the same amount of work: bookings are cancelled,
+// cancellations rebooked, removed patients added again. Reschedules leave
+// the system in an equivalent state on their own. The system is rebuilt
+// every iteration so the appointments this leaves behind don't pile up.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingBenchmark {
+    static final int OPS = 50;
+
+    public static class BookState extends BenchmarkData {
+        final List<SlotOffer> targets = new ArrayList<>(OPS);
+        final List<Patient> bookers = new ArrayList<>(OPS);
+        final List<Appointment> made = new ArrayList<>(OPS);
+        int cursor;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            populate();
+            require(freeSlots.size());
+        }
+
+        @Setup(Level.Invocation)
+        public void pickTargets() {
+            targets.clear();
+            bookers.clear();
+            for (int i = 0; i < OPS; i++) {
+                targets.add(freeSlots.get(cursor));
+                bookers.add(randomPatient());
+                cursor = (cursor + 1) % freeSlots.size();
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void cancelBookings() {
+            for (Appointment appointment : made) {
+                system.cancelAppointment(appointment.getId());
+            }
+            made.clear();
+        }
+    }
+
+    public static class CancelState extends BenchmarkData {
+        final List<Appointment> active = new ArrayList<>();
+        int cursor;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            populate();
+            require(booked.size());
+            active.clear();
+            active.addAll(booked);
+            cursor = 0;
+        }
+
+        // Books the cancelled slots again, so the next targets are still booked
+        @TearDown(Level.Invocation)
+        public void rebook() {
+            for (int i = 0; i < OPS; i++) {
+                Appointment old = active.get(cursor);
+                active.set(cursor, system.bookAppointment(old.getPatient(), old.getPhysiotherapist(),
+                    old.getTreatment(), old.getTimeSlot()));
+                cursor = (cursor + 1) % active.size();
+            }
+        }
+    }
+
+    public static class RescheduleState extends BenchmarkData {
+        final List<Appointment> active = new ArrayList<>();
+        final Appointment[] moved = new Appointment[OPS];
+        int appointmentCursor;
+        int slotCursor;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            populate();
+            require(Math.min(booked.size(), freeSlots.size()));
+            active.clear();
+            active.addAll(booked);
+            appointmentCursor = 0;
+            slotCursor = 0;
+        }
+
+        // The moved appointments replace the old ones, and the slots they left
+        // become the free slots the next invocation moves into
+        @TearDown(Level.Invocation)
+        public void advance() {
+            for (int i = 0; i < OPS; i++) {
+                Appointment old = active.get(appointmentCursor);
+                active.set(appointmentCursor, moved[i]);
+                freeSlots.set(slotCursor, new SlotOffer(old.getPhysiotherapist(), old.getTreatment(),
+                    old.getTimeSlot(), old.getTimeSlot().getDate()));
+                appointmentCursor = (appointmentCursor + 1) % active.size();
+                slotCursor = (slotCursor + 1) % freeSlots.size();
+            }
+        }
+    }
+
+    public static class RemovePatientState extends BenchmarkData {
+        final List<Patient> removable = new ArrayList<>();
+        int cursor;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            populate();
+            removable.clear();
+            for (Patient patient : system.getAllPatients()) {
+                if (!system.hasActiveAppointments(patient.getId())) {
+                    removable.add(patient);
+                }
+            }
+            require(removable.size());
+            cursor = 0;
+        }
+
+        @TearDown(Level.Invocation)
+        public void addBack() {
+            for (int i = 0; i < OPS; i++) {
+                system.addPatient(removable.get(cursor));
+                cursor = (cursor + 1) % removable.size();
+            }
+        }
+    }
+
+    static void require(int available) {
+        if (available < OPS) {
+            throw new IllegalStateException("Benchmark scale leaves only " + available
+                + " targets, need at least " + OPS);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public void bookAppointment(BookState state) {
+        for (int i = 0; i < OPS; i++) {
+            SlotOffer offer = state.targets.get(i);
+            state.made.add(state.system.bookAppointment(state.bookers.get(i), offer.getPhysiotherapist(),
+                offer.getTreatment(), offer.getTimeSlot()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public void cancelAppointment(CancelState state) {
+        int index = state.cursor;
+        for (int i = 0; i < OPS; i++) {
+            state.system.cancelAppointment(state.active.get(index).getId());
+            index = (index + 1) % state.active.size();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public void rescheduleAppointment(RescheduleState state) {
+        int appointment = state.appointmentCursor;
+        int slot = state.slotCursor;
+        for (int i = 0; i < OPS; i++) {
+            state.moved[i] = state.system.rescheduleAppointment(state.active.get(appointment).getId(),
+                state.freeSlots.get(slot).getTimeSlot());
+            appointment = (appointment + 1) % state.active.size();
+            slot = (slot + 1) % state.freeSlots.size();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public void removePatient(RemovePatientState state) {
+        int index = state.cursor;
+        for (int i = 0; i < OPS; i++) {
+            state.system.removePatient(state.removable.get(index).getId());
+            index = (index + 1) % state.removable.size();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.boostphysio;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportBenchmark extends BenchmarkData {
+    private ReportGenerator generator;
+    private ReportGenerator parallelGenerator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        populate();
+        // Attend a quarter of the bookings and cancel another quarter, so the
+        // report has every status to count
+        for (int i = 0; i < booked.size(); i++) {
+            Appointment appointment = booked.get(i);
+            if (i % 4 == 0) {
+                system.markAppointmentAsAttended(appointment.getId());
+            } else if (i % 4 == 1) {
+                system.cancelAppointment(appointment.getId());
+            }
+        }
+        generator = new ReportGenerator(system);
+        parallelGenerator = new ReportGenerator(system, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public String generateEndOfTermReport() {
+        return generator.generateEndOfTermReport();
+    }
+
+    @Benchmark
+    public String generateEndOfTermReportParallel() {
+        return parallelGenerator.generateEndOfTermReport();
+    }
+}
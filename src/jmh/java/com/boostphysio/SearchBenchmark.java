@@ -0,0 +1,69 @@
+package com.boostphysio;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Slot searches over an unchanging system: the full map-shaped results the
+// menu has always used, the first page of the lazy searches and the
+// soonest slots across every physio in an area
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark extends BenchmarkData {
+    static final int PAGE = 20;
+
+    private String expertise;
+    private String physioName;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        populate();
+    }
+
+    // A different search target each time, so no single index entry stays hot
+    @Setup(Level.Iteration)
+    public void pickTargets() {
+        expertise = EXPERTISE[random.nextInt(EXPERTISE.length)];
+        physioName = randomPhysiotherapist().getFullName();
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public List<Map<String, Object>> searchAvailableSlotsByExpertise() {
+        return system.searchAvailableSlotsByExpertise(expertise);
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public List<Map<String, Object>> searchAvailableSlotsByPhysiotherapist() {
+        return system.searchAvailableSlotsByPhysiotherapist(physioName);
+    }
+
+    @Benchmark
+    public List<SlotOffer> findFirstPageByExpertise() {
+        return system.findAvailableSlotsByExpertise(expertise, 0, PAGE);
+    }
+
+    @Benchmark
+    public List<SlotOffer> findEarliestByExpertise() {
+        return system.findEarliestSlotsByExpertise(expertise, FIRST_DAY.atTime(12, 0), PAGE);
+    }
+
+    @Benchmark
+    public List<SlotOffer> findFirstPageByPhysiotherapist() {
+        return system.findAvailableSlotsByPhysiotherapist(physioName, 0, PAGE);
+    }
+}
@@ -3,49 +3,60 @@ package com.boostphysio;
 
 import java.time.LocalDateTime;
 
+// A view of one row of an AppointmentColumns table. The appointment's data
+// lives in the table's columns, so an Appointment is only a table and a row
+// number: lookups create one on demand and nothing keeps it. Two views of
+// the same appointment are equal, but not necessarily the same object.
 public class Appointment {
     public enum Status {
         BOOKED, CANCELLED, ATTENDED
     }
     
-    private int id;
-    private Physiotherapist physiotherapist;
-    private Patient patient;
-    private Treatment treatment;
-    private TimeSlot timeSlot;
-    private Status status;
+    private final AppointmentColumns columns;
+    private final int row;
     
+    // A booked appointment outside any booking system
     public Appointment(int id, Physiotherapist physiotherapist, Patient patient, 
                       Treatment treatment, TimeSlot timeSlot) {
-        this.id = id;
-        this.physiotherapist = physiotherapist;
-        this.patient = patient;
-        this.treatment = treatment;
-        this.timeSlot = timeSlot;
-        this.status = Status.BOOKED;
+        this(AppointmentColumns.single(id, physiotherapist, patient, treatment, timeSlot), 0);
         
-        // Mark the time slot as unavailable
-        timeSlot.setAvailable(false);
+        // BookingSystem claims the treatment's duration from the start of the
+        // slot before the appointment is created
+    }
+    
+    Appointment(AppointmentColumns columns, int row) {
+        this.columns = columns;
+        this.row = row;
     }
     
     // Getters
-    public int getId() { return id; }
-    public Physiotherapist getPhysiotherapist() { return physiotherapist; }
-    public Patient getPatient() { return patient; }
-    public Treatment getTreatment() { return treatment; }
-    public TimeSlot getTimeSlot() { return timeSlot; }
+    public int getId() { return columns.id(row); }
+    public Physiotherapist getPhysiotherapist() { return columns.physiotherapist(row); }
+    public Patient getPatient() { return columns.patient(row); }
+    public Treatment getTreatment() { return columns.treatment(row); }
+    public TimeSlot getTimeSlot() { return columns.slot(row); }
+    
+    AppointmentColumns getColumns() { return columns; }
+    int getRow() { return row; }
+    int getPatientNumber() { return columns.patientNumber(row); }
     
     // Status methods
-    public Status getStatus() { return status; }
+    public Status getStatus() { return columns.status(row); }
     
+    // Status changes are serialised per appointment so listeners see them in order
     public void setStatus(Status status) {
-        this.status = status;
-        // If cancelled, free up the time slot
-        if (status == Status.CANCELLED) {
-            timeSlot.setAvailable(true);
-        }
+        columns.setStatus(row, status);
     }
     
+    // Atomically moves from one status to another; returns false if the
+    // appointment was no longer in the expected status
+    boolean transition(Status expected, Status next) {
+        return columns.transition(row, expected, next);
+    }
+    
+    // Archived appointments belong to a sealed week and never change again
+    public boolean isArchived() { return columns.isSealed(); }
+    
     public void cancel() {
         setStatus(Status.CANCELLED);
     }
@@ -54,12 +65,29 @@ public class Appointment {
         setStatus(Status.ATTENDED);
     }
     
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Appointment)) {
+            return false;
+        }
+        Appointment that = (Appointment) other;
+        return columns.getStore() == that.columns.getStore() && getId() == that.getId();
+    }
+    
+    @Override
+    public int hashCode() {
+        return getId();
+    }
+    
     @Override
     public String toString() {
-        return "Appointment #" + id + ": " + patient.getFullName() + 
-               " with " + physiotherapist.getFullName() +
-               " for " + treatment.getName() + 
-               " at " + timeSlot.getFormattedTimeRange() +
-               " [" + status + "]";
+        return "Appointment #" + getId() + ": " + getPatient().getFullName() + 
+               " with " + getPhysiotherapist().getFullName() +
+               " for " + getTreatment().getName() + 
+               " at " + getTimeSlot().getFormattedTimeRange() +
+               " [" + getStatus() + "]";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,146 @@
+package com.boostphysio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Gzip-compressed file holding every appointment of one sealed week, named
+// after the week's Monday. Layout, before compression:
+//   int magic | int version | long epoch day of the Monday | int count
+//   appointments in the order they were booked, each with its patient's details inline, so a
+//   patient removed since is still shown on their old appointments
+// Files are written to a temporary name and moved into place, and never
+// change once written.
+final class AppointmentArchive {
+    private static final int MAGIC = 0x42504131; // "BPA1"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private AppointmentArchive() {
+    }
+
+    static Path fileFor(Path directory, LocalDate week) {
+        return directory.resolve("week-" + week + ".gz");
+    }
+
+    static void write(Path file, LocalDate week, List<Appointment> appointments) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip, BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(week.toEpochDay());
+            out.writeInt(appointments.size());
+            for (Appointment appointment : appointments) {
+                writeAppointment(out, appointment);
+            }
+            // Finishes the gzip trailer without closing the channel
+            out.flush();
+            gzip.finish();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Appends the appointments to the table in the order written, bound to
+    // the system's physiotherapists, treatments, time slots and (where still
+    // registered) patients. Slots are not reserved; that is up to the caller.
+    static void read(BookingSystem system, Path file, LocalDate week, AppointmentColumns into) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an appointment archive: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported appointment archive version " + version);
+            }
+            if (in.readLong() != week.toEpochDay()) {
+                throw new IOException("Appointment archive " + file + " is not for the week of " + week);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                readAppointment(system, in, into);
+            }
+        }
+    }
+
+    private static void writeAppointment(DataOutputStream out, Appointment appointment) throws IOException {
+        out.writeInt(appointment.getId());
+        Patient patient = appointment.getPatient();
+        out.writeInt(patient.getId());
+        writeString(out, patient.getFullName());
+        writeString(out, patient.getAddress());
+        writeString(out, patient.getPhoneNumber());
+        out.writeInt(appointment.getPhysiotherapist().getId());
+        Treatment treatment = appointment.getTreatment();
+        out.writeUTF(treatment.getName());
+        out.writeUTF(treatment.getExpertiseArea());
+        out.writeInt(treatment.getDurationMinutes());
+        writeTime(out, appointment.getTimeSlot().getStartTime());
+        writeTime(out, appointment.getTimeSlot().getEndTime());
+        out.writeByte(appointment.getStatus().ordinal());
+    }
+
+    private static void readAppointment(BookingSystem system, DataInputStream in, AppointmentColumns into)
+            throws IOException {
+        int id = in.readInt();
+        int patientId = in.readInt();
+        String name = readString(in);
+        String address = readString(in);
+        String phone = readString(in);
+        // The ID may have been given to someone else since the patient was removed
+        Patient patient = system.savedPatient(patientId, name, address, phone);
+        int physioId = in.readInt();
+        Physiotherapist physio = system.getPhysiotherapistById(physioId);
+        if (physio == null) {
+            throw new IllegalStateException("Appointment archive refers to unknown physiotherapist " + physioId);
+        }
+        Treatment treatment = physio.getTreatment(new Treatment(in.readUTF(), in.readUTF(), in.readInt()));
+        LocalDateTime start = readTime(in);
+        LocalDateTime end = readTime(in);
+        TimeSlot slot = physio.getTimeSlotAt(start);
+        if (treatment == null || slot == null || !slot.getEndTime().equals(end)) {
+            throw new IllegalStateException("Appointment archive refers to an unknown treatment or slot of "
+                + physio.getFullName());
+        }
+        into.append(id, physio, patient, treatment, slot, Appointment.Status.values()[in.readByte()]);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+}
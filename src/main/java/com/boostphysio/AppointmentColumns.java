@@ -0,0 +1,275 @@
+package com.boostphysio;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// One week's appointments stored column by column: IDs, patient numbers,
+// physiotherapist IDs and treatment numbers in int arrays, start times in a
+// long array and statuses in a byte array, so a row costs about 30 bytes and
+// scans are tight loops over primitives. Patients, physiotherapists and
+// treatments are resolved through the owning AppointmentStore. The slot
+// column keeps references, since a slot is the physiotherapist's timetable
+// entry whose time a cancellation hands back.
+// Rows are appended in pages that never move, so readers need no lock; status
+// changes are serialised per page, so listeners see each appointment's
+// changes in order. The first page holds 8 rows and each page after it
+// doubles the table's capacity until pages reach 512 rows, so a quiet week
+// or a standalone appointment does not pay for a full page.
+final class AppointmentColumns {
+    private static final int FIRST_PAGE_BITS = 3;
+    private static final int FIRST_PAGE_SIZE = 1 << FIRST_PAGE_BITS;
+    private static final int PAGE_BITS = 9;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    // Pages smaller than PAGE_SIZE, which together hold the first PAGE_SIZE rows
+    private static final int SMALL_PAGES = PAGE_BITS - FIRST_PAGE_BITS + 1;
+    private static final Appointment.Status[] STATUSES = Appointment.Status.values();
+    private static final VarHandle STATUS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private static final class Page {
+        final int[] ids;
+        final int[] patientNumbers;
+        final int[] physioIds;
+        final int[] treatments;
+        final long[] starts;
+        final byte[] statuses;
+        final TimeSlot[] slots;
+
+        Page(int capacity) {
+            ids = new int[capacity];
+            patientNumbers = new int[capacity];
+            physioIds = new int[capacity];
+            treatments = new int[capacity];
+            starts = new long[capacity];
+            statuses = new byte[capacity];
+            slots = new TimeSlot[capacity];
+        }
+    }
+
+    private final AppointmentStore store;
+    private final LocalDate week;
+    private volatile Page[] pages = new Page[0];
+    // Rows are published by this write; everything before it is visible
+    private volatile int size;
+    private volatile boolean sealed;
+
+    AppointmentColumns(AppointmentStore store, LocalDate week) {
+        this.store = store;
+        this.week = week;
+    }
+
+    // A one-row table outside any booking system
+    static AppointmentColumns single(int id, Physiotherapist physio, Patient patient, Treatment treatment,
+                                     TimeSlot slot) {
+        AppointmentColumns columns = new AppointmentColumns(new AppointmentStore(null),
+            AppointmentStore.weekOf(slot.getDate()));
+        columns.append(id, physio, patient, treatment, slot, Appointment.Status.BOOKED);
+        return columns;
+    }
+
+    AppointmentStore getStore() { return store; }
+    LocalDate getWeek() { return week; }
+    int size() { return size; }
+
+    // Appends a row and returns its number
+    synchronized int append(int id, Physiotherapist physio, Patient patient, Treatment treatment,
+                            TimeSlot slot, Appointment.Status status) {
+        int row = size;
+        Page[] current = pages;
+        int p = pageOf(row);
+        if (p == current.length) {
+            current = Arrays.copyOf(current, p + 1);
+            current[p] = new Page(capacityOf(p));
+            pages = current;
+        }
+        Page page = current[p];
+        int i = offset(row);
+        page.ids[i] = id;
+        page.patientNumbers[i] = store.register(patient);
+        page.physioIds[i] = store.register(physio);
+        page.treatments[i] = store.register(treatment);
+        page.starts[i] = slot.getStartSecond();
+        page.statuses[i] = (byte) status.ordinal();
+        page.slots[i] = slot;
+        size = row + 1;
+        return row;
+    }
+
+    Appointment view(int row) {
+        return new Appointment(this, row);
+    }
+
+    int id(int row) {
+        return page(row).ids[offset(row)];
+    }
+
+    Patient patient(int row) {
+        return store.patient(patientNumber(row));
+    }
+
+    // Which registration of the patient, see AppointmentStore.register
+    int patientNumber(int row) {
+        return page(row).patientNumbers[offset(row)];
+    }
+
+    Physiotherapist physiotherapist(int row) {
+        return store.physiotherapist(page(row).physioIds[offset(row)]);
+    }
+
+    Treatment treatment(int row) {
+        return store.treatment(page(row).treatments[offset(row)]);
+    }
+
+    TimeSlot slot(int row) {
+        return page(row).slots[offset(row)];
+    }
+
+    Appointment.Status status(int row) {
+        return STATUSES[(byte) STATUS.getVolatile(page(row).statuses, offset(row))];
+    }
+
+    void setStatus(int row, Appointment.Status status) {
+        Page page = page(row);
+        boolean changed;
+        synchronized (page) {
+            checkNotSealed(row);
+            Appointment.Status previous = status(row);
+            changed = previous != status;
+            if (changed) {
+                changeStatus(page, row, previous, status);
+            }
+        }
+        if (changed && status == Appointment.Status.CANCELLED) {
+            slotReleased(row);
+        }
+    }
+
+    // Atomically moves from one status to another; returns false if the
+    // appointment was no longer in the expected status
+    boolean transition(int row, Appointment.Status expected, Appointment.Status next) {
+        Page page = page(row);
+        synchronized (page) {
+            checkNotSealed(row);
+            if (status(row) != expected) {
+                return false;
+            }
+            changeStatus(page, row, expected, next);
+        }
+        if (next == Appointment.Status.CANCELLED) {
+            slotReleased(row);
+        }
+        return true;
+    }
+
+    private void changeStatus(Page page, int row, Appointment.Status previous, Appointment.Status next) {
+        STATUS.setVolatile(page.statuses, offset(row), (byte) next.ordinal());
+        AppointmentListener listener = store.getListener();
+        if (listener != null) {
+            listener.statusChanged(view(row), previous, next);
+        }
+        // If cancelled, free up the time slot
+        if (next == Appointment.Status.CANCELLED) {
+            slot(row).release(treatment(row).getDurationMinutes());
+        }
+    }
+
+    private void slotReleased(int row) {
+        AppointmentListener listener = store.getListener();
+        if (listener != null) {
+            listener.slotReleased(view(row));
+        }
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    // No status changes from now on. Taking each page lock once waits for
+    // changes already under way, so the statuses read after this are final.
+    void seal() {
+        sealed = true;
+        for (Page page : pages) {
+            synchronized (page) {
+                // nothing: only waiting for the lock
+            }
+        }
+    }
+
+    // Undoes seal() when the week could not be archived after all
+    void unseal() {
+        sealed = false;
+    }
+
+    private void checkNotSealed(int row) {
+        if (sealed) {
+            throw new IllegalStateException("Appointment #" + id(row) + " is archived and can no longer change");
+        }
+    }
+
+    // Every row, in the order appended
+    void collectAll(List<Appointment> into) {
+        int rows = size;
+        for (int row = 0; row < rows; row++) {
+            into.add(view(row));
+        }
+    }
+
+    // Rows starting at or after fromSecond and before toSecond
+    void collectBetween(long fromSecond, long toSecond, List<Appointment> into) {
+        int rows = size;
+        Page[] current = pages;
+        int first = 0;
+        for (int p = 0; first < rows; p++) {
+            long[] starts = current[p].starts;
+            int end = Math.min(starts.length, rows - first);
+            for (int i = 0; i < end; i++) {
+                if (starts[i] >= fromSecond && starts[i] < toSecond) {
+                    into.add(view(first + i));
+                }
+            }
+            first += starts.length;
+        }
+    }
+
+    List<Appointment> all() {
+        List<Appointment> all = new ArrayList<>(size);
+        collectAll(all);
+        return all;
+    }
+
+    private Page page(int row) {
+        return pages[pageOf(row)];
+    }
+
+    // Small page p (from 1) holds FIRST_PAGE_SIZE << (p - 1) rows, starting at
+    // the row whose only bit is that; full-size pages follow the small ones
+    private static int capacityOf(int page) {
+        if (page == 0) {
+            return FIRST_PAGE_SIZE;
+        }
+        return page < SMALL_PAGES ? FIRST_PAGE_SIZE << (page - 1) : PAGE_SIZE;
+    }
+
+    private static int pageOf(int row) {
+        if (row < FIRST_PAGE_SIZE) {
+            return 0;
+        }
+        if (row < PAGE_SIZE) {
+            return 32 - Integer.numberOfLeadingZeros(row) - FIRST_PAGE_BITS;
+        }
+        return SMALL_PAGES - 1 + (row >>> PAGE_BITS);
+    }
+
+    private static int offset(int row) {
+        if (row < FIRST_PAGE_SIZE) {
+            return row;
+        }
+        if (row < PAGE_SIZE) {
+            return row - Integer.highestOneBit(row);
+        }
+        return row & (PAGE_SIZE - 1);
+    }
+}
@@ -0,0 +1,28 @@
+package com.boostphysio;
+
+// Snapshot of how many appointments a physiotherapist has in each status
+public final class AppointmentCounts {
+    private final int booked;
+    private final int cancelled;
+    private final int attended;
+    
+    public AppointmentCounts(int booked, int cancelled, int attended) {
+        this.booked = booked;
+        this.cancelled = cancelled;
+        this.attended = attended;
+    }
+    
+    // Getters
+    public int getBooked() { return booked; }
+    public int getCancelled() { return cancelled; }
+    public int getAttended() { return attended; }
+    public int getTotal() { return booked + cancelled + attended; }
+    
+    public int get(Appointment.Status status) {
+        switch (status) {
+            case BOOKED: return booked;
+            case CANCELLED: return cancelled;
+            default: return attended;
+        }
+    }
+}
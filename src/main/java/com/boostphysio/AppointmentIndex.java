@@ -0,0 +1,115 @@
+package com.boostphysio;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Per patient and per physiotherapist: a running count of appointments in
+// each status, and the IDs of their appointments in a plain int array.
+// Patients are keyed by their number in the AppointmentStore rather than by
+// ID, so a patient given a removed patient's ID starts with an empty bucket.
+// Updated when an appointment is booked and whenever its status changes, so
+// counts never need a pass over the appointments, and listing a person's
+// appointments costs O(k) lookups in the AppointmentStore, archived or not.
+class AppointmentIndex implements AppointmentListener {
+    private static final Appointment.Status[] STATUSES = Appointment.Status.values();
+
+    static final class Bucket {
+        private final AtomicIntegerArray counts = new AtomicIntegerArray(STATUSES.length);
+        private int[] ids = new int[4];  // guarded by this
+        private int size;
+
+        int count(Appointment.Status status) {
+            return counts.get(status.ordinal());
+        }
+
+        AppointmentCounts counts() {
+            return new AppointmentCounts(count(Appointment.Status.BOOKED),
+                    count(Appointment.Status.CANCELLED), count(Appointment.Status.ATTENDED));
+        }
+
+        // Copy of the appointment IDs, in the order booked
+        synchronized int[] ids() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        void add(Appointment appointment) {
+            synchronized (this) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                ids[size++] = appointment.getId();
+            }
+            counts.incrementAndGet(appointment.getStatus().ordinal());
+        }
+
+        // A sealed week's share, counted by status without its appointments
+        void addAll(int[] added, int[] addedCounts) {
+            synchronized (this) {
+                if (size + added.length > ids.length) {
+                    ids = Arrays.copyOf(ids, Math.max(size + added.length, size * 2));
+                }
+                System.arraycopy(added, 0, ids, size, added.length);
+                size += added.length;
+            }
+            for (int status = 0; status < addedCounts.length; status++) {
+                counts.addAndGet(status, addedCounts[status]);
+            }
+        }
+
+        // Count the new status before uncounting the old one, so a concurrent
+        // reader never sees the appointment vanish
+        void move(Appointment.Status from, Appointment.Status to) {
+            counts.incrementAndGet(to.ordinal());
+            counts.decrementAndGet(from.ordinal());
+        }
+    }
+
+    private static final Bucket EMPTY = new Bucket();
+
+    private final IntHashIndex<Bucket> byPatient = new IntHashIndex<>();
+    private final IntHashIndex<Bucket> byPhysiotherapist = new IntHashIndex<>();
+
+    void added(Appointment appointment) {
+        bucket(byPatient, appointment.getPatientNumber()).add(appointment);
+        bucket(byPhysiotherapist, appointment.getPhysiotherapist().getId()).add(appointment);
+    }
+
+    // A week restored from its SealedWeek summary rather than row by row
+    void addSealed(AppointmentStore store, SealedWeek sealed) {
+        for (SealedWeek.Share<Patient> share : sealed.getPatients()) {
+            bucket(byPatient, store.register(share.getPerson())).addAll(share.getIds(), share.getCounts());
+        }
+        for (SealedWeek.Share<Physiotherapist> share : sealed.getPhysiotherapists()) {
+            bucket(byPhysiotherapist, share.getPerson().getId()).addAll(share.getIds(), share.getCounts());
+        }
+    }
+
+    @Override
+    public void statusChanged(Appointment appointment, Appointment.Status from, Appointment.Status to) {
+        bucket(byPatient, appointment.getPatientNumber()).move(from, to);
+        bucket(byPhysiotherapist, appointment.getPhysiotherapist().getId()).move(from, to);
+    }
+
+    // By the patient's number in the AppointmentStore; -1 has no appointments
+    Bucket forPatient(int patientNumber) {
+        Bucket bucket = byPatient.get(patientNumber);
+        return bucket == null ? EMPTY : bucket;
+    }
+
+    Bucket forPhysiotherapist(int physioId) {
+        Bucket bucket = byPhysiotherapist.get(physioId);
+        return bucket == null ? EMPTY : bucket;
+    }
+
+    private static Bucket bucket(IntHashIndex<Bucket> index, int id) {
+        Bucket bucket = index.get(id);
+        if (bucket == null) {
+            Bucket created = new Bucket();
+            bucket = index.putIfAbsent(id, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+        return bucket;
+    }
+}
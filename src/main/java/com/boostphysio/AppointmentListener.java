@@ -0,0 +1,11 @@
+package com.boostphysio;
+
+// Notified after an appointment changes status, whether the change came
+// through BookingSystem or a direct call such as Appointment.markAsAttended()
+interface AppointmentListener {
+    void statusChanged(Appointment appointment, Appointment.Status from, Appointment.Status to);
+
+    // After a cancellation has handed the slot back, outside the appointment's lock
+    default void slotReleased(Appointment appointment) {
+    }
+}
@@ -0,0 +1,384 @@
+package com.boostphysio;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Appointments partitioned by the week of their time slot, keyed by that
+// week's Monday, each week held in an AppointmentColumns table. A week starts
+// out live, on the heap. Once it is over it can be sealed: its appointments
+// never change again, are written to a compressed file and dropped from the
+// heap, and are read back the first time anything asks for them; only a
+// SealedWeek summary of them stays in memory. Weeks read back are only softly
+// reachable, so the GC can drop them again when memory runs short. A
+// directory indexed by appointment ID gives each appointment's week and row,
+// live or archived, in 8 bytes.
+class AppointmentStore {
+    // Reads a sealed week's appointments back from its file into the table
+    interface Loader {
+        void load(Path file, LocalDate week, AppointmentColumns into) throws IOException;
+    }
+
+    private static final int DIRECTORY_PAGE_BITS = 12;
+    private static final int DIRECTORY_PAGE_SIZE = 1 << DIRECTORY_PAGE_BITS;
+
+    private final class Partition {
+        final LocalDate week;
+        // Null once the week is sealed
+        volatile AppointmentColumns live;
+        private Path file;
+        // Set once the week is sealed
+        private volatile SealedWeek sealed;
+        private SoftReference<AppointmentColumns> loaded = new SoftReference<>(null);
+
+        Partition(LocalDate week) {
+            this.week = week;
+            live = new AppointmentColumns(AppointmentStore.this, week);
+        }
+
+        AppointmentColumns columns() {
+            AppointmentColumns columns = live;
+            return columns != null ? columns : load();
+        }
+
+        // Rows come back in the order they were written, so the directory
+        // still points at the right ones
+        synchronized AppointmentColumns load() {
+            AppointmentColumns columns = loaded.get();
+            if (columns == null) {
+                columns = new AppointmentColumns(AppointmentStore.this, week);
+                try {
+                    loader.load(file, week, columns);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot read archived appointments for the week of " + week, e);
+                }
+                columns.seal();
+                loaded = new SoftReference<>(columns);
+            }
+            return columns;
+        }
+
+        // The table stays softly reachable, so a week sealed and then read
+        // straight away is not read back from disk
+        synchronized void seal(Path file, AppointmentColumns columns, SealedWeek sealed) {
+            this.file = file;
+            this.sealed = sealed;
+            loaded = new SoftReference<>(columns);
+            live = null;
+        }
+    }
+
+    private final ConcurrentSkipListMap<LocalDate, Partition> partitions = new ConcurrentSkipListMap<>();
+    private final Loader loader;
+    private volatile AppointmentListener listener;
+
+    // ID -> (epoch day of the week's Monday << 32 | row), 0 when unknown;
+    // day 0 was a Thursday, so no week packs to 0
+    private volatile AtomicLongArray[] directory = new AtomicLongArray[0];
+
+    // Everyone an appointment refers to, so rows only hold their numbers.
+    // Patients are numbered per registration, not by ID: an ID can be given to
+    // a new patient once the old one is removed, and the old patient's
+    // appointments must still show them. Patients stay here after removal.
+    private final ConcurrentHashMap<Patient, Integer> patientNumbers = new ConcurrentHashMap<>();
+    private final IntHashIndex<Patient> patients = new IntHashIndex<>();
+    private final AtomicInteger nextPatientNumber = new AtomicInteger();
+    // The last stand-in made for a removed patient of each ID, so reading an
+    // archived week again does not number the same person again
+    private final IntHashIndex<Patient> formerPatients = new IntHashIndex<>();
+    private final IntHashIndex<Physiotherapist> physiotherapists = new IntHashIndex<>();
+    private final ConcurrentHashMap<Treatment, Integer> treatmentNumbers = new ConcurrentHashMap<>();
+    private volatile Treatment[] treatments = new Treatment[0];
+
+    AppointmentStore(Loader loader) {
+        this.loader = loader;
+    }
+
+    static LocalDate weekOf(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    // Hears every status change of every appointment in the store
+    void setListener(AppointmentListener listener) {
+        this.listener = listener;
+    }
+
+    AppointmentListener getListener() {
+        return listener;
+    }
+
+    // Adds the appointment to its week; it can be found by ID once published.
+    // Callers must not add to a week while it is being sealed.
+    Appointment add(int id, Physiotherapist physio, Patient patient, Treatment treatment, TimeSlot slot,
+                    Appointment.Status status) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Appointment IDs must be positive");
+        }
+        Partition partition = partition(weekOf(slot.getDate()));
+        AppointmentColumns live = partition.live;
+        if (live == null) {
+            throw new IllegalStateException("The week of " + partition.week + " is archived");
+        }
+        return live.view(live.append(id, physio, patient, treatment, slot, status));
+    }
+
+    void publish(Appointment appointment) {
+        AppointmentColumns columns = appointment.getColumns();
+        setDirectory(appointment.getId(), columns.getWeek(), appointment.getRow());
+    }
+
+    Appointment get(int id) {
+        long entry = directoryEntry(id);
+        if (entry == 0) {
+            return null;
+        }
+        Partition partition = partitions.get(LocalDate.ofEpochDay(entry >> 32));
+        return partition.columns().view((int) entry);
+    }
+
+    boolean contains(int id) {
+        return directoryEntry(id) != 0;
+    }
+
+    boolean isSealed(LocalDate date) {
+        Partition partition = partitions.get(weekOf(date));
+        return partition != null && partition.live == null;
+    }
+
+    // Every appointment, week by week, reading sealed weeks back as needed
+    List<Appointment> all() {
+        List<Appointment> appointments = new ArrayList<>();
+        for (Partition partition : partitions.values()) {
+            partition.columns().collectAll(appointments);
+        }
+        return appointments;
+    }
+
+    // Appointments on the given days, only touching the weeks they fall in
+    List<Appointment> between(LocalDate from, LocalDate to) {
+        List<Appointment> appointments = new ArrayList<>();
+        if (to.isBefore(from)) {
+            return appointments;
+        }
+        long fromSecond = from.toEpochDay() * 86400;
+        long toSecond = (to.toEpochDay() + 1) * 86400;
+        for (Partition partition : partitions.subMap(weekOf(from), true, weekOf(to), true).values()) {
+            partition.columns().collectBetween(fromSecond, toSecond, appointments);
+        }
+        return appointments;
+    }
+
+    // The appointments with the given IDs, optionally only those in one
+    // status, in ID order; IDs are sorted in place
+    List<Appointment> select(int[] ids, Appointment.Status status) {
+        Arrays.sort(ids);
+        List<Appointment> appointments = new ArrayList<>(ids.length);
+        long week = 0;
+        AppointmentColumns columns = null;
+        for (int id : ids) {
+            long entry = directoryEntry(id);
+            if (entry == 0) {
+                continue;
+            }
+            // A person's appointments mostly fall in a few weeks
+            if (entry >> 32 != week) {
+                week = entry >> 32;
+                columns = partitions.get(LocalDate.ofEpochDay(week)).columns();
+            }
+            int row = (int) entry;
+            if (status == null || columns.status(row) == status) {
+                appointments.add(columns.view(row));
+            }
+        }
+        return appointments;
+    }
+
+    // Appointments of live weeks only, as a checkpoint saves them
+    List<Appointment> live() {
+        List<Appointment> appointments = new ArrayList<>();
+        for (Partition partition : partitions.values()) {
+            AppointmentColumns live = partition.live;
+            if (live != null) {
+                live.collectAll(appointments);
+            }
+        }
+        return appointments;
+    }
+
+    // Summaries of the sealed weeks, in date order
+    Map<LocalDate, SealedWeek> sealedWeeks() {
+        Map<LocalDate, SealedWeek> weeks = new LinkedHashMap<>();
+        for (Partition partition : partitions.values()) {
+            if (partition.live == null) {
+                weeks.put(partition.week, partition.sealed);
+            }
+        }
+        return weeks;
+    }
+
+    // Live weeks starting before the given Monday
+    List<LocalDate> liveWeeksBefore(LocalDate week) {
+        List<LocalDate> weeks = new ArrayList<>();
+        for (Partition partition : partitions.headMap(week).values()) {
+            if (partition.live != null) {
+                weeks.add(partition.week);
+            }
+        }
+        return weeks;
+    }
+
+    // Seals the live week, writes its rows to the file in row order and drops
+    // them from the heap; returns how many there were. If the file cannot be
+    // written the week stays live and its appointments can change again.
+    // Callers must stop new bookings for the week while this runs.
+    int seal(LocalDate week, Path file) throws IOException {
+        Partition partition = partitions.get(week);
+        AppointmentColumns live = partition == null ? null : partition.live;
+        if (live == null) {
+            throw new IllegalStateException("The week of " + week + " is not live");
+        }
+        live.seal();
+        List<Appointment> rows = live.all();
+        try {
+            AppointmentArchive.write(file, week, rows);
+        } catch (IOException | RuntimeException e) {
+            live.unseal();
+            throw e;
+        }
+        partition.seal(file, live, SealedWeek.of(rows));
+        return live.size();
+    }
+
+    // A week sealed before a restart: makes its appointments findable by ID
+    // from the summary, leaving the file unread until they are asked for
+    void addSealed(LocalDate week, Path file, SealedWeek sealed) {
+        partition(week).seal(file, null, sealed);
+        int[] ids = sealed.getIds();
+        for (int row = 0; row < ids.length; row++) {
+            setDirectory(ids[row], week, row);
+        }
+    }
+
+    // Patients compare by identity, so each registration gets its own number
+    int register(Patient patient) {
+        Integer number = patientNumbers.get(patient);
+        if (number != null) {
+            return number;
+        }
+        return patientNumbers.computeIfAbsent(patient, registered -> {
+            int assigned = nextPatientNumber.getAndIncrement();
+            // Published before the number can be found
+            patients.put(assigned, registered);
+            return assigned;
+        });
+    }
+
+    // Number of the patient's registration, or -1 if no appointment refers to them
+    int patientNumber(Patient patient) {
+        Integer number = patientNumbers.get(patient);
+        return number == null ? -1 : number;
+    }
+
+    // A patient no longer registered under this ID, as saved with their old
+    // appointments; the same details give back the same object
+    synchronized Patient formerPatient(int id, String name, String address, String phone) {
+        Patient former = formerPatients.get(id);
+        if (former == null || !Objects.equals(former.getFullName(), name)
+                || !Objects.equals(former.getAddress(), address)
+                || !Objects.equals(former.getPhoneNumber(), phone)) {
+            former = new Patient(id, name, address, phone);
+            formerPatients.put(id, former);
+        }
+        return former;
+    }
+
+    int register(Physiotherapist physio) {
+        if (physiotherapists.get(physio.getId()) != physio) {
+            physiotherapists.put(physio.getId(), physio);
+        }
+        return physio.getId();
+    }
+
+    int register(Treatment treatment) {
+        Integer number = treatmentNumbers.get(treatment);
+        if (number != null) {
+            return number;
+        }
+        synchronized (treatmentNumbers) {
+            number = treatmentNumbers.get(treatment);
+            if (number == null) {
+                number = treatments.length;
+                Treatment[] grown = Arrays.copyOf(treatments, number + 1);
+                grown[number] = treatment;
+                // Published before the number can be found
+                treatments = grown;
+                treatmentNumbers.put(treatment, number);
+            }
+            return number;
+        }
+    }
+
+    Patient patient(int number) {
+        return patients.get(number);
+    }
+
+    Physiotherapist physiotherapist(int id) {
+        return physiotherapists.get(id);
+    }
+
+    Treatment treatment(int number) {
+        return treatments[number];
+    }
+
+    private Partition partition(LocalDate week) {
+        Partition partition = partitions.get(week);
+        if (partition == null) {
+            Partition created = new Partition(week);
+            partition = partitions.putIfAbsent(week, created);
+            if (partition == null) {
+                partition = created;
+            }
+        }
+        return partition;
+    }
+
+    private long directoryEntry(int id) {
+        AtomicLongArray[] pages = directory;
+        int page = id >>> DIRECTORY_PAGE_BITS;
+        if (id < 0 || page >= pages.length || pages[page] == null) {
+            return 0;
+        }
+        return pages[page].get(id & (DIRECTORY_PAGE_SIZE - 1));
+    }
+
+    private void setDirectory(int id, LocalDate week, int row) {
+        int page = id >>> DIRECTORY_PAGE_BITS;
+        AtomicLongArray[] pages = directory;
+        if (page >= pages.length || pages[page] == null) {
+            synchronized (this) {
+                pages = directory;
+                if (page >= pages.length || pages[page] == null) {
+                    // Copied, so the new page is published by the volatile write
+                    pages = Arrays.copyOf(pages, Math.max(page + 1, pages.length));
+                    pages[page] = new AtomicLongArray(DIRECTORY_PAGE_SIZE);
+                    directory = pages;
+                }
+            }
+        }
+        pages[page].set(id & (DIRECTORY_PAGE_SIZE - 1), week.toEpochDay() << 32 | row);
+    }
+}
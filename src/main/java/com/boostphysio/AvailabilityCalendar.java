@@ -0,0 +1,173 @@
+package com.boostphysio;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Per-physiotherapist availability as a bitmap per day, one bit per
+// MINUTES_PER_UNIT minutes. Each day keeps an "open" bitmap (time published
+// through the timetable) and a "booked" bitmap. Checking whether a treatment
+// of a given length can start at a given time is a mask test over one or two
+// words, and booking sets exactly the treatment's units with compare-and-set,
+// so no locks are taken. Times that are not on a unit boundary are snapped
+// down to the unit they fall in, so back-to-back slots never share a unit.
+class AvailabilityCalendar {
+    static final int MINUTES_PER_UNIT = 5;
+    static final int UNITS_PER_DAY = 24 * 60 / MINUTES_PER_UNIT;
+    private static final int SECONDS_PER_UNIT = MINUTES_PER_UNIT * 60;
+    private static final int WORDS_PER_DAY = (UNITS_PER_DAY + 63) / 64;
+
+    // words[0..WORDS_PER_DAY) are open bits, the rest booked bits
+    private static final class Day {
+        final AtomicLongArray words = new AtomicLongArray(WORDS_PER_DAY * 2);
+    }
+
+    private final IntHashIndex<Day> days = new IntHashIndex<>();
+
+    // Publishes [start, end) as working time
+    void open(long startSecond, long endSecond) {
+        long unit = unitFloor(startSecond);
+        long end = unitEnd(startSecond, endSecond);
+        while (unit < end) {
+            int span = spanFrom(unit, end);
+            Day day = dayFor(unit, true);
+            setBits(day.words, wordIndex(unit), maskFor(unit, span));
+            unit += span;
+        }
+    }
+
+    // True if every unit of [start, end) is open and not booked
+    boolean isFree(long startSecond, long endSecond) {
+        long unit = unitFloor(startSecond);
+        long end = unitEnd(startSecond, endSecond);
+        while (unit < end) {
+            int span = spanFrom(unit, end);
+            Day day = dayFor(unit, false);
+            if (day == null) {
+                return false;
+            }
+            int word = wordIndex(unit);
+            long mask = maskFor(unit, span);
+            if ((day.words.get(word) & mask) != mask || (day.words.get(WORDS_PER_DAY + word) & mask) != 0) {
+                return false;
+            }
+            unit += span;
+        }
+        return true;
+    }
+
+    // Atomically books [start, end) if it is all open and free; on failure
+    // nothing stays booked
+    boolean tryReserve(long startSecond, long endSecond) {
+        long first = unitFloor(startSecond);
+        long end = unitEnd(startSecond, endSecond);
+        long unit = first;
+        while (unit < end) {
+            int span = spanFrom(unit, end);
+            Day day = dayFor(unit, false);
+            if (day == null || !claim(day.words, wordIndex(unit), maskFor(unit, span))) {
+                releaseUnits(first, unit);
+                return false;
+            }
+            unit += span;
+        }
+        return true;
+    }
+
+    // Books [start, end) unconditionally
+    void reserve(long startSecond, long endSecond) {
+        long unit = unitFloor(startSecond);
+        long end = unitEnd(startSecond, endSecond);
+        while (unit < end) {
+            int span = spanFrom(unit, end);
+            Day day = dayFor(unit, true);
+            setBits(day.words, WORDS_PER_DAY + wordIndex(unit), maskFor(unit, span));
+            unit += span;
+        }
+    }
+
+    void release(long startSecond, long endSecond) {
+        releaseUnits(unitFloor(startSecond), unitEnd(startSecond, endSecond));
+    }
+
+    private void releaseUnits(long unit, long end) {
+        while (unit < end) {
+            int span = spanFrom(unit, end);
+            Day day = dayFor(unit, false);
+            if (day != null) {
+                clearBits(day.words, WORDS_PER_DAY + wordIndex(unit), maskFor(unit, span));
+            }
+            unit += span;
+        }
+    }
+
+    private static boolean claim(AtomicLongArray words, int word, long mask) {
+        while (true) {
+            long booked = words.get(WORDS_PER_DAY + word);
+            if ((words.get(word) & mask) != mask || (booked & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(WORDS_PER_DAY + word, booked, booked | mask)) {
+                return true;
+            }
+        }
+    }
+
+    private static void setBits(AtomicLongArray words, int index, long mask) {
+        long current;
+        do {
+            current = words.get(index);
+        } while ((current & mask) != mask && !words.compareAndSet(index, current, current | mask));
+    }
+
+    private static void clearBits(AtomicLongArray words, int index, long mask) {
+        long current;
+        do {
+            current = words.get(index);
+        } while ((current & mask) != 0 && !words.compareAndSet(index, current, current & ~mask));
+    }
+
+    private Day dayFor(long unit, boolean create) {
+        int epochDay = (int) Math.floorDiv(unit, UNITS_PER_DAY);
+        Day day = days.get(epochDay);
+        if (day == null && create) {
+            Day created = new Day();
+            day = days.putIfAbsent(epochDay, created);
+            if (day == null) {
+                day = created;
+            }
+        }
+        return day;
+    }
+
+    // Number of units from unit that stay within one word of one day
+    private static int spanFrom(long unit, long end) {
+        int unitOfDay = Math.floorMod(unit, UNITS_PER_DAY);
+        int inWord = 64 - (unitOfDay & 63);
+        int inDay = UNITS_PER_DAY - unitOfDay;
+        return (int) Math.min(end - unit, Math.min(inWord, inDay));
+    }
+
+    private static int wordIndex(long unit) {
+        return Math.floorMod(unit, UNITS_PER_DAY) >>> 6;
+    }
+
+    private static long maskFor(long unit, int span) {
+        int bit = Math.floorMod(unit, UNITS_PER_DAY) & 63;
+        long bits = span == 64 ? -1L : (1L << span) - 1;
+        return bits << bit;
+    }
+
+    private static long unitFloor(long second) {
+        return Math.floorDiv(second, SECONDS_PER_UNIT);
+    }
+
+    // End of a range: snapped down like the start, but never an empty range
+    private static long unitEnd(long startSecond, long endSecond) {
+        return Math.max(unitFloor(endSecond), unitFloor(startSecond) + 1);
+    }
+
+    static long toSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,418 @@
+package com.boostphysio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// HTTP/JSON front end over one BookingSystem, on the JDK's built-in server.
+// Every request runs on its own virtual thread, so thousands can be in flight
+// while they wait on the booking log or each other; BookingSystem is already
+// safe for concurrent use. Bodies are flat JSON objects, times ISO-8601 local
+// date-times (e.g. 2025-04-07T09:00).
+//   GET  /slots?expertise=Physiotherapy&after=...&limit=10   soonest free slots in an area
+//   GET  /slots?physio=Name&from=2025-04-07&to=...&offset=0&limit=10
+//   POST /appointments    {"patientId", "physioId", "treatment", "start"}
+//   GET  /appointments/{id}
+//   POST /appointments/{id}/cancel
+//   POST /appointments/{id}/reschedule    {"start", optional "physioId"}
+//   POST /appointments/{id}/attend
+//   GET  /report          the end-of-term report as text
+// Bad input answers 400, unknown IDs 404, bodies over 16 KB 413, and conflicts
+// such as a slot that was just taken 409, each with {"error": message}.
+public class BookingHttpServer implements Closeable {
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 1000;
+    // Request bodies are a handful of fields; anything larger is refused
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+    // Connections queued by the OS before they are accepted
+    private static final int BACKLOG = 4096;
+    private static final Logger LOG = System.getLogger(BookingHttpServer.class.getName());
+
+    private final BookingSystem bookingSystem;
+    private final ReportGenerator reportGenerator;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // Port 0 picks a free port; see getPort()
+    public BookingHttpServer(BookingSystem bookingSystem, InetSocketAddress address) throws IOException {
+        this.bookingSystem = bookingSystem;
+        this.reportGenerator = new ReportGenerator(bookingSystem);
+        this.server = HttpServer.create(address, BACKLOG);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Stops accepting, gives requests in flight a second to finish, and
+    // leaves the booking system open
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                route(exchange);
+            } catch (HttpError e) {
+                sendError(exchange, e.status, e.getMessage());
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                sendError(exchange, 400, e.getMessage());
+            } catch (IllegalStateException e) {
+                sendError(exchange, 409, e.getMessage());
+            } catch (RuntimeException e) {
+                // A bug rather than bad input; the client only sees a 500
+                LOG.log(Level.ERROR, "Request " + exchange.getRequestMethod() + " " + exchange.getRequestURI()
+                    + " failed", e);
+                sendError(exchange, 500, "Internal error");
+            }
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        if (path.length == 1 && path[0].equals("slots")) {
+            requireMethod(exchange, "GET");
+            sendJson(exchange, 200, offersToJson(searchSlots(query)));
+        } else if (path.length == 1 && path[0].equals("report")) {
+            requireMethod(exchange, "GET");
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            reportGenerator.writeEndOfTermReport(exchange.getResponseBody());
+        } else if (path.length == 1 && path[0].equals("appointments")) {
+            requireMethod(exchange, "POST");
+            sendJson(exchange, 201, appointmentToJson(book(readBody(exchange))));
+        } else if (path.length >= 2 && path[0].equals("appointments")) {
+            int id = parseInt(path[1], "appointment ID");
+            if (path.length == 2) {
+                requireMethod(exchange, "GET");
+                sendJson(exchange, 200, appointmentToJson(findAppointment(id)));
+                return;
+            }
+            requireMethod(exchange, "POST");
+            findAppointment(id);
+            switch (path.length == 3 ? path[2] : "") {
+                case "cancel":
+                    bookingSystem.cancelAppointment(id);
+                    sendJson(exchange, 200, appointmentToJson(findAppointment(id)));
+                    break;
+                case "attend":
+                    bookingSystem.markAppointmentAsAttended(id);
+                    sendJson(exchange, 200, appointmentToJson(findAppointment(id)));
+                    break;
+                case "reschedule":
+                    sendJson(exchange, 200, appointmentToJson(reschedule(id, readBody(exchange))));
+                    break;
+                default:
+                    throw new HttpError(404, "No such action");
+            }
+        } else {
+            throw new HttpError(404, "No such resource");
+        }
+    }
+
+    private List<SlotOffer> searchSlots(Map<String, String> query) {
+        int limit = Integer.parseInt(query.getOrDefault("limit", String.valueOf(DEFAULT_LIMIT)));
+        if (limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be at most " + MAX_LIMIT);
+        }
+        String expertise = query.get("expertise");
+        if (expertise != null) {
+            String after = query.get("after");
+            return bookingSystem.findEarliestSlotsByExpertise(expertise,
+                after == null ? LocalDateTime.now() : LocalDateTime.parse(after), limit);
+        }
+        String physio = query.get("physio");
+        if (physio != null) {
+            int offset = Integer.parseInt(query.getOrDefault("offset", "0"));
+            return bookingSystem.findAvailableSlotsByPhysiotherapist(physio, parseDate(query.get("from")),
+                parseDate(query.get("to")), offset, limit);
+        }
+        throw new IllegalArgumentException("Search needs expertise or physio");
+    }
+
+    private Appointment book(Map<String, String> body) {
+        Patient patient = bookingSystem.getPatientById(parseInt(required(body, "patientId"), "patientId"));
+        if (patient == null) {
+            throw new HttpError(404, "Patient not found");
+        }
+        Physiotherapist physio = findPhysiotherapist(required(body, "physioId"));
+        Treatment treatment = physio.getTreatmentByName(required(body, "treatment"));
+        if (treatment == null) {
+            throw new IllegalArgumentException(physio.getFullName() + " does not offer " + body.get("treatment"));
+        }
+        return bookingSystem.bookAppointment(patient, physio, treatment, findSlot(physio, required(body, "start")));
+    }
+
+    // Same physio unless the body names another one offering the treatment
+    private Appointment reschedule(int id, Map<String, String> body) {
+        Appointment appointment = findAppointment(id);
+        String physioId = body.get("physioId");
+        if (physioId == null) {
+            TimeSlot slot = findSlot(appointment.getPhysiotherapist(), required(body, "start"));
+            return bookingSystem.rescheduleAppointment(id, slot);
+        }
+        Physiotherapist physio = findPhysiotherapist(physioId);
+        TimeSlot slot = findSlot(physio, required(body, "start"));
+        return bookingSystem.rescheduleAppointment(id,
+            new SlotOffer(physio, appointment.getTreatment(), slot, slot.getDate()));
+    }
+
+    private Appointment findAppointment(int id) {
+        Appointment appointment = bookingSystem.getAppointmentById(id);
+        if (appointment == null) {
+            throw new HttpError(404, "Appointment not found");
+        }
+        return appointment;
+    }
+
+    private Physiotherapist findPhysiotherapist(String id) {
+        Physiotherapist physio = bookingSystem.getPhysiotherapistById(parseInt(id, "physioId"));
+        if (physio == null) {
+            throw new HttpError(404, "Physiotherapist not found");
+        }
+        return physio;
+    }
+
+    private static TimeSlot findSlot(Physiotherapist physio, String start) {
+        TimeSlot slot = physio.getTimeSlotAt(LocalDateTime.parse(start));
+        if (slot == null) {
+            throw new HttpError(404, physio.getFullName() + " has no slot starting at " + start);
+        }
+        return slot;
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            exchange.getResponseHeaders().set("Allow", method);
+            throw new HttpError(405, method + " only");
+        }
+    }
+
+    private static String required(Map<String, String> body, String key) {
+        String value = body.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + key);
+        }
+        return value;
+    }
+
+    private static int parseInt(String value, String what) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad " + what + ": " + value);
+        }
+    }
+
+    private static long parseLong(String value, String what) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad " + what + ": " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        return value == null ? null : LocalDate.parse(value);
+    }
+
+    private static Map<String, String> parseQuery(String raw) {
+        Map<String, String> query = new HashMap<>();
+        if (raw == null || raw.isEmpty()) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    // Refuses a declared length over the cap before reading anything, and
+    // never reads more than one byte past it when the length is not given
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        String declared = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (declared != null && parseLong(declared, "Content-Length") > MAX_BODY_BYTES) {
+            throw new HttpError(413, "Request body must be at most " + MAX_BODY_BYTES + " bytes");
+        }
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new HttpError(413, "Request body must be at most " + MAX_BODY_BYTES + " bytes");
+            }
+            String body = new String(bytes, StandardCharsets.UTF_8).trim();
+            return body.isEmpty() ? new HashMap<>() : BulkImporter.parseJsonObject(body);
+        }
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            return; // the response was already under way
+        }
+        StringBuilder json = new StringBuilder("{\"error\":");
+        appendString(json, message == null ? "Request failed" : message);
+        sendJson(exchange, status, json.append('}').toString());
+    }
+
+    static String appointmentToJson(Appointment appointment) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"id\":").append(appointment.getId());
+        json.append(",\"patientId\":").append(appointment.getPatient().getId());
+        json.append(",\"patient\":");
+        appendString(json, appointment.getPatient().getFullName());
+        json.append(",\"physioId\":").append(appointment.getPhysiotherapist().getId());
+        json.append(",\"physiotherapist\":");
+        appendString(json, appointment.getPhysiotherapist().getFullName());
+        json.append(",\"treatment\":");
+        appendString(json, appointment.getTreatment().getName());
+        appendTimes(json, appointment.getTimeSlot());
+        json.append(",\"status\":\"").append(appointment.getStatus()).append("\"}");
+        return json.toString();
+    }
+
+    static String offersToJson(List<SlotOffer> offers) {
+        StringBuilder json = new StringBuilder(64 + offers.size() * 160).append('[');
+        for (SlotOffer offer : offers) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"physioId\":").append(offer.getPhysiotherapist().getId());
+            json.append(",\"physiotherapist\":");
+            appendString(json, offer.getPhysiotherapist().getFullName());
+            json.append(",\"treatment\":");
+            appendString(json, offer.getTreatment().getName());
+            json.append(",\"durationMinutes\":").append(offer.getTreatment().getDurationMinutes());
+            appendTimes(json, offer.getTimeSlot());
+            json.append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static void appendTimes(StringBuilder json, TimeSlot slot) {
+        json.append(",\"start\":\"").append(slot.getStartTime()).append('"');
+        json.append(",\"end\":\"").append(slot.getEndTime()).append('"');
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    // A request the server answers with this status itself, kept apart from
+    // the exceptions BookingSystem throws, which map to 400 and 409
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    // Serves a booking system over HTTP until the process is stopped:
+    //   BookingHttpServer [port=8080] [dataDir=data] [physios=0 patients=0 weeks=0 seed=1]
+    // With dataDir bookings are kept between runs; a positive physios fills an
+    // empty system with a generated clinic, e.g. for trying the API out.
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>(Map.of(
+            "port", "8080", "physios", "0", "patients", "0", "weeks", "0", "seed", "1"));
+        String dataDir = null;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String key = eq < 0 ? arg : arg.substring(0, eq);
+            if (eq < 0 || !(options.containsKey(key) || key.equals("dataDir"))) {
+                System.out.println("Usage: BookingHttpServer [key=value]... with keys " + options.keySet()
+                    + " and dataDir");
+                return;
+            }
+            if (key.equals("dataDir")) {
+                dataDir = arg.substring(eq + 1);
+            } else {
+                options.put(key, arg.substring(eq + 1));
+            }
+        }
+
+        BookingSystem system = dataDir == null ? new BookingSystem() : BookingSystem.open(Path.of(dataDir));
+        int physios = Integer.parseInt(options.get("physios"));
+        if (physios > 0 && system.getAllPhysiotherapists().isEmpty()) {
+            new ClinicDataGenerator(Long.parseLong(options.get("seed")), physios,
+                Integer.parseInt(options.get("patients")), Integer.parseInt(options.get("weeks"))).generate(system);
+        }
+        BookingHttpServer server = new BookingHttpServer(system,
+            new InetSocketAddress(Integer.parseInt(options.get("port"))));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                system.close();
+            } catch (IOException e) {
+                System.err.println("Closing the booking system failed: " + e.getMessage());
+            }
+        }));
+        server.start();
+        System.out.println("Boost Physio booking API listening on port " + server.getPort());
+    }
+}
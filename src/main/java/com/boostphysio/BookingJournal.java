@@ -0,0 +1,242 @@
+package com.boostphysio;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+// Writes BookingSystem mutations to the write-ahead log and applies them
+// again on startup. Reschedules are recorded as the cancellation of the old
+// appointment followed by the booking of the new one, and a booking carries
+// its appointment ID, so replay rebuilds the same IDs and the same counter.
+class BookingJournal implements PhysiotherapistListener, Closeable {
+    static final byte ADD_PHYSIOTHERAPIST = 1;
+    static final byte ADD_EXPERTISE = 2;
+    static final byte ADD_TREATMENT = 3;
+    static final byte ADD_TIME_SLOT = 4;
+    static final byte ADD_PATIENT = 5;
+    static final byte REMOVE_PATIENT = 6;
+    static final byte BOOK = 7;
+    static final byte STATUS = 8;
+    static final byte BOOK_BATCH = 9;
+
+    private final BookingLog log;
+
+    BookingJournal(BookingLog log) {
+        this.log = log;
+    }
+
+    void physiotherapistAdded(Physiotherapist physio) {
+        log.append(ADD_PHYSIOTHERAPIST, out -> writePerson(out, physio));
+    }
+
+    @Override
+    public void expertiseAdded(Physiotherapist physio, String area) {
+        log.append(ADD_EXPERTISE, out -> {
+            out.writeInt(physio.getId());
+            out.writeUTF(area);
+        });
+    }
+
+    @Override
+    public void treatmentAdded(Physiotherapist physio, Treatment treatment) {
+        log.append(ADD_TREATMENT, out -> {
+            out.writeInt(physio.getId());
+            out.writeUTF(treatment.getName());
+            out.writeUTF(treatment.getExpertiseArea());
+            out.writeInt(treatment.getDurationMinutes());
+        });
+    }
+
+    @Override
+    public void timeSlotAdded(Physiotherapist physio, TimeSlot slot) {
+        log.append(ADD_TIME_SLOT, out -> {
+            out.writeInt(physio.getId());
+            writeTime(out, slot.getStartTime());
+            writeTime(out, slot.getEndTime());
+        });
+    }
+
+    void patientAdded(Patient patient) {
+        log.append(ADD_PATIENT, out -> writePerson(out, patient));
+    }
+
+    void patientRemoved(int patientId) {
+        log.append(REMOVE_PATIENT, out -> out.writeInt(patientId));
+    }
+
+    // Bookings are logged before the appointment exists, so a failed append
+    // leaves nothing in memory to undo but the slot's claimed time
+    void booked(int id, Patient patient, Physiotherapist physio, Treatment treatment, TimeSlot slot) {
+        log.append(BOOK, out -> writeBooking(out, id, patient, physio, treatment, slot));
+    }
+
+    // A batch booked together is one record, so replay books all or none;
+    // the requests take consecutive IDs from firstId
+    void booked(int firstId, List<BookingRequest> requests) {
+        log.append(BOOK_BATCH, out -> {
+            out.writeInt(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                BookingRequest request = requests.get(i);
+                writeBooking(out, firstId + i, request.getPatient(), request.getPhysiotherapist(),
+                    request.getTreatment(), request.getTimeSlot());
+            }
+        });
+    }
+
+    // Called before a cancelled appointment's time is released, so a booking
+    // of the freed time is always logged after the cancellation
+    void statusChanged(Appointment appointment, Appointment.Status to) {
+        log.append(STATUS, out -> {
+            out.writeInt(appointment.getId());
+            out.writeByte(to.ordinal());
+        });
+    }
+
+    // Blocks until every record written so far is on disk
+    void sync() {
+        log.sync();
+    }
+
+    // Ends the log segment a snapshot is about to cover; see BookingLog.cut
+    long cut() {
+        return log.cut();
+    }
+
+    void discardPreviousSegments() throws IOException {
+        log.discardPreviousSegments();
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    // Applies one logged mutation to a system that is not journalling yet.
+    // Changes made directly on a physiotherapist or appointment can land in a
+    // snapshot and also in the log after it, so those records are skipped
+    // when the system already reflects them.
+    static void apply(BookingSystem system, byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case ADD_PHYSIOTHERAPIST:
+                system.addPhysiotherapist(new Physiotherapist(in.readInt(), readString(in),
+                    readString(in), readString(in)));
+                break;
+            case ADD_EXPERTISE: {
+                Physiotherapist physio = physiotherapist(system, in.readInt());
+                String area = in.readUTF();
+                if (!physio.hasExpertise(area)) {
+                    physio.addExpertiseArea(area);
+                }
+                break;
+            }
+            case ADD_TREATMENT: {
+                Physiotherapist physio = physiotherapist(system, in.readInt());
+                Treatment treatment = new Treatment(in.readUTF(), in.readUTF(), in.readInt());
+                if (physio.getTreatment(treatment) == null) {
+                    physio.addTreatment(treatment);
+                }
+                break;
+            }
+            case ADD_TIME_SLOT: {
+                Physiotherapist physio = physiotherapist(system, in.readInt());
+                LocalDateTime start = readTime(in);
+                LocalDateTime end = readTime(in);
+                TimeSlot existing = physio.getTimeSlotAt(start);
+                if (existing == null || !existing.getEndTime().equals(end)) {
+                    physio.addTimeSlot(new TimeSlot(start, end));
+                }
+                break;
+            }
+            case ADD_PATIENT:
+                system.addPatient(new Patient(in.readInt(), readString(in), readString(in), readString(in)));
+                break;
+            case REMOVE_PATIENT:
+                system.removePatient(in.readInt());
+                break;
+            case BOOK:
+                applyBooking(system, in);
+                break;
+            case BOOK_BATCH: {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    applyBooking(system, in);
+                }
+                break;
+            }
+            case STATUS: {
+                Appointment appointment = system.getAppointmentById(in.readInt());
+                if (appointment == null) {
+                    throw new IllegalStateException("Booking log refers to an unknown appointment");
+                }
+                appointment.setStatus(Appointment.Status.values()[in.readByte()]);
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown booking log record type " + type);
+        }
+    }
+
+    private static void writeBooking(DataOutputStream out, int id, Patient patient, Physiotherapist physio,
+                                     Treatment treatment, TimeSlot slot) throws IOException {
+        out.writeInt(id);
+        out.writeInt(patient.getId());
+        out.writeInt(physio.getId());
+        out.writeUTF(treatment.getName());
+        out.writeUTF(treatment.getExpertiseArea());
+        out.writeInt(treatment.getDurationMinutes());
+        writeTime(out, slot.getStartTime());
+    }
+
+    // The treatment is matched on name, area and duration, since a physio
+    // can offer two treatments with the same name
+    private static void applyBooking(BookingSystem system, DataInputStream in) throws IOException {
+        int id = in.readInt();
+        Patient patient = system.getPatientById(in.readInt());
+        Physiotherapist physio = physiotherapist(system, in.readInt());
+        Treatment treatment = physio.getTreatment(new Treatment(in.readUTF(), in.readUTF(), in.readInt()));
+        TimeSlot slot = physio.getTimeSlotAt(readTime(in));
+        if (patient == null || treatment == null || slot == null) {
+            throw new IllegalStateException("Booking log refers to an unknown patient, treatment or slot");
+        }
+        system.restoreAppointment(id, patient, physio, treatment, slot, Appointment.Status.BOOKED);
+    }
+
+    private static Physiotherapist physiotherapist(BookingSystem system, int id) {
+        Physiotherapist physio = system.getPhysiotherapistById(id);
+        if (physio == null) {
+            throw new IllegalStateException("Booking log refers to unknown physiotherapist " + id);
+        }
+        return physio;
+    }
+
+    private static void writePerson(DataOutputStream out, Person person) throws IOException {
+        out.writeInt(person.getId());
+        writeString(out, person.getFullName());
+        writeString(out, person.getAddress());
+        writeString(out, person.getPhoneNumber());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+}
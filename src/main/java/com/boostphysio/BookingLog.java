@@ -0,0 +1,370 @@
+package com.boostphysio;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+// Append-only write-ahead log. Each record is framed as
+//   int length | int crc32 | long sequence | byte type | payload
+// where length and the checksum cover everything after the crc. Appends go
+// into an in-memory buffer; a single flusher thread writes whatever has
+// accumulated and forces it to disk in one call (group commit), so a burst
+// of bookings shares one fsync instead of paying for one each.
+//
+// At a checkpoint the log is cut: records up to the cut move to a previous
+// segment, which can be deleted once a snapshot covering them is on disk.
+class BookingLog implements Closeable {
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    interface Payload {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    interface RecordHandler {
+        void apply(long sequence, byte type, DataInputStream in) throws IOException;
+    }
+
+    // ByteArrayOutputStream that can hand its contents to a channel without copying
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(64 * 1024);
+        }
+
+        ByteBuffer contents() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    private final Path file;
+    private final Path previousSegment;
+    private FileChannel channel;
+    private final Thread flusher;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingAvailable = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private final CRC32 crc = new CRC32();
+    private Buffer pending = new Buffer();
+    private Buffer writing = new Buffer();
+    private long lastSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+    // A requested cut: bytes of the pending buffer before cutOffset belong to
+    // the previous segment
+    private int cutOffset = -1;
+    private long cutSequence;
+    private long lastCutSequence;
+
+    private BookingLog(Path file, FileChannel channel, long lastSequence) {
+        this.file = file;
+        this.previousSegment = previousSegment(file);
+        this.channel = channel;
+        this.lastSequence = lastSequence;
+        this.durableSequence = lastSequence;
+        this.flusher = new Thread(this::flushLoop, "booking-log-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    // Opens (or creates) the log, passing every intact record after
+    // afterSequence to the handler in order, the previous segment's first. A
+    // torn record left by a crash ends the replay of its segment and is cut
+    // off, so new records append after the last good one.
+    static BookingLog open(Path file, long afterSequence, RecordHandler handler) throws IOException {
+        long[] lastSequence = { afterSequence };
+        RecordHandler after = (sequence, type, in) -> {
+            if (sequence > lastSequence[0]) {
+                lastSequence[0] = sequence;
+                handler.apply(sequence, type, in);
+            }
+        };
+        Path previous = previousSegment(file);
+        if (Files.exists(previous)) {
+            try (FileChannel channel = FileChannel.open(previous, StandardOpenOption.READ)) {
+                read(channel, after);
+            }
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long validLength = read(channel, after);
+            channel.truncate(validLength);
+            channel.position(validLength);
+            return new BookingLog(file, channel, lastSequence[0]);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static Path previousSegment(Path file) {
+        return file.resolveSibling(file.getFileName() + ".prev");
+    }
+
+    // Returns the length of the intact prefix of the log
+    private static long read(FileChannel channel, RecordHandler handler) throws IOException {
+        channel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+        CRC32 check = new CRC32();
+        long offset = 0;
+        while (true) {
+            int length;
+            int crc;
+            byte[] body;
+            try {
+                length = in.readInt();
+                crc = in.readInt();
+                if (length < 9 || length > MAX_RECORD_SIZE) {
+                    return offset;
+                }
+                body = new byte[length];
+                in.readFully(body);
+            } catch (EOFException e) {
+                return offset;
+            }
+            check.reset();
+            check.update(body);
+            if ((int) check.getValue() != crc) {
+                return offset;
+            }
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+            long sequence = record.readLong();
+            byte type = record.readByte();
+            handler.apply(sequence, type, record);
+            offset += 8 + length;
+        }
+    }
+
+    // Queues a record and returns its sequence number; it is durable once
+    // awaitDurable(sequence) returns
+    long append(byte type, Payload payload) {
+        byte[] body;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(0); // sequence, filled in below
+            out.writeByte(type);
+            payload.writeTo(out);
+            body = bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Booking log is closed");
+            }
+            checkFailure();
+            long sequence = ++lastSequence;
+            ByteBuffer.wrap(body).putLong(0, sequence);
+            crc.reset();
+            crc.update(body);
+            ByteBuffer header = ByteBuffer.allocate(8).putInt(body.length).putInt((int) crc.getValue());
+            pending.write(header.array(), 0, 8);
+            pending.write(body, 0, body.length);
+            pendingAvailable.signal();
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void awaitDurable(long sequence) {
+        lock.lock();
+        try {
+            while (durableSequence < sequence) {
+                checkFailure();
+                durable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Waits until everything appended so far is on disk
+    void sync() {
+        long sequence;
+        lock.lock();
+        try {
+            sequence = lastSequence;
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(sequence);
+    }
+
+    // Ends the current segment after the last record appended so far and
+    // returns that record's sequence; blocks until the segment is on disk.
+    // Later records go to a fresh segment.
+    long cut() {
+        long sequence;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Booking log is closed");
+            }
+            checkFailure();
+            sequence = lastSequence;
+            cutOffset = pending.size();
+            cutSequence = sequence;
+            pendingAvailable.signal();
+            while (lastCutSequence < sequence || cutOffset >= 0) {
+                checkFailure();
+                durable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return sequence;
+    }
+
+    // Drops the segments ended by earlier cuts; only safe once a snapshot
+    // covering them has been written
+    void discardPreviousSegments() throws IOException {
+        Files.deleteIfExists(previousSegment);
+    }
+
+    long lastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pendingAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            long upTo;
+            int cutAt;
+            long cutAtSequence;
+            lock.lock();
+            try {
+                while (pending.size() == 0 && cutOffset < 0 && !closed) {
+                    pendingAvailable.awaitUninterruptibly();
+                }
+                if (pending.size() == 0 && cutOffset < 0) {
+                    return; // closed and drained
+                }
+                Buffer full = pending;
+                pending = writing;
+                writing = full;
+                upTo = lastSequence;
+                cutAt = cutOffset;
+                cutAtSequence = cutSequence;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                ByteBuffer contents = writing.contents();
+                if (cutAt >= 0) {
+                    contents.limit(cutAt);
+                    write(contents);
+                    channel.force(false);
+                    startNewSegment();
+                    contents.limit(writing.size());
+                }
+                write(contents);
+                channel.force(false);
+                writing.reset();
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    durable.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                durableSequence = upTo;
+                if (cutAt >= 0) {
+                    lastCutSequence = cutAtSequence;
+                    cutOffset = -1;
+                }
+                durable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void write(ByteBuffer contents) throws IOException {
+        while (contents.hasRemaining()) {
+            channel.write(contents);
+        }
+    }
+
+    // Moves the current segment behind any earlier one that has not been
+    // discarded yet, then starts an empty segment
+    private void startNewSegment() throws IOException {
+        channel.close();
+        if (Files.exists(previousSegment)) {
+            try (FileChannel previous = FileChannel.open(previousSegment, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+                 FileChannel current = FileChannel.open(file, StandardOpenOption.READ)) {
+                long position = 0;
+                long size = current.size();
+                while (position < size) {
+                    position += current.transferTo(position, size - position, previous);
+                }
+                previous.force(false);
+            }
+            Files.delete(file);
+        } else {
+            Files.move(file, previousSegment, StandardCopyOption.ATOMIC_MOVE);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Booking log write failed", failure);
+        }
+    }
+}
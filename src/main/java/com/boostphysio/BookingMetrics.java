@@ -0,0 +1,125 @@
+package com.boostphysio;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Latency histograms and failure counts for the BookingSystem operations and
+// the end-of-term report. Callers wrap an operation's work in time():
+//
+//     return metrics.time(Operation.BOOK, () -> { ... });
+//
+// which records its latency, and counts it as failed if it throws.
+// Recording never locks, so it is cheap enough to leave on in production.
+public class BookingMetrics implements BookingMetricsMXBean {
+    public static final String OBJECT_NAME = "com.boostphysio:type=BookingMetrics";
+
+    public enum Operation {
+        ADD_PHYSIOTHERAPIST, ADD_PATIENT, BULK_ADD, REMOVE_PATIENT,
+        SEARCH_BY_EXPERTISE, SEARCH_BY_PHYSIOTHERAPIST,
+        BOOK, BOOK_BATCH, CANCEL, RESCHEDULE, RESCHEDULE_SUGGESTIONS, ATTEND,
+        WAITLIST, APPOINTMENT_QUERY, LIST_ALL, CHECKPOINT, ARCHIVE, REPORT
+    }
+
+    // The work of a timed operation; E is the checked exception it can throw,
+    // inferred as RuntimeException when there is none
+    @FunctionalInterface
+    interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    @FunctionalInterface
+    interface Run<E extends Exception> {
+        void run() throws E;
+    }
+
+    private final Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+
+    public BookingMetrics() {
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new LatencyHistogram());
+        }
+    }
+
+    <T, E extends Exception> T time(Operation operation, Call<T, E> work) throws E {
+        long started = System.nanoTime();
+        try {
+            return work.call();
+        } catch (Exception e) {
+            failed(operation);
+            throw e;
+        } finally {
+            record(operation, started);
+        }
+    }
+
+    <E extends Exception> void time(Operation operation, Run<E> work) throws E {
+        time(operation, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private void record(Operation operation, long startedNanos) {
+        histograms.get(operation).record(System.nanoTime() - startedNanos);
+    }
+
+    void failed(Operation operation) {
+        histograms.get(operation).failed();
+    }
+
+    public OperationLatency getLatency(Operation operation) {
+        LatencyHistogram histogram = histograms.get(operation);
+        return new OperationLatency(operation.name(), histogram.getCount(), histogram.getFailures(),
+            histogram.getMeanNanos() / 1000.0, histogram.getPercentileNanos(50) / 1000.0,
+            histogram.getPercentileNanos(99) / 1000.0, histogram.getPercentileNanos(99.9) / 1000.0,
+            histogram.getMaxNanos() / 1000.0);
+    }
+
+    @Override
+    public List<OperationLatency> getLatencies() {
+        List<OperationLatency> latencies = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            if (histograms.get(operation).getCount() > 0) {
+                latencies.add(getLatency(operation));
+            }
+        }
+        return latencies;
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    // Registers with the platform MBean server under OBJECT_NAME, replacing
+    // an earlier registration
+    public void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
+
+    // The latencies as a table, for the admin menu
+    public String format() {
+        StringBuilder table = new StringBuilder(String.format(Locale.ROOT,
+            "%-26s %9s %7s %10s %10s %10s %10s %10s%n",
+            "Operation", "Count", "Failed", "mean us", "p50 us", "p99 us", "p99.9 us", "max us"));
+        for (OperationLatency latency : getLatencies()) {
+            table.append(latency).append(System.lineSeparator());
+        }
+        return table.toString();
+    }
+}
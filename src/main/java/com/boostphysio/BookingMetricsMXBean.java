@@ -0,0 +1,12 @@
+package com.boostphysio;
+
+import java.util.List;
+
+// JMX view of BookingMetrics, registered by BoostPhysioApp as
+// com.boostphysio:type=BookingMetrics
+public interface BookingMetricsMXBean {
+    // One entry per operation that has run at least once
+    List<OperationLatency> getLatencies();
+
+    void reset();
+}
@@ -0,0 +1,27 @@
+package com.boostphysio;
+
+// One booking in a BookingSystem.bookAppointments batch
+public final class BookingRequest {
+    private final Patient patient;
+    private final Physiotherapist physiotherapist;
+    private final Treatment treatment;
+    private final TimeSlot timeSlot;
+    
+    public BookingRequest(Patient patient, Physiotherapist physiotherapist, Treatment treatment, TimeSlot timeSlot) {
+        this.patient = patient;
+        this.physiotherapist = physiotherapist;
+        this.treatment = treatment;
+        this.timeSlot = timeSlot;
+    }
+    
+    // A request for a slot found by one of the BookingSystem searches
+    public BookingRequest(Patient patient, SlotOffer offer) {
+        this(patient, offer.getPhysiotherapist(), offer.getTreatment(), offer.getTimeSlot());
+    }
+    
+    // Getters
+    public Patient getPatient() { return patient; }
+    public Physiotherapist getPhysiotherapist() { return physiotherapist; }
+    public Treatment getTreatment() { return treatment; }
+    public TimeSlot getTimeSlot() { return timeSlot; }
+}
@@ -0,0 +1,442 @@
+package com.boostphysio;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Compact binary image of a whole BookingSystem, so startup loads one file
+// instead of replaying the log from the beginning. Layout:
+//   header: int magic | int version | long log sequence | int next appointment ID
+//           | long offset of the string table
+//   physiotherapists with their expertise, treatments and timetable, each
+//   prefixed with its length in bytes
+//   patients, then patients only referenced by appointments (removed since)
+//   appointments of live weeks in ID order
+//   sealed weeks, whose appointments are in the archive: each week's Monday
+//   and SealedWeek summary, so startup does not read the week itself
+//   string table
+// Every distinct string is stored once and referred to by its index. The file
+// is written to a temporary name and moved into place, and loaded through a
+// read-only memory mapping; physiotherapists, which hold nearly all the data
+// in their timetables, are decoded in parallel straight from the mapping.
+final class BookingSnapshot {
+    private static final int MAGIC = 0x42505331; // "BPS1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 8;
+    private static final int NO_STRING = -1;
+
+    private BookingSnapshot() {
+    }
+
+    // Assigns each distinct string an index in first-seen order
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        int indexOf(String value) {
+            if (value == null) {
+                return NO_STRING;
+            }
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = strings.size();
+                indexes.put(value, index);
+                strings.add(value);
+            }
+            return index;
+        }
+    }
+
+    // The caller must stop BookingSystem changes while this runs, so the image
+    // matches the log up to sequence
+    static void write(BookingSystem system, long sequence, int nextAppointmentId, Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            out.write(new byte[HEADER_SIZE]); // filled in once the string table is placed
+            StringTable strings = new StringTable();
+
+            List<Physiotherapist> physios = system.getAllPhysiotherapists();
+            out.writeInt(physios.size());
+            ByteArrayOutputStream section = new ByteArrayOutputStream(64 * 1024);
+            DataOutputStream sectionOut = new DataOutputStream(section);
+            for (Physiotherapist physio : physios) {
+                section.reset();
+                writePhysiotherapist(sectionOut, strings, physio);
+                out.writeInt(section.size());
+                section.writeTo(out);
+            }
+
+            List<Appointment> appointments = system.getLiveAppointments();
+            appointments.sort(Comparator.comparingInt(Appointment::getId));
+            Map<LocalDate, SealedWeek> archivedWeeks = system.getArchivedWeeks();
+
+            List<Patient> patients = system.getAllPatients();
+            Map<Patient, Integer> patientIndexes = new IdentityHashMap<>();
+            for (Patient patient : patients) {
+                patientIndexes.put(patient, patientIndexes.size());
+            }
+            List<Patient> removed = new ArrayList<>();
+            for (Appointment appointment : appointments) {
+                addRemoved(appointment.getPatient(), patientIndexes, removed);
+            }
+            for (SealedWeek sealed : archivedWeeks.values()) {
+                for (SealedWeek.Share<Patient> share : sealed.getPatients()) {
+                    addRemoved(share.getPerson(), patientIndexes, removed);
+                }
+            }
+            out.writeInt(patients.size());
+            for (Patient patient : patients) {
+                writePerson(out, strings, patient);
+            }
+            out.writeInt(removed.size());
+            for (Patient patient : removed) {
+                writePerson(out, strings, patient);
+            }
+
+            out.writeInt(appointments.size());
+            for (Appointment appointment : appointments) {
+                writeAppointment(out, appointment, patientIndexes.get(appointment.getPatient()));
+            }
+
+            out.writeInt(archivedWeeks.size());
+            for (Map.Entry<LocalDate, SealedWeek> week : archivedWeeks.entrySet()) {
+                out.writeLong(week.getKey().toEpochDay());
+                writeSealedWeek(out, week.getValue(), patientIndexes);
+            }
+
+            out.flush();
+            long stringTableOffset = channel.position();
+            out.writeInt(strings.strings.size());
+            for (String value : strings.strings) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putLong(sequence)
+                .putInt(nextAppointmentId)
+                .putLong(stringTableOffset);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // A patient no longer registered, whose old appointments still show them
+    private static void addRemoved(Patient patient, Map<Patient, Integer> patientIndexes, List<Patient> removed) {
+        if (!patientIndexes.containsKey(patient)) {
+            patientIndexes.put(patient, patientIndexes.size());
+            removed.add(patient);
+        }
+    }
+
+    private static void writePhysiotherapist(DataOutputStream out, StringTable strings, Physiotherapist physio)
+            throws IOException {
+        writePerson(out, strings, physio);
+
+        List<String> areas = physio.getExpertiseAreas();
+        out.writeInt(areas.size());
+        for (String area : areas) {
+            out.writeInt(strings.indexOf(area));
+        }
+
+        List<Treatment> treatments = physio.getTreatments();
+        out.writeInt(treatments.size());
+        for (Treatment treatment : treatments) {
+            writeTreatment(out, strings, treatment);
+        }
+
+        List<List<TimeSlot>> days = new ArrayList<>(physio.getTimetable().values());
+        out.writeInt(days.size());
+        for (List<TimeSlot> slots : days) {
+            out.writeInt(slots.size());
+            for (TimeSlot slot : slots) {
+                writeSlot(out, slot);
+            }
+        }
+    }
+
+    private static void writeAppointment(DataOutputStream out, Appointment appointment, int patientIndex)
+            throws IOException {
+        out.writeInt(appointment.getId());
+        out.writeInt(patientIndex);
+        out.writeInt(appointment.getPhysiotherapist().getId());
+        // Matched on name, area and duration, so treatments that share a name stay apart
+        int treatmentIndex = appointment.getPhysiotherapist().getTreatments().indexOf(appointment.getTreatment());
+        if (treatmentIndex < 0) {
+            throw new IllegalStateException("Appointment " + appointment.getId()
+                + " has a treatment its physiotherapist does not offer");
+        }
+        out.writeInt(treatmentIndex);
+        writeSlot(out, appointment.getTimeSlot());
+        out.writeByte(appointment.getStatus().ordinal());
+    }
+
+    private static void writeSealedWeek(DataOutputStream out, SealedWeek sealed, Map<Patient, Integer> patientIndexes)
+            throws IOException {
+        writeIds(out, sealed.getIds());
+        out.writeInt(sealed.getPatients().size());
+        for (SealedWeek.Share<Patient> share : sealed.getPatients()) {
+            out.writeInt(patientIndexes.get(share.getPerson()));
+            writeShare(out, share);
+        }
+        out.writeInt(sealed.getPhysiotherapists().size());
+        for (SealedWeek.Share<Physiotherapist> share : sealed.getPhysiotherapists()) {
+            out.writeInt(share.getPerson().getId());
+            writeShare(out, share);
+        }
+        out.writeInt(sealed.getReservations().size());
+        for (SealedWeek.Reservation reservation : sealed.getReservations()) {
+            out.writeInt(reservation.getPhysiotherapist().getId());
+            out.writeLong(reservation.getSlot().getStartSecond());
+            out.writeInt(reservation.getSlot().getStartNano());
+            out.writeInt(reservation.getMinutes());
+        }
+    }
+
+    private static void writeShare(DataOutputStream out, SealedWeek.Share<?> share) throws IOException {
+        writeIds(out, share.getIds());
+        for (int count : share.getCounts()) {
+            out.writeInt(count);
+        }
+    }
+
+    private static void writeIds(DataOutputStream out, int[] ids) throws IOException {
+        out.writeInt(ids.length);
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+    }
+
+    private static void writePerson(DataOutputStream out, StringTable strings, Person person) throws IOException {
+        out.writeInt(person.getId());
+        out.writeInt(strings.indexOf(person.getFullName()));
+        out.writeInt(strings.indexOf(person.getAddress()));
+        out.writeInt(strings.indexOf(person.getPhoneNumber()));
+    }
+
+    private static void writeTreatment(DataOutputStream out, StringTable strings, Treatment treatment)
+            throws IOException {
+        out.writeInt(strings.indexOf(treatment.getName()));
+        out.writeInt(strings.indexOf(treatment.getExpertiseArea()));
+        out.writeInt(treatment.getDurationMinutes());
+    }
+
+    // Straight from the slot's stored seconds and nanos, so writing a
+    // timetable does not build a LocalDateTime for every slot
+    private static void writeSlot(DataOutputStream out, TimeSlot slot) throws IOException {
+        out.writeLong(slot.getStartSecond());
+        out.writeInt(slot.getStartNano());
+        out.writeLong(slot.getEndSecond());
+        out.writeInt(slot.getEndNano());
+    }
+
+    // Loads the snapshot into an empty system and returns the log sequence it
+    // covers
+    static long load(BookingSystem system, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + size + " bytes");
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_SIZE || in.getInt() != MAGIC) {
+                throw new IOException("Not a booking snapshot: " + file);
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported booking snapshot version " + version);
+            }
+            long sequence = in.getLong();
+            int nextAppointmentId = in.getInt();
+            long stringTableOffset = in.getLong();
+            String[] strings = readStrings(in.duplicate().position((int) stringTableOffset));
+
+            int physioCount = in.getInt();
+            List<ByteBuffer> sections = new ArrayList<>(physioCount);
+            for (int i = 0; i < physioCount; i++) {
+                int length = in.getInt();
+                sections.add(in.slice(in.position(), length));
+                in.position(in.position() + length);
+            }
+            List<Physiotherapist> physios = sections.parallelStream()
+                .map(section -> readPhysiotherapist(section, strings))
+                .collect(Collectors.toList());
+            for (Physiotherapist physio : physios) {
+                system.addPhysiotherapist(physio);
+            }
+
+            int patientCount = in.getInt();
+            List<Patient> patients = new ArrayList<>(patientCount);
+            for (int i = 0; i < patientCount; i++) {
+                Patient patient = readPatient(in, strings);
+                system.addPatient(patient);
+                patients.add(patient);
+            }
+            // Resolved as the archive resolves them, so a sealed week read back
+            // later refers to the same patients as its summary
+            int removedCount = in.getInt();
+            for (int i = 0; i < removedCount; i++) {
+                patients.add(system.savedPatient(in.getInt(), string(in, strings), string(in, strings),
+                    string(in, strings)));
+            }
+
+            int appointmentCount = in.getInt();
+            for (int i = 0; i < appointmentCount; i++) {
+                readAppointment(system, in, patients);
+            }
+            int weekCount = in.getInt();
+            for (int i = 0; i < weekCount; i++) {
+                LocalDate week = LocalDate.ofEpochDay(in.getLong());
+                system.restoreArchivedWeek(week, readSealedWeek(system, in, patients));
+            }
+            system.advanceAppointmentId(nextAppointmentId);
+            return sequence;
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer in) {
+        String[] strings = new String[in.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            int length = in.getInt();
+            strings[i] = StandardCharsets.UTF_8.decode(in.slice(in.position(), length)).toString();
+            in.position(in.position() + length);
+        }
+        return strings;
+    }
+
+    private static Physiotherapist readPhysiotherapist(ByteBuffer in, String[] strings) {
+        Physiotherapist physio = new Physiotherapist(in.getInt(), string(in, strings),
+            string(in, strings), string(in, strings));
+
+        int areaCount = in.getInt();
+        for (int i = 0; i < areaCount; i++) {
+            physio.addExpertiseArea(string(in, strings));
+        }
+
+        int treatmentCount = in.getInt();
+        for (int i = 0; i < treatmentCount; i++) {
+            physio.addTreatment(readTreatment(in, strings));
+        }
+
+        int dayCount = in.getInt();
+        for (int i = 0; i < dayCount; i++) {
+            int slotCount = in.getInt();
+            List<TimeSlot> slots = new ArrayList<>(slotCount);
+            for (int j = 0; j < slotCount; j++) {
+                slots.add(new TimeSlot(in.getLong(), in.getInt(), in.getLong(), in.getInt()));
+            }
+            if (slotCount > 0) {
+                physio.restoreDay(slots.get(0).getDate(), slots);
+            }
+        }
+        return physio;
+    }
+
+    private static void readAppointment(BookingSystem system, ByteBuffer in, List<Patient> patients) {
+        int id = in.getInt();
+        Patient patient = patients.get(in.getInt());
+        Physiotherapist physio = physiotherapist(system, in.getInt());
+        Treatment treatment = physio.getTreatments().get(in.getInt());
+        TimeSlot slot = physio.getTimeSlotAt(in.getLong(), in.getInt());
+        long endSecond = in.getLong();
+        int endNano = in.getInt();
+        if (slot == null || slot.getEndSecond() != endSecond || slot.getEndNano() != endNano) {
+            throw new IllegalStateException("Snapshot refers to an unknown slot of physiotherapist "
+                + physio.getId());
+        }
+        Appointment.Status status = Appointment.Status.values()[in.get()];
+        system.restoreAppointment(id, patient, physio, treatment, slot, status);
+    }
+
+    private static SealedWeek readSealedWeek(BookingSystem system, ByteBuffer in, List<Patient> patients) {
+        int[] ids = readIds(in);
+        int patientCount = in.getInt();
+        List<SealedWeek.Share<Patient>> byPatient = new ArrayList<>(patientCount);
+        for (int i = 0; i < patientCount; i++) {
+            Patient patient = patients.get(in.getInt());
+            byPatient.add(new SealedWeek.Share<>(patient, readIds(in), readCounts(in)));
+        }
+        int physioCount = in.getInt();
+        List<SealedWeek.Share<Physiotherapist>> byPhysio = new ArrayList<>(physioCount);
+        for (int i = 0; i < physioCount; i++) {
+            Physiotherapist physio = physiotherapist(system, in.getInt());
+            byPhysio.add(new SealedWeek.Share<>(physio, readIds(in), readCounts(in)));
+        }
+        int reservationCount = in.getInt();
+        List<SealedWeek.Reservation> reservations = new ArrayList<>(reservationCount);
+        for (int i = 0; i < reservationCount; i++) {
+            Physiotherapist physio = physiotherapist(system, in.getInt());
+            TimeSlot slot = physio.getTimeSlotAt(in.getLong(), in.getInt());
+            if (slot == null) {
+                throw new IllegalStateException("Snapshot refers to an unknown slot of physiotherapist "
+                    + physio.getId());
+            }
+            reservations.add(new SealedWeek.Reservation(physio, slot, in.getInt()));
+        }
+        return new SealedWeek(ids, byPatient, byPhysio, reservations);
+    }
+
+    private static int[] readIds(ByteBuffer in) {
+        int[] ids = new int[in.getInt()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = in.getInt();
+        }
+        return ids;
+    }
+
+    private static int[] readCounts(ByteBuffer in) {
+        int[] counts = new int[Appointment.Status.values().length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = in.getInt();
+        }
+        return counts;
+    }
+
+    private static Physiotherapist physiotherapist(BookingSystem system, int id) {
+        Physiotherapist physio = system.getPhysiotherapistById(id);
+        if (physio == null) {
+            throw new IllegalStateException("Snapshot refers to unknown physiotherapist " + id);
+        }
+        return physio;
+    }
+
+    private static Patient readPatient(ByteBuffer in, String[] strings) {
+        return new Patient(in.getInt(), string(in, strings), string(in, strings), string(in, strings));
+    }
+
+    private static Treatment readTreatment(ByteBuffer in, String[] strings) {
+        return new Treatment(string(in, strings), string(in, strings), in.getInt());
+    }
+
+    private static String string(ByteBuffer in, String[] strings) {
+        int index = in.getInt();
+        return index == NO_STRING ? null : strings[index];
+    }
+}
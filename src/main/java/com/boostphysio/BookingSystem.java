@@ -1,245 +1,995 @@
 package com.boostphysio;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-public class BookingSystem {
-    private List<Physiotherapist> physiotherapists;
-    private List<Patient> patients;
-    private Map<Integer, Appointment> appointments;
-    private int nextAppointmentId;
+import com.boostphysio.BookingMetrics.Operation;
+
+// Safe for concurrent use: slots are claimed with compare-and-set, appointment
+// IDs come from an atomic counter and no operation takes a global lock.
+// A system created with open(dir) also writes every change to a write-ahead
+// log in that directory, takes periodic snapshots there, and on the next
+// start loads the latest snapshot and replays only the log written after it.
+// Appointments are kept per week of their slot; such a system can also seal
+// past weeks with archiveWeeksBefore, moving them to compressed files in the
+// data directory, and reads them back whenever a query needs them.
+// Every public operation except the constant-time lookups by ID or name
+// records its latency in getMetrics(); the lazy slot iterators do their work
+// after returning, so only their paged and list forms are timed.
+// Slots freed by cancellations and reschedules go to the waitlists first.
+public final class BookingSystem implements Closeable {
+    static final String LOG_FILE = "bookings.wal";
+    static final String SNAPSHOT_FILE = "bookings.snapshot";
+    static final String ARCHIVE_DIRECTORY = "archive";
+    public static final Duration DEFAULT_CHECKPOINT_INTERVAL = Duration.ofMinutes(5);
+    private static final Logger LOG = System.getLogger(BookingSystem.class.getName());
+    
+
+    private final List<Physiotherapist> physiotherapists;
+    private final IntHashIndex<Physiotherapist> physiotherapistsById;
+    private final NameIndex<Physiotherapist> physiotherapistsByName;
+    private final ExpertiseCatalog expertiseCatalog = new ExpertiseCatalog();
+    private final ExpertiseIndex expertiseIndex;
+    private final IntHashIndex<Patient> patients;
+    private final AppointmentStore appointments;
+    private final AppointmentIndex appointmentIndex;
+    private final Waitlist waitlist;
+    private final AtomicInteger nextAppointmentId;
+    private volatile BookingJournal journal;
+    private Path snapshotFile;
+    private Path archiveDirectory;
+    private ScheduledExecutorService checkpointer;
+    // Changes made through BookingSystem hold the read side while they update
+    // memory and the log; a checkpoint holds the write side, so the snapshot
+    // matches the log exactly at the cut. Only taken when journalling.
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final BookingMetrics metrics = new BookingMetrics();
+    // Slots freed by the calling thread's cancellation or reschedule, held
+    // back from the waitlist until that change is over
+    private final ThreadLocal<List<Appointment>> releasedInChange = new ThreadLocal<>();
     
     public BookingSystem() {
-        physiotherapists = new ArrayList<>();
-        patients = new ArrayList<>();
-        appointments = new HashMap<>();
-        nextAppointmentId = 1;
+        physiotherapists = new CopyOnWriteArrayList<>();
+        physiotherapistsById = new IntHashIndex<>();
+        physiotherapistsByName = new NameIndex<>();
+        expertiseIndex = new ExpertiseIndex(expertiseCatalog);
+        patients = new IntHashIndex<>();
+        appointments = new AppointmentStore((file, week, into) -> AppointmentArchive.read(this, file, week, into));
+        appointments.setListener(new AppointmentListener() {
+            @Override
+            public void statusChanged(Appointment appointment, Appointment.Status from, Appointment.Status to) {
+                appointmentStatusChanged(appointment, from, to);
+            }
+            
+            @Override
+            public void slotReleased(Appointment appointment) {
+                List<Appointment> deferred = releasedInChange.get();
+                if (deferred != null) {
+                    deferred.add(appointment);
+                } else {
+                    waitlist.slotReleased(appointment);
+                }
+            }
+        });
+        appointmentIndex = new AppointmentIndex();
+        waitlist = new Waitlist(this, expertiseCatalog);
+        nextAppointmentId = new AtomicInteger(1);
+    }
+    
+    // Durable system: loads the snapshot and replays the log in dataDirectory
+    // (creating it if needed) and logs every change from then on. Mutating
+    // methods return once their change is on disk.
+    public static BookingSystem open(Path dataDirectory) throws IOException {
+        return open(dataDirectory, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+    
+    // As open(dataDirectory), snapshotting every checkpointInterval; pass null
+    // to only snapshot on checkpoint() and close()
+    public static BookingSystem open(Path dataDirectory, Duration checkpointInterval) throws IOException {
+        Files.createDirectories(dataDirectory);
+        BookingSystem system = new BookingSystem();
+        system.snapshotFile = dataDirectory.resolve(SNAPSHOT_FILE);
+        system.archiveDirectory = dataDirectory.resolve(ARCHIVE_DIRECTORY);
+        long snapshotSequence = 0;
+        if (Files.exists(system.snapshotFile)) {
+            snapshotSequence = BookingSnapshot.load(system, system.snapshotFile);
+        }
+        BookingLog log = BookingLog.open(dataDirectory.resolve(LOG_FILE), snapshotSequence,
+            (sequence, type, in) -> BookingJournal.apply(system, type, in));
+        system.startJournal(new BookingJournal(log));
+        if (checkpointInterval != null && !checkpointInterval.isZero()) {
+            system.startCheckpointer(checkpointInterval);
+        }
+        return system;
+    }
+    
+    // Physiotherapists restored from the log are already recorded, so the
+    // journal only hears about their changes from now on
+    private void startJournal(BookingJournal journal) {
+        for (Physiotherapist physio : physiotherapists) {
+            physio.addListener(journal, false);
+        }
+        this.journal = journal;
+    }
+    
+    private void startCheckpointer(Duration interval) {
+        checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        checkpointer.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (IOException | RuntimeException e) {
+                // The log still has every change; the next checkpoint retries
+                LOG.log(Level.ERROR, "Booking snapshot failed", e);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+    
+    // Writes a snapshot of the whole system and drops the log it replaces.
+    // Changes through BookingSystem wait while the snapshot is written.
+    public void checkpoint() throws IOException {
+        metrics.time(Operation.CHECKPOINT, () -> {
+            BookingJournal j = journal;
+            if (j == null) {
+                throw new IllegalStateException("Only a booking system opened on a data directory can checkpoint");
+            }
+            checkpointLock.writeLock().lock();
+            try {
+                writeSnapshot(j);
+            } finally {
+                checkpointLock.writeLock().unlock();
+            }
+            j.discardPreviousSegments();
+        });
+    }
+    
+    // Seals every week that ended before the given date: its appointments can
+    // no longer change or gain bookings, are written to a compressed file per
+    // week and leave the heap, and a checkpoint records the seal. Queries and
+    // reports still see them, reading the weeks back as needed. Returns how
+    // many appointments were archived.
+    public int archiveWeeksBefore(LocalDate date) throws IOException {
+        return metrics.time(Operation.ARCHIVE, () -> {
+            BookingJournal j = journal;
+            if (j == null) {
+                throw new IllegalStateException("Only a booking system opened on a data directory can archive");
+            }
+            int archived = 0;
+            checkpointLock.writeLock().lock();
+            try {
+                for (LocalDate week : appointments.liveWeeksBefore(AppointmentStore.weekOf(date))) {
+                    archived += appointments.seal(week, AppointmentArchive.fileFor(archiveDirectory, week));
+                }
+                writeSnapshot(j);
+            } finally {
+                checkpointLock.writeLock().unlock();
+            }
+            j.discardPreviousSegments();
+            return archived;
+        });
+    }
+    
+    // Caller holds the write side of the checkpoint lock
+    private void writeSnapshot(BookingJournal j) throws IOException {
+        long sequence = j.cut();
+        BookingSnapshot.write(this, sequence, nextAppointmentId.get(), snapshotFile);
+    }
+    
+    // Takes a final snapshot, so the next start has no log to replay
+    @Override
+    public void close() throws IOException {
+        BookingJournal j = journal;
+        if (j == null) {
+            return;
+        }
+        if (checkpointer != null) {
+            checkpointer.shutdownNow();
+        }
+        try {
+            checkpoint();
+        } finally {
+            journal = null;
+            j.close();
+        }
+    }
+    
+    // Read side of the checkpoint lock around a change; returns whether it was
+    // taken
+    private boolean beginChange() {
+        if (journal == null) {
+            return false;
+        }
+        checkpointLock.readLock().lock();
+        return true;
+    }
+    
+    private void endChange(boolean locked) {
+        if (locked) {
+            checkpointLock.readLock().unlock();
+        }
+    }
+    
+    // Waits until every change logged so far is on disk; changes made
+    // directly on a physiotherapist or appointment are otherwise flushed in
+    // the background
+    void sync() {
+        BookingJournal j = journal;
+        if (j != null) {
+            j.sync();
+        }
     }
     
     // Physiotherapist management
     public void addPhysiotherapist(Physiotherapist physio) {
-        physiotherapists.add(physio);
+        metrics.time(Operation.ADD_PHYSIOTHERAPIST, () -> {
+            boolean locked = beginChange();
+            try {
+                if (physiotherapistsById.putIfAbsent(physio.getId(), physio) != null) {
+                    throw new IllegalArgumentException("Physiotherapist with ID " + physio.getId() + " already exists");
+                }
+                indexNewPhysiotherapist(physio);
+                physiotherapists.add(physio);
+            } finally {
+                endChange(locked);
+            }
+            sync();
+        });
+    }
+    
+    // Everything but the ID index and the list, for a physio just added by ID
+    private void indexNewPhysiotherapist(Physiotherapist physio) {
+        physio.shareTreatments(expertiseCatalog);
+        physiotherapistsByName.add(physio.getFullName(), physio);
+        BookingJournal j = journal;
+        if (j != null) {
+            // Logged before its expertise, treatments and slots, which the
+            // listener replays
+            j.physiotherapistAdded(physio);
+            physio.addListener(j);
+        }
+        // Indexes the physio's expertise and treatments, now and as they change
+        physio.addListener(expertiseIndex);
+    }
+    
+    // Adds a batch under one pass of the checkpoint lock and one wait for the
+    // log; returns the physiotherapists not added because their ID was taken
+    public List<Physiotherapist> addPhysiotherapists(List<Physiotherapist> physios) {
+        return metrics.time(Operation.BULK_ADD, () -> {
+            List<Physiotherapist> rejected;
+            boolean locked = beginChange();
+            try {
+                rejected = physiotherapistsById.putAllIfAbsent(physios, Physiotherapist::getId);
+                Set<Physiotherapist> skipped = Collections.newSetFromMap(new IdentityHashMap<>());
+                skipped.addAll(rejected);
+                List<Physiotherapist> added = new ArrayList<>(physios.size() - rejected.size());
+                for (Physiotherapist physio : physios) {
+                    if (!skipped.contains(physio)) {
+                        added.add(physio);
+                        indexNewPhysiotherapist(physio);
+                    }
+                }
+                physiotherapists.addAll(added);
+            } finally {
+                endChange(locked);
+            }
+            sync();
+            return rejected;
+        });
     }
     
     public Physiotherapist getPhysiotherapistById(int id) {
-        return physiotherapists.stream()
-                .filter(p -> p.getId() == id)
-                .findFirst()
-                .orElse(null);
+        return physiotherapistsById.get(id);
     }
     
+    // Case-insensitive and tolerant of stray whitespace, e.g. " jane  doe"
     public Physiotherapist getPhysiotherapistByName(String name) {
-        return physiotherapists.stream()
-                .filter(p -> p.getFullName().equalsIgnoreCase(name))
-                .findFirst()
-                .orElse(null);
+        return physiotherapistsByName.get(name);
     }
     
     public List<Physiotherapist> getPhysiotherapistsByExpertise(String expertiseArea) {
-        return physiotherapists.stream()
-                .filter(p -> p.hasExpertise(expertiseArea))
-                .collect(Collectors.toList());
+        return new ArrayList<>(expertiseIndex.physiotherapistsFor(expertiseArea));
     }
     
     // Patient management
     public void addPatient(Patient patient) {
-        if (getPatientById(patient.getId()) != null) {
-            throw new IllegalArgumentException("Patient with ID " + patient.getId() + " already exists");
-        }
-        patients.add(patient);
+        metrics.time(Operation.ADD_PATIENT, () -> {
+            boolean locked = beginChange();
+            try {
+                if (patients.putIfAbsent(patient.getId(), patient) != null) {
+                    throw new IllegalArgumentException("Patient with ID " + patient.getId() + " already exists");
+                }
+                BookingJournal j = journal;
+                if (j != null) {
+                    j.patientAdded(patient);
+                }
+            } finally {
+                endChange(locked);
+            }
+            sync();
+        });
+    }
+    
+    // Adds a batch under one pass of the checkpoint lock and one wait for the
+    // log; returns the patients not added because their ID was taken
+    public List<Patient> addPatients(List<Patient> newPatients) {
+        return metrics.time(Operation.BULK_ADD, () -> {
+            List<Patient> rejected;
+            boolean locked = beginChange();
+            try {
+                rejected = patients.putAllIfAbsent(newPatients, Patient::getId);
+                BookingJournal j = journal;
+                if (j != null) {
+                    Set<Patient> skipped = Collections.newSetFromMap(new IdentityHashMap<>());
+                    skipped.addAll(rejected);
+                    for (Patient patient : newPatients) {
+                        if (!skipped.contains(patient)) {
+                            j.patientAdded(patient);
+                        }
+                    }
+                }
+            } finally {
+                endChange(locked);
+            }
+            sync();
+            return rejected;
+        });
     }
     
     public void removePatient(int id) {
-        Patient patient = getPatientById(id);
-        if (patient != null) {
-            // First check for active appointments
-            boolean hasActiveAppointments = appointments.values().stream()
-                .anyMatch(a -> a.getPatient().getId() == id && a.getStatus() == Appointment.Status.BOOKED);
-            
-            if (hasActiveAppointments) {
-                throw new IllegalStateException("Cannot remove patient with active appointments");
+        metrics.time(Operation.REMOVE_PATIENT, () -> {
+            boolean locked = beginChange();
+            try {
+                Patient patient = getPatientById(id);
+                if (patient != null) {
+                    // First check for active appointments
+                    if (forPatient(patient).count(Appointment.Status.BOOKED) > 0) {
+                        throw new IllegalStateException("Cannot remove patient with active appointments");
+                    }
+                
+                    if (!patients.remove(id, patient)) {
+                        throw new IllegalArgumentException("Patient with ID " + id + " not found");
+                    }
+                    BookingJournal j = journal;
+                    if (j != null) {
+                        j.patientRemoved(id);
+                    }
+                } else {
+                    throw new IllegalArgumentException("Patient with ID " + id + " not found");
+                }
+            } finally {
+                endChange(locked);
             }
-            
-            patients.remove(patient);
-        } else {
-            throw new IllegalArgumentException("Patient with ID " + id + " not found");
-        }
+            sync();
+        });
     }
     
     public Patient getPatientById(int id) {
-        return patients.stream()
-                .filter(p -> p.getId() == id)
-                .findFirst()
-                .orElse(null);
+        return patients.get(id);
     }
     
     // Appointment booking methods
     
     // Method 1: Book by expertise area
+    // Lazily walks the free slots of every physio/treatment pair in this area
+    public Iterator<SlotOffer> findAvailableSlotsByExpertise(String expertiseArea) {
+        return new SlotSearch(expertiseIndex.offeringsFor(expertiseArea));
+    }
+    
+    // One page of results, e.g. offset 0 and limit 10 for "first ten"
+    public List<SlotOffer> findAvailableSlotsByExpertise(String expertiseArea, int offset, int limit) {
+        return metrics.time(Operation.SEARCH_BY_EXPERTISE,
+            () -> SlotSearch.page(findAvailableSlotsByExpertise(expertiseArea), offset, limit));
+    }
+    
+    // Free slots between two dates (inclusive); pass null for an open end,
+    // e.g. from LocalDate.now() and to null for "today onward"
+    public Iterator<SlotOffer> findAvailableSlotsByExpertise(String expertiseArea, LocalDate from, LocalDate to) {
+        return new SlotSearch(expertiseIndex.offeringsFor(expertiseArea), from, to);
+    }
+    
+    public List<SlotOffer> findAvailableSlotsByExpertise(String expertiseArea, LocalDate from, LocalDate to,
+                                                         int offset, int limit) {
+        return metrics.time(Operation.SEARCH_BY_EXPERTISE,
+            () -> SlotSearch.page(findAvailableSlotsByExpertise(expertiseArea, from, to), offset, limit));
+    }
+    
+    // Free slots in this area across every qualified physio, soonest first,
+    // starting at or after the given time
+    public Iterator<SlotOffer> findEarliestSlotsByExpertise(String expertiseArea, LocalDateTime after) {
+        return new EarliestSlotSearch(expertiseIndex.offeringsFor(expertiseArea), after);
+    }
+
+    // The next limit slots, e.g. "the soonest five Sports Therapy appointments"
+    public List<SlotOffer> findEarliestSlotsByExpertise(String expertiseArea, LocalDateTime after, int limit) {
+        return metrics.time(Operation.SEARCH_BY_EXPERTISE,
+            () -> SlotSearch.page(findEarliestSlotsByExpertise(expertiseArea, after), 0, limit));
+    }
+
+    @Deprecated
     public List<Map<String, Object>> searchAvailableSlotsByExpertise(String expertiseArea) {
-        List<Map<String, Object>> availableSlots = new ArrayList<>();
-        
-        // Find physiotherapists with the requested expertise
-        List<Physiotherapist> qualifiedPhysios = getPhysiotherapistsByExpertise(expertiseArea);
-        
-        for (Physiotherapist physio : qualifiedPhysios) {
-            // For each treatment in their expertise area
-            for (Treatment treatment : physio.getTreatments().stream()
-                                           .filter(t -> t.getExpertiseArea().equals(expertiseArea))
-                                           .collect(Collectors.toList())) {
-                
-                // Check all available slots in their timetable
-                for (Map.Entry<String, List<TimeSlot>> entry : physio.getTimetable().entrySet()) {
-                    String date = entry.getKey();
-                    
-                    for (TimeSlot slot : entry.getValue()) {
-                        if (slot.isAvailable()) {
-                            // Create result map with all relevant information
-                            Map<String, Object> slotInfo = new HashMap<>();
-                            slotInfo.put("physiotherapist", physio);
-                            slotInfo.put("treatment", treatment);
-                            slotInfo.put("timeSlot", slot);
-                            slotInfo.put("date", date);
-                            
-                            availableSlots.add(slotInfo);
-                        }
-                    }
-                }
-            }
-        }
-        
-        return availableSlots;
+        return metrics.time(Operation.SEARCH_BY_EXPERTISE,
+            () -> toSlotMaps(findAvailableSlotsByExpertise(expertiseArea)));
     }
     
     // Method 2: Book by physiotherapist name
-    public List<Map<String, Object>> searchAvailableSlotsByPhysiotherapist(String physioName) {
-        List<Map<String, Object>> availableSlots = new ArrayList<>();
-        
+    public Iterator<SlotOffer> findAvailableSlotsByPhysiotherapist(String physioName) {
+        return findAvailableSlotsByPhysiotherapist(physioName, null, null);
+    }
+    
+    public List<SlotOffer> findAvailableSlotsByPhysiotherapist(String physioName, int offset, int limit) {
+        return metrics.time(Operation.SEARCH_BY_PHYSIOTHERAPIST,
+            () -> SlotSearch.page(findAvailableSlotsByPhysiotherapist(physioName), offset, limit));
+    }
+    
+    public Iterator<SlotOffer> findAvailableSlotsByPhysiotherapist(String physioName, LocalDate from, LocalDate to) {
         Physiotherapist physio = getPhysiotherapistByName(physioName);
         if (physio == null) {
-            return availableSlots; // Empty list if physiotherapist not found
+            return Collections.emptyIterator(); // Nothing if physiotherapist not found
         }
         
         // For each treatment offered by this physiotherapist
+        List<ExpertiseIndex.Offering> offerings = new ArrayList<>();
         for (Treatment treatment : physio.getTreatments()) {
-            // Check all available slots in their timetable
-            for (Map.Entry<String, List<TimeSlot>> entry : physio.getTimetable().entrySet()) {
-                String date = entry.getKey();
-                
-                for (TimeSlot slot : entry.getValue()) {
-                    if (slot.isAvailable()) {
-                        // Create result map with all relevant information
-                        Map<String, Object> slotInfo = new HashMap<>();
-                        slotInfo.put("physiotherapist", physio);
-                        slotInfo.put("treatment", treatment);
-                        slotInfo.put("timeSlot", slot);
-                        slotInfo.put("date", date);
-                        
-                        availableSlots.add(slotInfo);
-                    }
-                }
-            }
+            offerings.add(new ExpertiseIndex.Offering(physio, treatment));
+        }
+        return new SlotSearch(offerings, from, to);
+    }
+    
+    public List<SlotOffer> findAvailableSlotsByPhysiotherapist(String physioName, LocalDate from, LocalDate to,
+                                                               int offset, int limit) {
+        return metrics.time(Operation.SEARCH_BY_PHYSIOTHERAPIST,
+            () -> SlotSearch.page(findAvailableSlotsByPhysiotherapist(physioName, from, to), offset, limit));
+    }
+    
+    // Free slots for one treatment with one physiotherapist
+    public Iterator<SlotOffer> findAvailableSlots(Physiotherapist physio, Treatment treatment) {
+        return findAvailableSlots(physio, treatment, null, null);
+    }
+    
+    public Iterator<SlotOffer> findAvailableSlots(Physiotherapist physio, Treatment treatment,
+                                                  LocalDate from, LocalDate to) {
+        return new SlotSearch(List.of(new ExpertiseIndex.Offering(physio, treatment)), from, to);
+    }
+    
+    @Deprecated
+    public List<Map<String, Object>> searchAvailableSlotsByPhysiotherapist(String physioName) {
+        return metrics.time(Operation.SEARCH_BY_PHYSIOTHERAPIST,
+            () -> toSlotMaps(findAvailableSlotsByPhysiotherapist(physioName)));
+    }
+    
+    // Old map-shaped results, kept for existing callers
+    private static List<Map<String, Object>> toSlotMaps(Iterator<SlotOffer> offers) {
+        List<Map<String, Object>> availableSlots = new ArrayList<>();
+        while (offers.hasNext()) {
+            SlotOffer offer = offers.next();
+            Map<String, Object> slotInfo = new HashMap<>();
+            slotInfo.put("physiotherapist", offer.getPhysiotherapist());
+            slotInfo.put("treatment", offer.getTreatment());
+            slotInfo.put("timeSlot", offer.getTimeSlot());
+            slotInfo.put("date", offer.getDate().toString());
+            availableSlots.add(slotInfo);
         }
-        
         return availableSlots;
     }
     
     // Book appointment using a selected slot
     public Appointment bookAppointment(Patient patient, Physiotherapist physio, 
                                        Treatment treatment, TimeSlot slot) {
-        if (!slot.isAvailable()) {
-            throw new IllegalStateException("Selected time slot is not available");
-        }
-        
-        Appointment appointment = new Appointment(nextAppointmentId++, physio, patient, treatment, slot);
-        appointments.put(appointment.getId(), appointment);
+        return metrics.time(Operation.BOOK, () -> {
+            Appointment appointment;
+            checkBookable(patient, physio, treatment, slot);
+            boolean locked = beginChange();
+            try {
+                checkWeekOpen(slot);
+                // Claim exactly the treatment's duration first, so two concurrent
+                // bookings can't both succeed and a treatment can't overrun into booked time
+                if (!slot.tryReserve(treatment.getDurationMinutes())) {
+                    throw new IllegalStateException("Selected time slot is not available");
+                }
+            
+                appointment = register(nextAppointmentId.getAndIncrement(), physio, patient, treatment, slot,
+                    Appointment.Status.BOOKED);
+            } finally {
+                endChange(locked);
+            }
+            sync();
         
-        return appointment;
+            return appointment;
+        });
+    }
+    
+    // Books every request or none: all slots are claimed in one pass, and if
+    // any is taken (including by an earlier request in the same batch) the
+    // ones already claimed are released and nothing is booked. IDs are
+    // allocated as one consecutive block, and the batch is one log record
+    // with one wait for the disk.
+    public List<Appointment> bookAppointments(List<BookingRequest> requests) {
+        return metrics.time(Operation.BOOK_BATCH, () -> {
+            List<Appointment> booked = new ArrayList<>(requests.size());
+            for (BookingRequest request : requests) {
+                checkBookable(request.getPatient(), request.getPhysiotherapist(), request.getTreatment(),
+                    request.getTimeSlot());
+            }
+            boolean locked = beginChange();
+            try {
+                for (BookingRequest request : requests) {
+                    checkWeekOpen(request.getTimeSlot());
+                }
+                for (int i = 0; i < requests.size(); i++) {
+                    BookingRequest request = requests.get(i);
+                    if (!request.getTimeSlot().tryReserve(request.getTreatment().getDurationMinutes())) {
+                        for (int j = 0; j < i; j++) {
+                            BookingRequest claimed = requests.get(j);
+                            claimed.getTimeSlot().release(claimed.getTreatment().getDurationMinutes());
+                        }
+                        throw new IllegalStateException("Time slot for booking " + (i + 1) + " of "
+                            + requests.size() + " is not available");
+                    }
+                }
+            
+                int firstId = nextAppointmentId.getAndAdd(requests.size());
+                BookingJournal j = journal;
+                if (j != null) {
+                    try {
+                        j.booked(firstId, requests);
+                    } catch (RuntimeException e) {
+                        for (BookingRequest claimed : requests) {
+                            claimed.getTimeSlot().release(claimed.getTreatment().getDurationMinutes());
+                        }
+                        throw e;
+                    }
+                }
+                for (int i = 0; i < requests.size(); i++) {
+                    BookingRequest request = requests.get(i);
+                    Appointment appointment = appointments.add(firstId + i, request.getPhysiotherapist(),
+                        request.getPatient(), request.getTreatment(), request.getTimeSlot(), Appointment.Status.BOOKED);
+                    appointmentIndex.added(appointment);
+                    booked.add(appointment);
+                }
+                for (Appointment appointment : booked) {
+                    appointments.publish(appointment);
+                }
+            } finally {
+                endChange(locked);
+            }
+            sync();
+            return booked;
+        });
+    }
+    
+    // Replay of a saved or logged appointment: same ID and status, and the
+    // counter moves past it. Appointments the system already has are skipped.
+    void restoreAppointment(int id, Patient patient, Physiotherapist physio, Treatment treatment,
+                            TimeSlot slot, Appointment.Status status) {
+        if (appointments.contains(id)) {
+            return;
+        }
+        if (status != Appointment.Status.CANCELLED && !slot.tryReserve(treatment.getDurationMinutes())) {
+            throw new IllegalStateException("Restored appointment " + id + " overlaps another booking");
+        }
+        advanceAppointmentId(id + 1);
+        register(id, physio, patient, treatment, slot, status);
+    }
+    
+    // Registers a week sealed before the snapshot from its summary: its
+    // slots are reserved and its appointments counted without reading the
+    // week, which stays on disk until something asks for it
+    void restoreArchivedWeek(LocalDate week, SealedWeek sealed) {
+        appointments.addSealed(week, AppointmentArchive.fileFor(archiveDirectory, week), sealed);
+        for (SealedWeek.Reservation reservation : sealed.getReservations()) {
+            if (!reservation.getSlot().tryReserve(reservation.getMinutes())) {
+                throw new IllegalStateException("Archived appointments of the week of " + week
+                    + " overlap another booking");
+            }
+        }
+        appointmentIndex.addSealed(appointments, sealed);
+        advanceAppointmentId(sealed.getMaxId() + 1);
+    }
+    
+    // A patient as saved with old appointments: whoever holds the ID now if
+    // their details still match, otherwise a stand-in for the removed patient,
+    // the same one every time
+    Patient savedPatient(int id, String name, String address, String phone) {
+        Patient patient = getPatientById(id);
+        if (patient != null && Objects.equals(patient.getFullName(), name)
+                && Objects.equals(patient.getAddress(), address)
+                && Objects.equals(patient.getPhoneNumber(), phone)) {
+            return patient;
+        }
+        return appointments.formerPatient(id, name, address, phone);
+    }
+    
+    // Makes sure IDs from now on start at next or later
+    void advanceAppointmentId(int next) {
+        nextAppointmentId.accumulateAndGet(next, Math::max);
     }
     
     // Appointment management
     public void cancelAppointment(int appointmentId) {
-        Appointment appointment = appointments.get(appointmentId);
+        metrics.time(Operation.CANCEL, () -> {
+            Appointment appointment = appointments.get(appointmentId);
         
-        if (appointment == null) {
-            throw new IllegalArgumentException("Appointment not found");
-        }
-        
-        if (appointment.getStatus() != Appointment.Status.BOOKED) {
-            throw new IllegalStateException("Only booked appointments can be cancelled");
-        }
+            if (appointment == null) {
+                throw new IllegalArgumentException("Appointment not found");
+            }
         
-        appointment.cancel();
+            List<Appointment> released = deferReleases();
+            try {
+                boolean locked = beginChange();
+                try {
+                    if (!appointment.transition(Appointment.Status.BOOKED, Appointment.Status.CANCELLED)) {
+                        throw new IllegalStateException("Only booked appointments can be cancelled");
+                    }
+                } finally {
+                    endChange(locked);
+                }
+                sync();
+            } finally {
+                offerReleased(released);
+            }
+        });
     }
     
     public Appointment rescheduleAppointment(int appointmentId, TimeSlot newSlot) {
-        Appointment oldAppointment = appointments.get(appointmentId);
+        return metrics.time(Operation.RESCHEDULE, () -> {
+            Appointment oldAppointment = bookedAppointment(appointmentId);
+            return reschedule(oldAppointment, oldAppointment.getPhysiotherapist(), newSlot);
+        });
+    }
+    
+    // Moves the appointment to one of the suggested slots, possibly with
+    // another physio offering the same treatment
+    public Appointment rescheduleAppointment(int appointmentId, SlotOffer offer) {
+        return metrics.time(Operation.RESCHEDULE, () -> {
+            Appointment oldAppointment = bookedAppointment(appointmentId);
+            Physiotherapist physio = offer.getPhysiotherapist();
+            if (getPhysiotherapistById(physio.getId()) != physio) {
+                throw new IllegalArgumentException("Physiotherapist is not registered");
+            }
+            if (!offer.getTreatment().equals(oldAppointment.getTreatment())) {
+                throw new IllegalArgumentException("New slot must be for the same treatment");
+            }
+            return reschedule(oldAppointment, physio, offer.getTimeSlot());
+        });
+    }
+    
+    // Up to limit free slots the appointment could move to, closest to its
+    // current time first, earlier or later but never in the past. With
+    // otherPhysios, slots of every physio offering the same treatment are
+    // ranked alongside the current physio's.
+    public List<SlotOffer> suggestRescheduleSlots(int appointmentId, int limit, boolean otherPhysios) {
+        return metrics.time(Operation.RESCHEDULE_SUGGESTIONS, () -> {
+            Appointment appointment = bookedAppointment(appointmentId);
+            Physiotherapist physio = appointment.getPhysiotherapist();
+            Treatment treatment = appointment.getTreatment();
+            List<ExpertiseIndex.Offering> offerings = new ArrayList<>();
+            offerings.add(new ExpertiseIndex.Offering(physio, treatment));
+            if (otherPhysios) {
+                for (ExpertiseIndex.Offering offering : expertiseIndex.offeringsFor(treatment.getExpertiseArea())) {
+                    if (offering.getPhysiotherapist() != physio && offering.getTreatment().equals(treatment)) {
+                        offerings.add(offering);
+                    }
+                }
+            }
+            return SlotSearch.page(new NearestSlotSearch(offerings, appointment.getTimeSlot().getStartTime(),
+                LocalDateTime.now()), 0, limit);
+        });
+    }
+    
+    private Appointment bookedAppointment(int appointmentId) {
+        Appointment appointment = appointments.get(appointmentId);
         
-        if (oldAppointment == null) {
+        if (appointment == null) {
             throw new IllegalArgumentException("Appointment not found");
         }
         
-        if (oldAppointment.getStatus() != Appointment.Status.BOOKED) {
+        if (appointment.getStatus() != Appointment.Status.BOOKED) {
             throw new IllegalStateException("Only booked appointments can be rescheduled");
         }
-        
-        if (!newSlot.isAvailable()) {
-            throw new IllegalStateException("New time slot is not available");
+        return appointment;
+    }
+    
+    private Appointment reschedule(Appointment oldAppointment, Physiotherapist physio, TimeSlot newSlot) {
+        checkInTimetable(physio, newSlot);
+        Appointment newAppointment;
+        List<Appointment> released = deferReleases();
+        try {
+            boolean locked = beginChange();
+            try {
+                if (oldAppointment.isArchived()) {
+                    throw new IllegalStateException("Archived appointments cannot be rescheduled");
+                }
+                checkWeekOpen(newSlot);
+                int duration = oldAppointment.getTreatment().getDurationMinutes();
+                if (!newSlot.tryReserve(duration)) {
+                    throw new IllegalStateException("New time slot is not available");
+                }
+                
+                // Cancel old appointment; if another thread cancelled or attended it
+                // in the meantime, hand the new slot back
+                if (!oldAppointment.transition(Appointment.Status.BOOKED, Appointment.Status.CANCELLED)) {
+                    newSlot.release(duration);
+                    throw new IllegalStateException("Only booked appointments can be rescheduled");
+                }
+                
+                // Create and add new appointment
+                newAppointment = register(
+                    nextAppointmentId.getAndIncrement(),
+                    physio,
+                    oldAppointment.getPatient(),
+                    oldAppointment.getTreatment(),
+                    newSlot,
+                    Appointment.Status.BOOKED
+                );
+            } finally {
+                endChange(locked);
+            }
+            sync();
+        } finally {
+            offerReleased(released);
         }
-        
-        // Create new appointment
-        Appointment newAppointment = new Appointment(
-            nextAppointmentId++,
-            oldAppointment.getPhysiotherapist(),
-            oldAppointment.getPatient(),
-            oldAppointment.getTreatment(),
-            newSlot
-        );
-        
-        // Cancel old appointment
-        oldAppointment.cancel();
-        
-        // Add new appointment
-        appointments.put(newAppointment.getId(), newAppointment);
-        
+    
         return newAppointment;
     }
     
     public void markAppointmentAsAttended(int appointmentId) {
-        Appointment appointment = appointments.get(appointmentId);
+        metrics.time(Operation.ATTEND, () -> {
+            Appointment appointment = appointments.get(appointmentId);
         
-        if (appointment == null) {
-            throw new IllegalArgumentException("Appointment not found");
-        }
+            if (appointment == null) {
+                throw new IllegalArgumentException("Appointment not found");
+            }
         
-        if (appointment.getStatus() != Appointment.Status.BOOKED) {
-            throw new IllegalStateException("Only booked appointments can be marked as attended");
+            boolean locked = beginChange();
+            try {
+                if (!appointment.transition(Appointment.Status.BOOKED, Appointment.Status.ATTENDED)) {
+                    throw new IllegalStateException("Only booked appointments can be marked as attended");
+                }
+            } finally {
+                endChange(locked);
+            }
+            sync();
+        });
+    }
+    
+    // Waitlists
+    
+    // Waits for a slot with any physio qualified in the area; a freed slot is
+    // booked with the treatment that was cancelled there. With autoBook the
+    // patient is booked as soon as a slot frees up, otherwise they are
+    // offered it and can accept or decline.
+    public WaitlistEntry joinWaitlist(Patient patient, String expertiseArea, int priority, boolean autoBook) {
+        return metrics.time(Operation.WAITLIST, () -> {
+            checkRegistered(patient);
+            int areaId = expertiseCatalog.find(expertiseArea);
+            if (areaId < 0) {
+                throw new IllegalArgumentException("Unknown expertise area: " + expertiseArea);
+            }
+            return waitlist.join(patient, areaId, priority, autoBook);
+        });
+    }
+    
+    // Waits for a slot with one physio for one of their treatments
+    public WaitlistEntry joinWaitlist(Patient patient, Physiotherapist physio, Treatment treatment, int priority,
+                                     boolean autoBook) {
+        return metrics.time(Operation.WAITLIST, () -> {
+            checkRegistered(patient);
+            if (getPhysiotherapistById(physio.getId()) != physio) {
+                throw new IllegalArgumentException("Physiotherapist is not registered");
+            }
+            if (!physio.getTreatments().contains(treatment)) {
+                throw new IllegalArgumentException(physio.getFullName() + " does not offer " + treatment.getName());
+            }
+            return waitlist.join(patient, physio, treatment, priority, autoBook);
+        });
+    }
+    
+    // Books the slot on offer; if it was taken meanwhile, the entry goes back
+    // to waiting in its old place and IllegalStateException is thrown
+    public Appointment acceptWaitlistOffer(int entryId) {
+        return metrics.time(Operation.WAITLIST, () -> waitlist.accept(entryId));
+    }
+    
+    // Passes the slot on to the next in line; the entry keeps waiting
+    public void declineWaitlistOffer(int entryId) {
+        metrics.time(Operation.WAITLIST, () -> waitlist.decline(entryId));
+    }
+    
+    public void leaveWaitlist(int entryId) {
+        metrics.time(Operation.WAITLIST, () -> waitlist.leave(entryId));
+    }
+    
+    // How long an offer may go unanswered before it passes to the next in line
+    public void setWaitlistOfferTimeout(Duration timeout) {
+        waitlist.setOfferTimeout(timeout);
+    }
+    
+    // Entries holding an offer, highest priority first
+    public List<WaitlistEntry> getWaitlistOffers() {
+        return metrics.time(Operation.WAITLIST, () -> waitlist.offers());
+    }
+    
+    // Until offerReleased, slots this thread's change frees are collected
+    // rather than offered, so a waitlist booking is a change of its own and not
+    // a journal write nested inside the cancellation under the checkpoint lock
+    private List<Appointment> deferReleases() {
+        List<Appointment> released = new ArrayList<>(1);
+        releasedInChange.set(released);
+        return released;
+    }
+
+    private void offerReleased(List<Appointment> released) {
+        releasedInChange.remove();
+        for (Appointment appointment : released) {
+            waitlist.slotReleased(appointment);
+        }
+    }
+
+    private void checkRegistered(Patient patient) {
+        if (getPatientById(patient.getId()) != patient) {
+            throw new IllegalArgumentException("Patient is not registered");
+        }
+    }
+
+    // Everything a booking refers to must be findable again when the journal
+    // is replayed, so it is checked before anything is claimed or logged
+    private void checkBookable(Patient patient, Physiotherapist physio, Treatment treatment, TimeSlot slot) {
+        checkRegistered(patient);
+        if (getPhysiotherapistById(physio.getId()) != physio) {
+            throw new IllegalArgumentException("Physiotherapist is not registered");
+        }
+        if (!physio.getTreatments().contains(treatment)) {
+            throw new IllegalArgumentException(physio.getFullName() + " does not offer " + treatment.getName());
+        }
+        checkInTimetable(physio, slot);
+    }
+
+    private static void checkInTimetable(Physiotherapist physio, TimeSlot slot) {
+        if (physio.getTimeSlotAt(slot.getStartTime()) != slot) {
+            throw new IllegalArgumentException("Time slot is not in " + physio.getFullName() + "'s timetable");
         }
-        
-        appointment.markAsAttended();
+    }
+    
+    // Logs the booking, then stores, indexes and publishes the appointment. If
+    // the append fails nothing has been added, and the time the caller claimed
+    // in the slot is handed back.
+    private Appointment register(int id, Physiotherapist physio, Patient patient, Treatment treatment,
+                                 TimeSlot slot, Appointment.Status status) {
+        BookingJournal j = journal;
+        if (j != null) {
+            try {
+                j.booked(id, patient, physio, treatment, slot);
+            } catch (RuntimeException e) {
+                slot.release(treatment.getDurationMinutes());
+                throw e;
+            }
+        }
+        Appointment appointment = appointments.add(id, physio, patient, treatment, slot, status);
+        appointmentIndex.added(appointment);
+        appointments.publish(appointment);
+        return appointment;
+    }
+    
+    // Sealed weeks take no more bookings; checked before the slot is claimed
+    private void checkWeekOpen(TimeSlot slot) {
+        if (appointments.isSealed(slot.getDate())) {
+            throw new IllegalStateException("Bookings for the week of " + AppointmentStore.weekOf(slot.getDate())
+                + " are closed");
+        }
+    }
+    
+    private void appointmentStatusChanged(Appointment appointment, Appointment.Status from, Appointment.Status to) {
+        appointmentIndex.statusChanged(appointment, from, to);
+        BookingJournal j = journal;
+        if (j != null) {
+            j.statusChanged(appointment, to);
+        }
+    }
+    
+    // Per-person appointment queries, answered from the secondary indexes;
+    // lists come back in ID order
+    public boolean hasActiveAppointments(int patientId) {
+        return metrics.time(Operation.APPOINTMENT_QUERY,
+            () -> forPatient(getPatientById(patientId)).count(Appointment.Status.BOOKED) > 0);
+    }
+    
+    public List<Appointment> getAppointmentsForPatient(int patientId) {
+        return metrics.time(Operation.APPOINTMENT_QUERY,
+            () -> appointments.select(forPatient(getPatientById(patientId)).ids(), null));
+    }
+    
+    public List<Appointment> getAppointmentsForPatient(int patientId, Appointment.Status status) {
+        return metrics.time(Operation.APPOINTMENT_QUERY,
+            () -> appointments.select(forPatient(getPatientById(patientId)).ids(), status));
+    }
+
+    // The registered patient's own appointments, not those of anyone who had
+    // the ID before them
+    private AppointmentIndex.Bucket forPatient(Patient patient) {
+        return appointmentIndex.forPatient(patient == null ? -1 : appointments.patientNumber(patient));
+    }
+    
+    public List<Appointment> getAppointmentsForPhysiotherapist(int physioId) {
+        return metrics.time(Operation.APPOINTMENT_QUERY,
+            () -> appointments.select(appointmentIndex.forPhysiotherapist(physioId).ids(), null));
+    }
+    
+    public List<Appointment> getAppointmentsForPhysiotherapist(int physioId, Appointment.Status status) {
+        return metrics.time(Operation.APPOINTMENT_QUERY,
+            () -> appointments.select(appointmentIndex.forPhysiotherapist(physioId).ids(), status));
+    }
+    
+    public int countAppointmentsForPhysiotherapist(int physioId, Appointment.Status status) {
+        return metrics.time(Operation.APPOINTMENT_QUERY,
+            () -> appointmentIndex.forPhysiotherapist(physioId).count(status));
+    }
+    
+    // Running per-status totals, maintained as appointments change status
+    public AppointmentCounts getAppointmentCountsForPhysiotherapist(int physioId) {
+        return metrics.time(Operation.APPOINTMENT_QUERY, () -> appointmentIndex.forPhysiotherapist(physioId).counts());
     }
     
     // Getters for lists
     public List<Physiotherapist> getAllPhysiotherapists() {
-        return new ArrayList<>(physiotherapists);
+        return metrics.time(Operation.LIST_ALL, () -> new ArrayList<>(physiotherapists));
     }
     
     public List<Patient> getAllPatients() {
-        return new ArrayList<>(patients);
+        return metrics.time(Operation.LIST_ALL, () -> patients.values());
     }
     
     public List<Appointment> getAllAppointments() {
-        return new ArrayList<>(appointments.values());
+        return metrics.time(Operation.LIST_ALL, () -> appointments.all());
+    }
+    
+    // Appointments from one day to another, inclusive; only the weeks in
+    // that range are read
+    public List<Appointment> getAppointmentsBetween(LocalDate from, LocalDate to) {
+        return metrics.time(Operation.LIST_ALL, () -> appointments.between(from, to));
+    }
+    
+    // What a checkpoint saves: appointments of weeks not yet sealed
+    List<Appointment> getLiveAppointments() {
+        return appointments.live();
+    }
+    
+    Map<LocalDate, SealedWeek> getArchivedWeeks() {
+        return appointments.sealedWeeks();
     }
     
     // Getter for a specific appointment
     public Appointment getAppointmentById(int id) {
         return appointments.get(id);
     }
+    
+    public BookingMetrics getMetrics() {
+        return metrics;
+    }
 }
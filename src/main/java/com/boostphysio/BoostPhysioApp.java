@@ -1,24 +1,66 @@
 package com.boostphysio;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Scanner;
 
+import javax.management.JMException;
+
 public class BoostPhysioApp {
     private BookingSystem bookingSystem;
     private ReportGenerator reportGenerator;
     private Scanner scanner;
 
+    private static final int PAGE_SIZE = 10;
+    // Closest slots offered when rescheduling, shown a page at a time
+    private static final int RESCHEDULE_SUGGESTIONS = 30;
+    // Set to a directory, e.g. -Dboostphysio.dataDir=data, to keep bookings
+    // between runs; without it everything lives in memory
+    private static final String DATA_DIR_PROPERTY = "boostphysio.dataDir";
+
     public BoostPhysioApp() {
-        bookingSystem = new BookingSystem();
+        bookingSystem = openBookingSystem();
         reportGenerator = new ReportGenerator(bookingSystem);
         scanner = new Scanner(System.in);
 
-        // Initialize with sample data
-        initializeSampleData();
+        // Latencies can also be watched with JConsole or any JMX client
+        try {
+            bookingSystem.getMetrics().registerMBean();
+        } catch (JMException e) {
+            System.out.println("Could not register booking metrics with JMX: " + e.getMessage());
+        }
+
+        // Initialize with sample data, unless earlier runs left some behind
+        if (bookingSystem.getAllPhysiotherapists().isEmpty()) {
+            initializeSampleData();
+        }
+    }
+
+    private static BookingSystem openBookingSystem() {
+        String dataDir = System.getProperty(DATA_DIR_PROPERTY);
+        if (dataDir == null) {
+            return new BookingSystem();
+        }
+        try {
+            return BookingSystem.open(Path.of(dataDir));
+        } catch (IOException e) {
+            System.out.println("Could not open booking data in " + dataDir + ": " + e.getMessage());
+            System.out.println("Continuing without saving changes.");
+            return new BookingSystem();
+        }
     }
 
     private void initializeSampleData() {
@@ -34,7 +76,7 @@ public class BoostPhysioApp {
         // For physio3
         Physiotherapist physio3 = new Physiotherapist(3, "Michael Johnson", "789 Pine Rd", "555-9012");
         physio3.addExpertiseArea("Acupuncture");
-        physio3.addExpertiseArea("Massage Therapy"); // Ensure no trailing spaces
+        physio3.addExpertiseArea("Massage Therapy");
 
         Physiotherapist physio4 = new Physiotherapist(4, "Sarah Lee", "111  Walnut St", "555-1212");
         physio4.addExpertiseArea("Sports Therapy");
@@ -45,7 +87,7 @@ public class BoostPhysioApp {
         physio5.addExpertiseArea("Acupuncture");
 
         // For the massage treatment
-        Treatment massage = new Treatment("Deep Tissue Massage", "Massage Therapy", 60); // Same string
+        Treatment massage = new Treatment("Deep Tissue Massage", "Massage Therapy", 60);
         Treatment acupuncture = new Treatment("Acupuncture", "Acupuncture", 45);
         Treatment assessment = new Treatment("Initial Assessment", "Physiotherapy", 60);
         Treatment osteo = new Treatment("Osteopathic Treatment", "Osteopathy", 60);
@@ -144,6 +186,7 @@ public class BoostPhysioApp {
             System.out.println("3. Book Appointment by Physiotherapist");
             System.out.println("4. Manage Appointments");
             System.out.println("5. Generate End of Term Report");
+            System.out.println("6. Admin: Operation Latencies");
             System.out.println("0. Exit");
             System.out.print("Enter your choice: ");
 
@@ -165,6 +208,9 @@ public class BoostPhysioApp {
                 case 5:
                     generateReport();
                     break;
+                case 6:
+                    showOperationLatencies();
+                    break;
                 case 0:
                     running = false;
                     System.out.println("Exiting the system. Goodbye!");
@@ -175,6 +221,11 @@ public class BoostPhysioApp {
         }
 
         scanner.close();
+        try {
+            bookingSystem.close();
+        } catch (IOException e) {
+            System.out.println("Error closing booking data: " + e.getMessage());
+        }
     }
 
     private void managePatients() {
@@ -295,40 +346,19 @@ public class BoostPhysioApp {
 
         String selectedExpertise = expertiseAreas.get(areaChoice - 1);
 
-        // Get available slots for this expertise
-        List<Map<String, Object>> availableSlots = bookingSystem.searchAvailableSlotsByExpertise(selectedExpertise);
-
-        if (availableSlots.isEmpty()) {
-            System.out.println("No available slots found for " + selectedExpertise);
-            return;
-        }
-
-        // Show results
+        // Page through available slots for this expertise, from today onward
         System.out.println("\nAvailable appointments for " + selectedExpertise + ":");
-        for (int i = 0; i < availableSlots.size(); i++) {
-            Map<String, Object> slotInfo = availableSlots.get(i);
-            Physiotherapist physio = (Physiotherapist) slotInfo.get("physiotherapist");
-            Treatment treatment = (Treatment) slotInfo.get("treatment");
-            TimeSlot slot = (TimeSlot) slotInfo.get("timeSlot");
-
-            System.out.println((i + 1) + ". " + physio.getFullName() + " - " +
-                    treatment.getName() + " - " + slot.getFormattedTimeRange());
-        }
+        SlotOffer selectedOffer = selectSlotOffer(
+                bookingSystem.findAvailableSlotsByExpertise(selectedExpertise, LocalDate.now(), null), true);
 
-        // Proceed with booking
-        System.out.print("\nSelect an appointment (enter number or 0 to cancel): ");
-        int slotChoice = getIntInput();
-
-        if (slotChoice < 1 || slotChoice > availableSlots.size()) {
+        if (selectedOffer == null) {
             System.out.println("Booking cancelled.");
             return;
         }
 
-        // Get selected slot info
-        Map<String, Object> selectedSlotInfo = availableSlots.get(slotChoice - 1);
-        Physiotherapist physio = (Physiotherapist) selectedSlotInfo.get("physiotherapist");
-        Treatment treatment = (Treatment) selectedSlotInfo.get("treatment");
-        TimeSlot slot = (TimeSlot) selectedSlotInfo.get("timeSlot");
+        Physiotherapist physio = selectedOffer.getPhysiotherapist();
+        Treatment treatment = selectedOffer.getTreatment();
+        TimeSlot slot = selectedOffer.getTimeSlot();
 
         // Select patient
         System.out.println("\nSelect patient:");
@@ -382,15 +412,6 @@ public class BoostPhysioApp {
 
         Physiotherapist selectedPhysio = physiotherapists.get(physioChoice - 1);
 
-        // Get available slots for this physiotherapist
-        List<Map<String, Object>> availableSlots = bookingSystem
-                .searchAvailableSlotsByPhysiotherapist(selectedPhysio.getFullName());
-
-        if (availableSlots.isEmpty()) {
-            System.out.println("No available slots found for " + selectedPhysio.getFullName());
-            return;
-        }
-
         // Show treatments offered by this physiotherapist
         System.out.println("\nTreatments offered by " + selectedPhysio.getFullName() + ":");
         List<Treatment> treatments = selectedPhysio.getTreatments();
@@ -410,40 +431,17 @@ public class BoostPhysioApp {
 
         Treatment selectedTreatment = treatments.get(treatmentChoice - 1);
 
-        // Filter slots by treatment
-        List<Map<String, Object>> filteredSlots = availableSlots.stream()
-                .filter(slot -> {
-                    String treatmentName = ((Treatment) slot.get("treatment")).getName();
-                    return treatmentName.equals(selectedTreatment.getName());
-                })
-                .collect(java.util.stream.Collectors.toList());
-
-        if (filteredSlots.isEmpty()) {
-            System.out.println("No available slots found for this treatment.");
-            return;
-        }
-
-        // Show available time slots
+        // Page through available time slots for this treatment
         System.out.println("\nAvailable time slots for " + selectedTreatment.getName() + ":");
+        SlotOffer selectedOffer = selectSlotOffer(
+                bookingSystem.findAvailableSlots(selectedPhysio, selectedTreatment, LocalDate.now(), null), false);
 
-        for (int i = 0; i < filteredSlots.size(); i++) {
-            Map<String, Object> slotInfo = filteredSlots.get(i);
-            TimeSlot slot = (TimeSlot) slotInfo.get("timeSlot");
-
-            System.out.println((i + 1) + ". " + slot.getFormattedTimeRange());
-        }
-
-        System.out.print("\nSelect a time slot (enter number or 0 to cancel): ");
-        int slotChoice = getIntInput();
-
-        if (slotChoice < 1 || slotChoice > filteredSlots.size()) {
+        if (selectedOffer == null) {
             System.out.println("Booking cancelled.");
             return;
         }
 
-        // Get selected slot
-        Map<String, Object> selectedSlotInfo = filteredSlots.get(slotChoice - 1);
-        TimeSlot selectedSlot = (TimeSlot) selectedSlotInfo.get("timeSlot");
+        TimeSlot selectedSlot = selectedOffer.getTimeSlot();
 
         // Select patient
         System.out.println("\nSelect patient:");
@@ -556,42 +554,25 @@ public class BoostPhysioApp {
             return;
         }
 
-        // Get the physiotherapist from the appointment
         Physiotherapist physio = appointment.getPhysiotherapist();
+        System.out.print("Include other physiotherapists offering " + appointment.getTreatment().getName()
+                + "? (1 = yes, 0 = no): ");
+        boolean otherPhysios = getIntInput() == 1;
 
-        // Show available time slots for this physiotherapist
-        System.out.println("\nAvailable time slots for " + physio.getFullName() + ":");
+        // Show the free slots closest to the current time
+        System.out.println("\nClosest available time slots" + (otherPhysios ? "" : " for " + physio.getFullName()) + ":");
+        SlotOffer selectedOffer = selectSlotOffer(
+                bookingSystem.suggestRescheduleSlots(id, RESCHEDULE_SUGGESTIONS, otherPhysios).iterator(),
+                otherPhysios);
 
-        List<Map<String, Object>> availableSlots = bookingSystem
-                .searchAvailableSlotsByPhysiotherapist(physio.getFullName());
-
-        if (availableSlots.isEmpty()) {
-            System.out.println("No available slots found for rescheduling.");
-            return;
-        }
-
-        for (int i = 0; i < availableSlots.size(); i++) {
-            Map<String, Object> slotInfo = availableSlots.get(i);
-            TimeSlot slot = (TimeSlot) slotInfo.get("timeSlot");
-
-            System.out.println((i + 1) + ". " + slot.getFormattedTimeRange());
-        }
-
-        System.out.print("\nSelect a new time slot (enter number or 0 to cancel): ");
-        int slotChoice = getIntInput();
-
-        if (slotChoice < 1 || slotChoice > availableSlots.size()) {
+        if (selectedOffer == null) {
             System.out.println("Rescheduling cancelled.");
             return;
         }
 
-        // Get selected slot
-        Map<String, Object> selectedSlotInfo = availableSlots.get(slotChoice - 1);
-        TimeSlot selectedSlot = (TimeSlot) selectedSlotInfo.get("timeSlot");
-
         // Reschedule the appointment
         try {
-            Appointment newAppointment = bookingSystem.rescheduleAppointment(id, selectedSlot);
+            Appointment newAppointment = bookingSystem.rescheduleAppointment(id, selectedOffer);
 
             System.out.println("\nAppointment rescheduled successfully!");
             System.out.println("New Appointment ID: " + newAppointment.getId());
@@ -616,8 +597,64 @@ public class BoostPhysioApp {
 
     private void generateReport() {
         System.out.println("\n----- GENERATE END OF TERM REPORT -----");
-        String report = reportGenerator.generateEndOfTermReport();
-        System.out.println("\n" + report);
+        System.out.println();
+        try {
+            // Streamed straight to the console rather than built up in memory
+            reportGenerator.writeEndOfTermReport(System.out);
+            System.out.println();
+        } catch (IOException e) {
+            System.out.println("Error writing report: " + e.getMessage());
+        }
+    }
+
+    private void showOperationLatencies() {
+        System.out.println("\n----- OPERATION LATENCIES SINCE START -----");
+        if (bookingSystem.getMetrics().getLatencies().isEmpty()) {
+            System.out.println("No operations recorded yet.");
+            return;
+        }
+        System.out.print(bookingSystem.getMetrics().format());
+        System.out.print("\nEnter 1 to reset the counters or 0 to go back: ");
+        if (getIntInput() == 1) {
+            bookingSystem.getMetrics().reset();
+            System.out.println("Counters reset.");
+        }
+    }
+
+    // Shows slot offers a page at a time, pulling only as many from the
+    // search as are displayed; returns the chosen offer or null if cancelled
+    private SlotOffer selectSlotOffer(Iterator<SlotOffer> offers, boolean showPhysio) {
+        List<SlotOffer> shown = new ArrayList<>();
+
+        while (true) {
+            List<SlotOffer> page = SlotSearch.page(offers, 0, PAGE_SIZE);
+            if (page.isEmpty() && shown.isEmpty()) {
+                System.out.println("No available slots found.");
+                return null;
+            }
+
+            for (SlotOffer offer : page) {
+                shown.add(offer);
+                System.out.println(shown.size() + ". " +
+                        (showPhysio ? offer.toString() : offer.getTimeSlot().getFormattedTimeRange()));
+            }
+
+            boolean more = offers.hasNext();
+            if (more) {
+                System.out.println((shown.size() + 1) + ". Show more slots");
+            }
+
+            System.out.print("\nSelect a slot (enter number or 0 to cancel): ");
+            int choice = getIntInput();
+
+            if (more && choice == shown.size() + 1) {
+                continue;
+            }
+            if (choice < 1 || choice > shown.size()) {
+                return null;
+            }
+            return shown.get(choice - 1);
+        }
     }
 
     private int getIntInput() {
@@ -629,8 +666,27 @@ public class BoostPhysioApp {
         }
     }
 
-    public static void main(String[] args) {
+    // Runs commands from a file, or standard input for "-", with no menus;
+    // see CommandRunner for the commands. Returns how many failed.
+    public int runBatch(String source) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        try (BufferedReader in = source.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedReader(Path.of(source), StandardCharsets.UTF_8)) {
+            return new CommandRunner(bookingSystem, out).run(in).getFailures();
+        } finally {
+            out.flush();
+            bookingSystem.close();
+        }
+    }
+
+    // java BoostPhysioApp [--batch [file|-]]
+    public static void main(String[] args) throws IOException {
         BoostPhysioApp app = new BoostPhysioApp();
+        if (args.length > 0 && args[0].equals("--batch")) {
+            int failures = app.runBatch(args.length > 1 ? args[1] : "-");
+            System.exit(failures == 0 ? 0 : 1);
+        }
         app.start();
     }
 }
@@ -0,0 +1,519 @@
+package com.boostphysio;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Loads patients, physiotherapists, treatments and timetables from files. A
+// file is either CSV with a header row, or JSON lines (one flat object per
+// line, detected by a .jsonl/.ndjson name or a leading '{'), using these
+// columns or keys:
+//   patients:          id, fullName, address, phoneNumber
+//   physiotherapists:  id, fullName, address, phoneNumber, expertiseAreas
+//                      (expertise areas separated by ';')
+//   treatments:        physioId, name, expertiseArea, durationMinutes
+//   time slots:        physioId, start, end (e.g. 2025-04-07T09:00)
+// Rows are parsed in parallel chunks and handed to BookingSystem in bulk. A
+// bad row doesn't stop the import; it is reported in the result with its
+// line number. CSV fields may be quoted but can't span lines.
+public class BulkImporter {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final BookingSystem bookingSystem;
+
+    public BulkImporter(BookingSystem bookingSystem) {
+        this.bookingSystem = bookingSystem;
+    }
+
+    public static final class RowError {
+        private final int line;
+        private final String message;
+
+        RowError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public int getLine() { return line; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + message;
+        }
+    }
+
+    public static final class ImportResult {
+        private final int rows;
+        private int imported;
+        private final List<RowError> errors = new ArrayList<>();
+
+        ImportResult(int rows) {
+            this.rows = rows;
+        }
+
+        public int getRows() { return rows; }
+        public int getImported() { return imported; }
+
+        // Ordered by line number
+        public List<RowError> getErrors() {
+            return Collections.unmodifiableList(errors);
+        }
+
+        public boolean hasErrors() {
+            return !errors.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return imported + " of " + rows + " rows imported, " + errors.size() + " errors";
+        }
+    }
+
+    // One row's fields by column name
+    private static final class Row {
+        private final Map<String, String> fields;
+
+        Row(Map<String, String> fields) {
+            this.fields = fields;
+        }
+
+        String required(String name) {
+            String value = optional(name);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing " + name);
+            }
+            return value;
+        }
+
+        String optional(String name) {
+            String value = fields.get(name);
+            return value == null || value.isBlank() ? null : value.trim();
+        }
+
+        int intValue(String name) {
+            String value = required(name);
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + name + ": " + value);
+            }
+        }
+
+        LocalDateTime time(String name) {
+            String value = required(name);
+            try {
+                return LocalDateTime.parse(value);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid " + name + ": " + value);
+            }
+        }
+    }
+
+    private interface RowParser<T> {
+        T parse(Row row);
+    }
+
+    // A parsed row, or why it could not be parsed
+    private static final class Parsed<T> {
+        final int line;
+        final T value;
+        final String error;
+
+        Parsed(int line, T value, String error) {
+            this.line = line;
+            this.value = value;
+            this.error = error;
+        }
+    }
+
+    // A row that belongs to a physiotherapist
+    private static final class ForPhysio<T> {
+        final int physioId;
+        final T value;
+
+        ForPhysio(int physioId, T value) {
+            this.physioId = physioId;
+            this.value = value;
+        }
+    }
+
+    public ImportResult importPatients(Path file) throws IOException {
+        List<Parsed<Patient>> rows = parse(file, row -> new Patient(row.intValue("id"), row.required("fullName"),
+            row.optional("address"), row.optional("phoneNumber")));
+
+        ImportResult result = new ImportResult(rows.size());
+        Map<Patient, Integer> lines = new IdentityHashMap<>();
+        List<Patient> batch = collect(rows, result, lines);
+        List<Patient> rejected = bookingSystem.addPatients(batch);
+        for (Patient patient : rejected) {
+            result.errors.add(new RowError(lines.get(patient), "Patient with ID " + patient.getId() + " already exists"));
+        }
+        result.imported = batch.size() - rejected.size();
+        return finish(result);
+    }
+
+    public ImportResult importPhysiotherapists(Path file) throws IOException {
+        List<Parsed<Physiotherapist>> rows = parse(file, row -> {
+            Physiotherapist physio = new Physiotherapist(row.intValue("id"), row.required("fullName"),
+                row.optional("address"), row.optional("phoneNumber"));
+            String areas = row.optional("expertiseAreas");
+            if (areas != null) {
+                for (String area : areas.split(";")) {
+                    if (!area.isBlank()) {
+                        physio.addExpertiseArea(area.trim());
+                    }
+                }
+            }
+            return physio;
+        });
+
+        ImportResult result = new ImportResult(rows.size());
+        Map<Physiotherapist, Integer> lines = new IdentityHashMap<>();
+        List<Physiotherapist> batch = collect(rows, result, lines);
+        List<Physiotherapist> rejected = bookingSystem.addPhysiotherapists(batch);
+        for (Physiotherapist physio : rejected) {
+            result.errors.add(new RowError(lines.get(physio),
+                "Physiotherapist with ID " + physio.getId() + " already exists"));
+        }
+        result.imported = batch.size() - rejected.size();
+        return finish(result);
+    }
+
+    // Each treatment must be in one of the physiotherapist's expertise areas,
+    // as Physiotherapist.addTreatment requires
+    public ImportResult importTreatments(Path file) throws IOException {
+        List<Parsed<ForPhysio<Treatment>>> rows = parse(file, row -> new ForPhysio<>(row.intValue("physioId"),
+            new Treatment(row.required("name"), row.required("expertiseArea"), positive(row, "durationMinutes"))));
+
+        ImportResult result = new ImportResult(rows.size());
+        Map<ForPhysio<Treatment>, Integer> lines = new IdentityHashMap<>();
+        for (Map.Entry<Integer, List<ForPhysio<Treatment>>> group : byPhysio(collect(rows, result, lines)).entrySet()) {
+            Physiotherapist physio = physiotherapist(group.getKey(), group.getValue(), lines, result);
+            if (physio == null) {
+                continue;
+            }
+            for (ForPhysio<Treatment> row : group.getValue()) {
+                try {
+                    physio.addTreatment(row.value);
+                    result.imported++;
+                } catch (IllegalArgumentException e) {
+                    result.errors.add(new RowError(lines.get(row), e.getMessage()));
+                }
+            }
+        }
+        bookingSystem.sync();
+        return finish(result);
+    }
+
+    // Each physiotherapist's slots go in as one batch, physiotherapists in parallel
+    public ImportResult importTimeSlots(Path file) throws IOException {
+        List<Parsed<ForPhysio<TimeSlot>>> rows = parse(file, row -> {
+            LocalDateTime start = row.time("start");
+            LocalDateTime end = row.time("end");
+            if (!end.isAfter(start)) {
+                throw new IllegalArgumentException("Slot must end after it starts");
+            }
+            return new ForPhysio<>(row.intValue("physioId"), new TimeSlot(start, end));
+        });
+
+        ImportResult result = new ImportResult(rows.size());
+        Map<ForPhysio<TimeSlot>, Integer> lines = new IdentityHashMap<>();
+        Map<Physiotherapist, List<ForPhysio<TimeSlot>>> batches = new LinkedHashMap<>();
+        for (Map.Entry<Integer, List<ForPhysio<TimeSlot>>> group : byPhysio(collect(rows, result, lines)).entrySet()) {
+            Physiotherapist physio = physiotherapist(group.getKey(), group.getValue(), lines, result);
+            if (physio != null) {
+                batches.put(physio, group.getValue());
+            }
+        }
+        // Rows only count once their physio's batch is in; a batch that fails
+        // has each of its rows reported
+        Map<Physiotherapist, RuntimeException> failed = new ConcurrentHashMap<>();
+        batches.entrySet().parallelStream().forEach(batch -> {
+            try {
+                batch.getKey().addTimeSlots(batch.getValue().stream().map(row -> row.value)
+                    .collect(Collectors.toList()));
+            } catch (RuntimeException e) {
+                failed.put(batch.getKey(), e);
+            }
+        });
+        for (Map.Entry<Physiotherapist, List<ForPhysio<TimeSlot>>> batch : batches.entrySet()) {
+            RuntimeException error = failed.get(batch.getKey());
+            if (error == null) {
+                result.imported += batch.getValue().size();
+            } else {
+                for (ForPhysio<TimeSlot> row : batch.getValue()) {
+                    result.errors.add(new RowError(lines.get(row), "Slot not added: " + error.getMessage()));
+                }
+            }
+        }
+        bookingSystem.sync();
+        return finish(result);
+    }
+
+    private static int positive(Row row, String name) {
+        int value = row.intValue(name);
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+
+    // Reads the whole file and parses it chunk by chunk in parallel; results
+    // keep the file's order
+    private static <T> List<Parsed<T>> parse(Path file, RowParser<T> parser) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        int first = 0;
+        while (first < lines.size() && lines.get(first).isBlank()) {
+            first++;
+        }
+        if (first == lines.size()) {
+            return List.of();
+        }
+        String name = file.getFileName().toString();
+        boolean json = name.endsWith(".jsonl") || name.endsWith(".ndjson") || lines.get(first).trim().startsWith("{");
+        List<String> header = json ? null : splitCsv(stripBom(lines.get(first)));
+        int start = json ? first : first + 1;
+        int chunks = (lines.size() - start + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        return IntStream.range(0, chunks).parallel()
+            .mapToObj(chunk -> parseChunk(lines, start + chunk * CHUNK_SIZE,
+                Math.min(lines.size(), start + (chunk + 1) * CHUNK_SIZE), header, parser))
+            .flatMap(List::stream)
+            .collect(Collectors.toList());
+    }
+
+    private static <T> List<Parsed<T>> parseChunk(List<String> lines, int from, int to, List<String> header,
+                                                  RowParser<T> parser) {
+        List<Parsed<T>> parsed = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            int lineNumber = i + 1;
+            try {
+                Map<String, String> fields = header == null ? parseJsonObject(line) : zip(header, splitCsv(line));
+                parsed.add(new Parsed<>(lineNumber, parser.parse(new Row(fields)), null));
+            } catch (IllegalArgumentException e) {
+                parsed.add(new Parsed<>(lineNumber, null, e.getMessage()));
+            }
+        }
+        return parsed;
+    }
+
+    // Records parse errors and returns the good values, remembering their lines
+    private static <T> List<T> collect(List<Parsed<T>> rows, ImportResult result, Map<T, Integer> lines) {
+        List<T> values = new ArrayList<>(rows.size());
+        for (Parsed<T> row : rows) {
+            if (row.error != null) {
+                result.errors.add(new RowError(row.line, row.error));
+            } else {
+                values.add(row.value);
+                lines.put(row.value, row.line);
+            }
+        }
+        return values;
+    }
+
+    private static <T> Map<Integer, List<ForPhysio<T>>> byPhysio(List<ForPhysio<T>> rows) {
+        Map<Integer, List<ForPhysio<T>>> groups = new LinkedHashMap<>();
+        for (ForPhysio<T> row : rows) {
+            groups.computeIfAbsent(row.physioId, id -> new ArrayList<>()).add(row);
+        }
+        return groups;
+    }
+
+    // The group's physiotherapist, or null after reporting every row in the group
+    private <T> Physiotherapist physiotherapist(int id, List<ForPhysio<T>> rows, Map<ForPhysio<T>, Integer> lines,
+                                                ImportResult result) {
+        Physiotherapist physio = bookingSystem.getPhysiotherapistById(id);
+        if (physio == null) {
+            for (ForPhysio<T> row : rows) {
+                result.errors.add(new RowError(lines.get(row), "Physiotherapist with ID " + id + " not found"));
+            }
+        }
+        return physio;
+    }
+
+    private static ImportResult finish(ImportResult result) {
+        result.errors.sort((a, b) -> Integer.compare(a.line, b.line));
+        return result;
+    }
+
+    private static Map<String, String> zip(List<String> header, List<String> values) {
+        if (values.size() > header.size()) {
+            throw new IllegalArgumentException("Expected " + header.size() + " columns but found " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            fields.put(header.get(i), values.get(i));
+        }
+        return fields;
+    }
+
+    private static String stripBom(String line) {
+        return line.startsWith("\uFEFF") ? line.substring(1) : line;
+    }
+
+    // Splits one CSV line; a quoted field may contain commas and "" for a quote
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    // Parses one flat JSON object of string, number, boolean or null values
+    static Map<String, String> parseJsonObject(String line) {
+        JsonCursor in = new JsonCursor(line);
+        Map<String, String> fields = new HashMap<>();
+        in.expect('{');
+        if (!in.consume('}')) {
+            do {
+                String key = in.string();
+                in.expect(':');
+                fields.put(key, in.value());
+            } while (in.consume(','));
+            in.expect('}');
+        }
+        in.end();
+        return fields;
+    }
+
+    private static final class JsonCursor {
+        private final String text;
+        private int pos;
+
+        JsonCursor(String text) {
+            this.text = text;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void end() {
+            skipWhitespace();
+            if (pos != text.length()) {
+                throw error("Unexpected text after object");
+            }
+        }
+
+        String value() {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == '"') {
+                return string();
+            }
+            int start = pos;
+            while (pos < text.length() && ",} \t".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.isEmpty() || literal.equals("{") || literal.startsWith("[")) {
+                throw error("Expected a string, number, boolean or null");
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        String string() {
+            skipWhitespace();
+            if (pos >= text.length() || text.charAt(pos) != '"') {
+                throw error("Expected a string");
+            }
+            pos++;
+            StringBuilder value = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 't': value.append('\t'); break;
+                    case 'r': value.append('\r'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw error("Bad unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Bad unicode escape");
+                        }
+                        pos += 4;
+                        break;
+                    default: value.append(escaped);
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (pos + 1));
+        }
+    }
+}
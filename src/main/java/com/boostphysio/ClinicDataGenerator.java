@@ -0,0 +1,194 @@
+package com.boostphysio;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Fills a BookingSystem with a synthetic clinic for scale testing: physios
+// with one to three expertise areas and their treatments, weekday timetables
+// over a number of weeks, patients, and a history of bookings that were
+// later cancelled, rescheduled or attended. Everything comes from one seeded
+// Random and is generated in a fixed order, so the same seed and sizes
+// always give the same clinic, down to the appointment IDs.
+public class ClinicDataGenerator {
+    // Expertise areas and the treatments offered in each
+    private static final String[][] CATALOG = {
+        {"Physiotherapy", "Initial Assessment:60", "Follow-up Session:30"},
+        {"Sports Therapy", "Sports Rehab:45", "Injury Screening:30"},
+        {"Osteopathy", "Osteopathic Treatment:60"},
+        {"Acupuncture", "Acupuncture:45"},
+        {"Massage Therapy", "Deep Tissue Massage:60", "Sports Massage:30"},
+        {"Rehabilitation", "Post-Surgery Rehab:60", "Gait Training:45"},
+        {"Hydrotherapy", "Hydrotherapy Session:45"},
+        {"Clinical Pilates", "Pilates Assessment:60", "Pilates Class:45"}
+    };
+    private static final String[] FIRST_NAMES = {
+        "Alex", "Sam", "Jordan", "Taylor", "Morgan", "Casey", "Jamie", "Robin", "Charlie", "Avery",
+        "Priya", "Tomasz", "Aisha", "Mei", "Liam", "Sofia", "Omar", "Freya", "Kofi", "Elena"
+    };
+    private static final String[] LAST_NAMES = {
+        "Smith", "Jones", "Patel", "Williams", "Brown", "Nowak", "Khan", "Chen", "Taylor", "Evans",
+        "Okafor", "Murphy", "Rossi", "Walsh", "Singh", "Hughes", "Garcia", "Kowalski", "Ahmed", "Clarke"
+    };
+    private static final String[] STREETS = {
+        "High St", "Station Rd", "Church Lane", "Park Ave", "Mill Rd", "Victoria St", "Green Lane", "Kings Rd"
+    };
+    // Working hours; 13:00 is lunch
+    private static final int[] HOURS = {9, 10, 11, 12, 14, 15, 16};
+
+    // Percentages of the generated history
+    private static final int BOOKED_PERCENT = 40;
+    private static final int CANCELLED_PERCENT = 8;
+    private static final int RESCHEDULED_PERCENT = 5;
+    private static final int ATTENDED_PERCENT = 90;   // of past bookings
+    private static final int DAY_OFF_PERCENT = 10;
+
+    public static final LocalDate DEFAULT_FIRST_WEEK = LocalDate.of(2030, 1, 7);
+
+    private final long seed;
+    private final int physios;
+    private final int patients;
+    private final int weeks;
+    private final LocalDate firstDay;
+
+    public ClinicDataGenerator(long seed, int physios, int patients, int weeks) {
+        this(seed, physios, patients, weeks, DEFAULT_FIRST_WEEK);
+    }
+
+    // Timetables start on the Monday of firstWeek; the first half of the
+    // weeks counts as the past, where most bookings were attended
+    public ClinicDataGenerator(long seed, int physios, int patients, int weeks, LocalDate firstWeek) {
+        if (physios < 1 || patients < 1 || weeks < 1) {
+            throw new IllegalArgumentException("Physios, patients and weeks must all be at least 1");
+        }
+        this.seed = seed;
+        this.physios = physios;
+        this.patients = patients;
+        this.weeks = weeks;
+        this.firstDay = firstWeek.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    public LocalDate getFirstDay() { return firstDay; }
+    public LocalDate getLastDay() { return firstDay.plusWeeks(weeks).minusDays(1); }
+
+    // Adds physios with IDs 1..physios and patients with IDs 1..patients to an
+    // empty system, then books and changes appointments
+    public void generate(BookingSystem system) {
+        Random random = new Random(seed);
+
+        List<Patient> newPatients = new ArrayList<>(patients);
+        for (int id = 1; id <= patients; id++) {
+            newPatients.add(new Patient(id, name(random.nextInt(FIRST_NAMES.length * LAST_NAMES.length), 0),
+                (1 + random.nextInt(200)) + " " + STREETS[random.nextInt(STREETS.length)],
+                String.format("07700 9%05d", random.nextInt(100_000))));
+        }
+        rejectDuplicates(system.addPatients(newPatients), "Patient");
+
+        List<Physiotherapist> newPhysios = new ArrayList<>(physios);
+        List<List<TimeSlot>> timetables = new ArrayList<>(physios);
+        for (int id = 1; id <= physios; id++) {
+            Physiotherapist physio = new Physiotherapist(id, physioName(id - 1),
+                (1 + random.nextInt(200)) + " " + STREETS[random.nextInt(STREETS.length)],
+                String.format("0161 4%05d", random.nextInt(100_000)));
+            int first = random.nextInt(CATALOG.length);
+            int areas = 1 + random.nextInt(3);
+            for (int i = 0; i < areas; i++) {
+                String[] entry = CATALOG[(first + i * 3) % CATALOG.length];
+                physio.addExpertiseArea(entry[0]);
+                for (int t = 1; t < entry.length; t++) {
+                    int colon = entry[t].indexOf(':');
+                    physio.addTreatment(new Treatment(entry[t].substring(0, colon), entry[0],
+                        Integer.parseInt(entry[t].substring(colon + 1))));
+                }
+            }
+            List<TimeSlot> slots = timetable(random);
+            physio.addTimeSlots(slots);
+            newPhysios.add(physio);
+            timetables.add(slots);
+        }
+        rejectDuplicates(system.addPhysiotherapists(newPhysios), "Physiotherapist");
+
+        LocalDate today = firstDay.plusDays(weeks * 7L / 2);
+        for (int p = 0; p < physios; p++) {
+            generateHistory(system, random, newPhysios.get(p), timetables.get(p), today);
+        }
+    }
+
+    // Books a share of the physio's slots as one batch, then cancels,
+    // reschedules and attends some of the bookings
+    private void generateHistory(BookingSystem system, Random random, Physiotherapist physio,
+                                 List<TimeSlot> slots, LocalDate today) {
+        List<Treatment> treatments = physio.getTreatments();
+        List<BookingRequest> requests = new ArrayList<>();
+        List<TimeSlot> free = new ArrayList<>();
+        for (TimeSlot slot : slots) {
+            if (random.nextInt(100) < BOOKED_PERCENT) {
+                requests.add(new BookingRequest(system.getPatientById(1 + random.nextInt(patients)), physio,
+                    treatments.get(random.nextInt(treatments.size())), slot));
+            } else {
+                free.add(slot);
+            }
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+
+        for (Appointment appointment : system.bookAppointments(requests)) {
+            int roll = random.nextInt(100);
+            if (roll < CANCELLED_PERCENT) {
+                system.cancelAppointment(appointment.getId());
+            } else if (roll < CANCELLED_PERCENT + RESCHEDULED_PERCENT && !free.isEmpty()) {
+                // Move to a random free slot; the old one becomes free
+                int index = random.nextInt(free.size());
+                TimeSlot target = free.get(index);
+                free.set(index, appointment.getTimeSlot());
+                appointment = system.rescheduleAppointment(appointment.getId(), target);
+            }
+            if (appointment.getStatus() == Appointment.Status.BOOKED
+                    && appointment.getTimeSlot().getDate().isBefore(today)
+                    && random.nextInt(100) < ATTENDED_PERCENT) {
+                system.markAppointmentAsAttended(appointment.getId());
+            }
+        }
+    }
+
+    // Hourly slots on weekdays, with the odd day off
+    private List<TimeSlot> timetable(Random random) {
+        List<TimeSlot> slots = new ArrayList<>(weeks * 5 * HOURS.length);
+        for (int week = 0; week < weeks; week++) {
+            for (int weekday = 0; weekday < 5; weekday++) {
+                if (random.nextInt(100) < DAY_OFF_PERCENT) {
+                    continue;
+                }
+                LocalDate day = firstDay.plusDays(week * 7L + weekday);
+                for (int hour : HOURS) {
+                    LocalDateTime start = day.atTime(hour, 0);
+                    slots.add(new TimeSlot(start, start.plusHours(1)));
+                }
+            }
+        }
+        return slots;
+    }
+
+    // Distinct for every index, so lookups by name find exactly one physio
+    private static String physioName(int index) {
+        int combinations = FIRST_NAMES.length * LAST_NAMES.length;
+        return name(index % combinations, index / combinations);
+    }
+
+    private static String name(int combination, int round) {
+        String name = FIRST_NAMES[combination % FIRST_NAMES.length] + " "
+            + LAST_NAMES[combination / FIRST_NAMES.length];
+        return round == 0 ? name : name + " " + (round + 1);
+    }
+
+    private static void rejectDuplicates(List<?> rejected, String kind) {
+        if (!rejected.isEmpty()) {
+            throw new IllegalStateException(kind + " IDs are already taken; generate into an empty system");
+        }
+    }
+}
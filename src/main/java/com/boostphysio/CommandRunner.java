@@ -0,0 +1,341 @@
+package com.boostphysio;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+// Runs line-oriented front-desk commands against a BookingSystem without any
+// prompts, e.g. a day's bookings from a file or a pipe. One command per line;
+// blank lines and lines starting with '#' are skipped, and arguments with
+// spaces go in double quotes. Times are ISO-8601 local date-times.
+//   add-patient <id> "<name>" "<address>" "<phone>"
+//   remove-patient <id>
+//   search expertise "<area>" [limit] [after]     soonest free slots
+//   search physio "<name>" [limit] [from date]
+//   book <patientId> <physioId> "<treatment>" <start>
+//   book-earliest <patientId> "<area>" [after]
+//   cancel <id> | attend <id> | reschedule <id> <start>
+//   appointments <patientId>
+//   report | latencies
+// Search results are printed as "slot <physioId> <start> "<treatment>"", so
+// they can be turned straight into book commands. A failing command prints
+// "error line N: message" and the run carries on. Everything goes to one
+// buffered writer, flushed only at the end. Consecutive book commands are
+// sent to BookingSystem as one batch, so a durable system syncs its log once
+// per batch rather than once per booking.
+public class CommandRunner {
+    private static final int BOOKING_BATCH = 256;
+    private static final int DEFAULT_LIMIT = 10;
+
+    // A parsed book command waiting for the rest of its batch
+    private static final class PendingBooking {
+        final int line;
+        final BookingRequest request;
+
+        PendingBooking(int line, BookingRequest request) {
+            this.line = line;
+            this.request = request;
+        }
+    }
+
+    public static final class Summary {
+        private final int commands;
+        private final int failures;
+        private final long elapsedNanos;
+
+        Summary(int commands, int failures, long elapsedNanos) {
+            this.commands = commands;
+            this.failures = failures;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getCommands() { return commands; }
+        public int getFailures() { return failures; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d commands, %d failed, in %d ms", commands, failures,
+                elapsedNanos / 1_000_000);
+        }
+    }
+
+    private final BookingSystem bookingSystem;
+    private final ReportGenerator reportGenerator;
+    private final Writer out;
+    private final List<PendingBooking> pending = new ArrayList<>();
+    private int commands;
+    private int failures;
+
+    public CommandRunner(BookingSystem bookingSystem, Writer out) {
+        this.bookingSystem = bookingSystem;
+        this.reportGenerator = new ReportGenerator(bookingSystem);
+        this.out = out;
+    }
+
+    // Runs every command up to the end of the input, then writes the summary
+    // and flushes the output
+    public Summary run(BufferedReader in) throws IOException {
+        long started = System.nanoTime();
+        int lineNumber = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            commands++;
+            try {
+                execute(lineNumber, tokenize(trimmed));
+            } catch (IllegalArgumentException | IllegalStateException | DateTimeParseException e) {
+                flushBookings();
+                error(lineNumber, e.getMessage());
+            }
+        }
+        flushBookings();
+        Summary summary = new Summary(commands, failures, System.nanoTime() - started);
+        out.write(summary + "\n");
+        out.flush();
+        return summary;
+    }
+
+    private void execute(int line, List<String> args) throws IOException {
+        String command = args.get(0).toLowerCase(Locale.ROOT);
+        if (command.equals("book")) {
+            expect(args, 5, 5, "book <patientId> <physioId> \"<treatment>\" <start>");
+            Physiotherapist physio = physiotherapist(args.get(2));
+            pending.add(new PendingBooking(line, new BookingRequest(patient(args.get(1)), physio,
+                treatment(physio, args.get(3)), slot(physio, args.get(4)))));
+            if (pending.size() == BOOKING_BATCH) {
+                flushBookings();
+            }
+            return;
+        }
+        // Everything else may depend on the bookings before it
+        flushBookings();
+        switch (command) {
+            case "add-patient":
+                expect(args, 5, 5, "add-patient <id> \"<name>\" \"<address>\" \"<phone>\"");
+                Patient patient = new Patient(number(args.get(1)), args.get(2), args.get(3), args.get(4));
+                bookingSystem.addPatient(patient);
+                out.write("added patient " + patient.getId() + ": " + patient.getFullName() + "\n");
+                break;
+            case "remove-patient":
+                expect(args, 2, 2, "remove-patient <id>");
+                bookingSystem.removePatient(number(args.get(1)));
+                out.write("removed patient " + args.get(1) + "\n");
+                break;
+            case "search":
+                search(args);
+                break;
+            case "book-earliest":
+                expect(args, 3, 4, "book-earliest <patientId> \"<area>\" [after]");
+                bookEarliest(patient(args.get(1)), args.get(2), args.size() > 3 ? time(args.get(3)) : null);
+                break;
+            case "cancel":
+                expect(args, 2, 2, "cancel <id>");
+                bookingSystem.cancelAppointment(number(args.get(1)));
+                out.write(bookingSystem.getAppointmentById(number(args.get(1))) + "\n");
+                break;
+            case "attend":
+                expect(args, 2, 2, "attend <id>");
+                bookingSystem.markAppointmentAsAttended(number(args.get(1)));
+                out.write(bookingSystem.getAppointmentById(number(args.get(1))) + "\n");
+                break;
+            case "reschedule":
+                expect(args, 3, 3, "reschedule <id> <start>");
+                Appointment appointment = bookingSystem.getAppointmentById(number(args.get(1)));
+                if (appointment == null) {
+                    throw new IllegalArgumentException("Appointment not found");
+                }
+                TimeSlot slot = slot(appointment.getPhysiotherapist(), args.get(2));
+                out.write(bookingSystem.rescheduleAppointment(appointment.getId(), slot) + "\n");
+                break;
+            case "appointments":
+                expect(args, 2, 2, "appointments <patientId>");
+                for (Appointment booked : bookingSystem.getAppointmentsForPatient(number(args.get(1)))) {
+                    out.write(booked + "\n");
+                }
+                break;
+            case "report":
+                expect(args, 1, 1, "report");
+                reportGenerator.writeEndOfTermReport(out);
+                out.write("\n");
+                break;
+            case "latencies":
+                expect(args, 1, 1, "latencies");
+                out.write(bookingSystem.getMetrics().format());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + args.get(0));
+        }
+    }
+
+    private void search(List<String> args) throws IOException {
+        expect(args, 3, 5, "search expertise|physio \"<name>\" [limit] [after|from]");
+        int limit = args.size() > 3 ? number(args.get(3)) : DEFAULT_LIMIT;
+        List<SlotOffer> offers;
+        switch (args.get(1).toLowerCase(Locale.ROOT)) {
+            case "expertise":
+                offers = bookingSystem.findEarliestSlotsByExpertise(args.get(2),
+                    args.size() > 4 ? time(args.get(4)) : LocalDateTime.now(), limit);
+                break;
+            case "physio":
+                offers = bookingSystem.findAvailableSlotsByPhysiotherapist(args.get(2),
+                    args.size() > 4 ? LocalDate.parse(args.get(4)) : LocalDate.now(), null, 0, limit);
+                break;
+            default:
+                throw new IllegalArgumentException("Search by expertise or physio, not " + args.get(1));
+        }
+        if (offers.isEmpty()) {
+            out.write("no slots\n");
+        }
+        for (SlotOffer offer : offers) {
+            out.write("slot " + offer.getPhysiotherapist().getId() + " " + offer.getTimeSlot().getStartTime()
+                + " \"" + offer.getTreatment().getName() + "\"\n");
+        }
+    }
+
+    // Takes the soonest slot that is still free by the time it is booked
+    private void bookEarliest(Patient patient, String area, LocalDateTime after) throws IOException {
+        Iterator<SlotOffer> offers = bookingSystem.findEarliestSlotsByExpertise(area,
+            after != null ? after : LocalDateTime.now());
+        while (offers.hasNext()) {
+            SlotOffer offer = offers.next();
+            try {
+                out.write(bookingSystem.bookAppointment(patient, offer.getPhysiotherapist(), offer.getTreatment(),
+                    offer.getTimeSlot()) + "\n");
+                return;
+            } catch (IllegalStateException e) {
+                // taken since it was found; try the next
+            }
+        }
+        throw new IllegalStateException("No free " + area + " slots");
+    }
+
+    // Books the waiting batch in one go; if any of its slots is taken, books
+    // them one by one instead so each line gets its own result
+    private void flushBookings() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<BookingRequest> requests = new ArrayList<>(pending.size());
+        for (PendingBooking booking : pending) {
+            requests.add(booking.request);
+        }
+        try {
+            for (Appointment appointment : bookingSystem.bookAppointments(requests)) {
+                out.write(appointment + "\n");
+            }
+        } catch (IllegalStateException e) {
+            for (PendingBooking booking : pending) {
+                BookingRequest request = booking.request;
+                try {
+                    out.write(bookingSystem.bookAppointment(request.getPatient(), request.getPhysiotherapist(),
+                        request.getTreatment(), request.getTimeSlot()) + "\n");
+                } catch (IllegalArgumentException | IllegalStateException failed) {
+                    error(booking.line, failed.getMessage());
+                }
+            }
+        } finally {
+            pending.clear();
+        }
+    }
+
+    private void error(int line, String message) throws IOException {
+        failures++;
+        out.write("error line " + line + ": " + message + "\n");
+    }
+
+    private Patient patient(String id) {
+        Patient patient = bookingSystem.getPatientById(number(id));
+        if (patient == null) {
+            throw new IllegalArgumentException("Patient " + id + " not found");
+        }
+        return patient;
+    }
+
+    private Physiotherapist physiotherapist(String id) {
+        Physiotherapist physio = bookingSystem.getPhysiotherapistById(number(id));
+        if (physio == null) {
+            throw new IllegalArgumentException("Physiotherapist " + id + " not found");
+        }
+        return physio;
+    }
+
+    private static Treatment treatment(Physiotherapist physio, String name) {
+        Treatment treatment = physio.getTreatmentByName(name);
+        if (treatment == null) {
+            throw new IllegalArgumentException(physio.getFullName() + " does not offer " + name);
+        }
+        return treatment;
+    }
+
+    private static TimeSlot slot(Physiotherapist physio, String start) {
+        TimeSlot slot = physio.getTimeSlotAt(time(start));
+        if (slot == null) {
+            throw new IllegalArgumentException(physio.getFullName() + " has no slot starting at " + start);
+        }
+        return slot;
+    }
+
+    private static LocalDateTime time(String value) {
+        return LocalDateTime.parse(value);
+    }
+
+    private static int number(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + value);
+        }
+    }
+
+    private static void expect(List<String> args, int min, int max, String usage) {
+        if (args.size() < min || args.size() > max) {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+    }
+
+    // Splits on whitespace, keeping double-quoted text (with \" and \\
+    // escapes) together as one argument
+    static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                StringBuilder token = new StringBuilder();
+                i++;
+                while (i < line.length() && line.charAt(i) != '"') {
+                    if (line.charAt(i) == '\\' && i + 1 < line.length()) {
+                        i++;
+                    }
+                    token.append(line.charAt(i++));
+                }
+                if (i == line.length()) {
+                    throw new IllegalArgumentException("Unterminated quote");
+                }
+                i++;
+                tokens.add(token.toString());
+            } else {
+                int start = i;
+                while (i < line.length() && !Character.isWhitespace(line.charAt(i))) {
+                    i++;
+                }
+                tokens.add(line.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+}
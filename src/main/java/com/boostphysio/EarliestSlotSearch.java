@@ -0,0 +1,103 @@
+package com.boostphysio;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+// Free slots of a list of (physiotherapist, treatment) offerings in start-time
+// order, from a given time onward. Each offering's timetable is already sorted
+// by date and each day by start time, so this is a k-way merge: one cursor per
+// offering, a heap ordered by each cursor's next free slot, and every next()
+// advances only the cursor it took from. The first N slots of k offerings
+// cost O((k + N) log k) heap work and only read days up to the Nth slot,
+// however far the timetables run into the future. As with SlotSearch, a slot
+// is free when found and may be taken before it is booked.
+class EarliestSlotSearch implements Iterator<SlotOffer> {
+    private static final class Cursor implements Comparable<Cursor> {
+        final ExpertiseIndex.Offering offering;
+        // Position in the offering list, so equal start times keep that order
+        final int order;
+        private final Iterator<Map.Entry<LocalDate, List<TimeSlot>>> days;
+        private Iterator<TimeSlot> slots = Collections.emptyIterator();
+        private LocalDate date;
+        TimeSlot head;
+
+        Cursor(ExpertiseIndex.Offering offering, int order, LocalDate from) {
+            this.offering = offering;
+            this.order = order;
+            this.days = offering.getPhysiotherapist().getTimetable(from, null).entrySet().iterator();
+        }
+
+        // Moves to the next free slot starting at or after the given second;
+        // false once the timetable runs out
+        boolean advance(long fromSecond) {
+            int duration = offering.getTreatment().getDurationMinutes();
+            while (true) {
+                while (slots.hasNext()) {
+                    TimeSlot slot = slots.next();
+                    if (slot.getStartSecond() >= fromSecond && slot.canStart(duration)) {
+                        head = slot;
+                        return true;
+                    }
+                }
+                if (!days.hasNext()) {
+                    head = null;
+                    return false;
+                }
+                Map.Entry<LocalDate, List<TimeSlot>> day = days.next();
+                date = day.getKey();
+                slots = day.getValue().iterator();
+            }
+        }
+
+        SlotOffer offer() {
+            return new SlotOffer(offering.getPhysiotherapist(), offering.getTreatment(), head, date);
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int byStart = head.compareStart(other.head);
+            return byStart != 0 ? byStart : Integer.compare(order, other.order);
+        }
+    }
+
+    private final PriorityQueue<Cursor> heap;
+    private final long fromSecond;
+
+    // Slots starting at or after the given time
+    EarliestSlotSearch(List<ExpertiseIndex.Offering> offerings, LocalDateTime after) {
+        this.fromSecond = AvailabilityCalendar.toSecond(after);
+        this.heap = new PriorityQueue<>(Math.max(1, offerings.size()));
+        LocalDate from = after.toLocalDate();
+        int order = 0;
+        for (ExpertiseIndex.Offering offering : offerings) {
+            Cursor cursor = new Cursor(offering, order++, from);
+            if (cursor.advance(fromSecond)) {
+                heap.add(cursor);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heap.isEmpty();
+    }
+
+    @Override
+    public SlotOffer next() {
+        Cursor cursor = heap.poll();
+        if (cursor == null) {
+            throw new NoSuchElementException();
+        }
+        SlotOffer offer = cursor.offer();
+        if (cursor.advance(fromSecond)) {
+            heap.add(cursor);
+        }
+        return offer;
+    }
+}
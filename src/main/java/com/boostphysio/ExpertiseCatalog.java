@@ -0,0 +1,71 @@
+package com.boostphysio;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One BookingSystem's expertise areas, interned to small integer IDs, and its
+// shared treatment instances. Areas are matched ignoring case and stray
+// whitespace, so "Massage Therapy " and "massage  therapy" are one area, shown
+// the way it was first registered (trimmed, runs of spaces collapsed). IDs are
+// handed out from 0 in registration order and never reused. An area is only
+// registered once a physio in the system has taken it on, so searches and
+// rejected input leave the catalog alone, and it goes with its system.
+final class ExpertiseCatalog {
+    private final NameIndex<Integer> ids = new NameIndex<>();
+    private volatile String[] names = new String[0];
+    private final ConcurrentHashMap<Treatment, Treatment> treatments = new ConcurrentHashMap<>();
+
+    // ID of the area, registering it if it is new
+    int register(String area) {
+        int id = find(area);
+        if (id >= 0) {
+            return id;
+        }
+        synchronized (this) {
+            id = find(area);
+            if (id < 0) {
+                String name = normalize(area);
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("Expertise area must not be blank");
+                }
+                id = names.length;
+                String[] grown = Arrays.copyOf(names, id + 1);
+                grown[id] = name;
+                // Published before the ID can be found, so name(id) always works
+                names = grown;
+                ids.add(name, id);
+            }
+            return id;
+        }
+    }
+
+    // ID of an already registered area, or -1; never registers
+    int find(String area) {
+        Integer id = area == null ? null : ids.get(area);
+        return id == null ? -1 : id;
+    }
+
+    String name(int id) {
+        return names[id];
+    }
+
+    List<String> areas() {
+        return List.of(names);
+    }
+
+    // The shared treatment with this name, area and duration; the first
+    // instance seen becomes the shared one
+    Treatment intern(Treatment treatment) {
+        Treatment shared = treatments.putIfAbsent(treatment, treatment);
+        return shared == null ? treatment : shared;
+    }
+
+    // Trimmed, with every run of whitespace turned into one space
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.trim().replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,117 @@
+package com.boostphysio;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Inverted index from expertise area to the physiotherapists that hold it and
+// the (physiotherapist, treatment) pairs offered in it. Kept up to date through
+// PhysiotherapistListener, so a search only visits physiotherapists that match.
+// Keyed by the system's ExpertiseCatalog ID, so any spelling of an area finds
+// it; areas are registered here, once a physio has taken them on.
+class ExpertiseIndex implements PhysiotherapistListener {
+
+    static final class Offering {
+        private final Physiotherapist physiotherapist;
+        private final Treatment treatment;
+
+        Offering(Physiotherapist physiotherapist, Treatment treatment) {
+            this.physiotherapist = physiotherapist;
+            this.treatment = treatment;
+        }
+
+        Physiotherapist getPhysiotherapist() { return physiotherapist; }
+        Treatment getTreatment() { return treatment; }
+
+        // The same physio with the same treatment instance
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Offering)) {
+                return false;
+            }
+            Offering other = (Offering) o;
+            return physiotherapist == other.physiotherapist && treatment == other.treatment;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(physiotherapist) * 31 + System.identityHashCode(treatment);
+        }
+    }
+
+    // Append-only and free of duplicates: a set answers "already there?" and
+    // an array that doubles when full keeps the order, so n adds cost O(n)
+    // overall. Readers take a view of the items published so far without
+    // locking or copying; an item is written before the size that covers it.
+    private static final class Members<T> {
+        private final Set<T> added = new HashSet<>(); // guarded by this
+        private volatile Object[] items = new Object[4];
+        private volatile int size;
+
+        synchronized void add(T item) {
+            if (!added.add(item)) {
+                return;
+            }
+            Object[] current = items;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+                items = current;
+            }
+            current[size] = item;
+            size = size + 1;
+        }
+
+        // Size first: any array read after it holds at least that many items
+        @SuppressWarnings("unchecked")
+        List<T> view() {
+            int n = size;
+            return (List<T>) Collections.unmodifiableList(Arrays.asList(items).subList(0, n));
+        }
+    }
+
+    private static final class Entry {
+        final Members<Physiotherapist> physiotherapists = new Members<>();
+        final Members<Offering> offerings = new Members<>();
+    }
+
+    private final ExpertiseCatalog catalog;
+    private final IntHashIndex<Entry> entries = new IntHashIndex<>();
+
+    ExpertiseIndex(ExpertiseCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public void expertiseAdded(Physiotherapist physio, String area) {
+        entry(catalog.register(area)).physiotherapists.add(physio);
+    }
+
+    @Override
+    public void treatmentAdded(Physiotherapist physio, Treatment treatment) {
+        entry(catalog.register(treatment.getExpertiseArea())).offerings.add(new Offering(physio, treatment));
+    }
+
+    List<Physiotherapist> physiotherapistsFor(String area) {
+        Entry entry = entries.get(catalog.find(area));
+        return entry == null ? List.of() : entry.physiotherapists.view();
+    }
+
+    List<Offering> offeringsFor(String area) {
+        Entry entry = entries.get(catalog.find(area));
+        return entry == null ? List.of() : entry.offerings.view();
+    }
+
+    private Entry entry(int areaId) {
+        Entry entry = entries.get(areaId);
+        if (entry == null) {
+            Entry created = new Entry();
+            entry = entries.putIfAbsent(areaId, created);
+            if (entry == null) {
+                entry = created;
+            }
+        }
+        return entry;
+    }
+}
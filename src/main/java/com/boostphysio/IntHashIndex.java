@@ -0,0 +1,308 @@
+package com.boostphysio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.ToIntFunction;
+
+// Hash index keyed by primitive int IDs, so lookups never box the key.
+// Entries live in dense arrays in insertion order and an open-addressed slot
+// table (linear probing) points into them. Writers take the write lock;
+// readers use an optimistic read and only fall back to the read lock when a
+// write raced with them, so a lookup is lock-free and allocation-free.
+class IntHashIndex<V> {
+    private static final int EMPTY = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final class Table {
+        final int[] slots;      // index into keys/values, or EMPTY
+        final int[] keys;
+        final Object[] values;  // null marks a removed entry
+        int used;               // dense entries handed out, including removed ones
+
+        Table(int capacity) {
+            slots = new int[tableSizeFor(capacity * 2)];
+            Arrays.fill(slots, EMPTY);
+            keys = new int[capacity];
+            values = new Object[capacity];
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table;
+    private volatile int size;
+
+    IntHashIndex() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    IntHashIndex(int expectedSize) {
+        table = new Table(Math.max(expectedSize, DEFAULT_CAPACITY));
+    }
+
+    public V get(int key) {
+        long stamp = lock.tryOptimisticRead();
+        V value = find(table, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = find(table, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    // Adds the value unless the key is already present; returns the existing value, or null if added
+    public V putIfAbsent(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int slot = slotOf(t, key);
+            if (slot >= 0) {
+                return valueAt(t, t.slots[slot]);
+            }
+            insert(key, value);
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // putIfAbsent for a whole batch under one write lock, growing the table at
+    // most once; returns the values that were not added because their key was
+    // already present (including earlier in the batch)
+    public List<V> putAllIfAbsent(List<V> values, ToIntFunction<V> keyOf) {
+        List<V> rejected = new ArrayList<>();
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            if (t.used + values.size() > t.keys.length) {
+                rebuild(t, Math.max(t.keys.length, tableSizeFor(size + values.size())));
+            }
+            for (V value : values) {
+                if (value == null) {
+                    throw new NullPointerException("value");
+                }
+                int key = keyOf.applyAsInt(value);
+                if (slotOf(table, key) >= 0) {
+                    rejected.add(value);
+                } else {
+                    insert(key, value);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return rejected;
+    }
+
+    // Adds or replaces the value; returns the previous value, or null
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int slot = slotOf(t, key);
+            if (slot >= 0) {
+                int pos = t.slots[slot];
+                V previous = valueAt(t, pos);
+                t.values[pos] = value;
+                return previous;
+            }
+            insert(key, value);
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public V remove(int key) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int slot = slotOf(t, key);
+            if (slot < 0) {
+                return null;
+            }
+            int pos = t.slots[slot];
+            V previous = valueAt(t, pos);
+            t.values[pos] = null;
+            deleteSlot(t, slot);
+            size = size - 1;
+            return previous;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Removes the entry only if it is still mapped to the given value
+    public boolean remove(int key, V value) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int slot = slotOf(t, key);
+            if (slot < 0 || t.values[t.slots[slot]] != value) {
+                return false;
+            }
+            t.values[t.slots[slot]] = null;
+            deleteSlot(t, slot);
+            size = size - 1;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Snapshot of the values in insertion order
+    public List<V> values() {
+        long stamp = lock.readLock();
+        try {
+            Table t = table;
+            List<V> result = new ArrayList<>(size);
+            for (int i = 0; i < t.used; i++) {
+                V value = valueAt(t, i);
+                if (value != null) {
+                    result.add(value);
+                }
+            }
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static <V> V find(Table t, int key) {
+        int[] slots = t.slots;
+        int mask = slots.length - 1;
+        int i = hash(key) & mask;
+        // Bounded so a torn optimistic read can never spin forever
+        for (int probes = 0; probes <= mask; probes++) {
+            int pos = slots[i];
+            if (pos == EMPTY) {
+                return null;
+            }
+            if (t.keys[pos] == key) {
+                return valueAt(t, pos);
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    private static int slotOf(Table t, int key) {
+        int mask = t.slots.length - 1;
+        int i = hash(key) & mask;
+        while (true) {
+            int pos = t.slots[i];
+            if (pos == EMPTY) {
+                return -1;
+            }
+            if (t.keys[pos] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void insert(int key, V value) {
+        Table t = table;
+        if (t.used == t.keys.length) {
+            // Compact away removed entries, growing only if the index is genuinely full
+            int capacity = size * 2 > t.keys.length ? t.keys.length * 2 : t.keys.length;
+            t = rebuild(t, capacity);
+        }
+        int pos = t.used;
+        t.keys[pos] = key;
+        t.values[pos] = value;
+        t.used = pos + 1;
+        placeSlot(t, key, pos);
+        size = size + 1;
+    }
+
+    private Table rebuild(Table old, int capacity) {
+        Table t = new Table(capacity);
+        for (int i = 0; i < old.used; i++) {
+            Object value = old.values[i];
+            if (value != null) {
+                int pos = t.used++;
+                t.keys[pos] = old.keys[i];
+                t.values[pos] = value;
+                placeSlot(t, old.keys[i], pos);
+            }
+        }
+        table = t;
+        return t;
+    }
+
+    private static void placeSlot(Table t, int key, int pos) {
+        int mask = t.slots.length - 1;
+        int i = hash(key) & mask;
+        while (t.slots[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        t.slots[i] = pos;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private static void deleteSlot(Table t, int slot) {
+        int[] slots = t.slots;
+        int mask = slots.length - 1;
+        int hole = slot;
+        slots[hole] = EMPTY;
+        int j = hole;
+        while (true) {
+            j = (j + 1) & mask;
+            int pos = slots[j];
+            if (pos == EMPTY) {
+                return;
+            }
+            int home = hash(t.keys[pos]) & mask;
+            boolean movable = hole <= j
+                    ? (home <= hole || home > j)
+                    : (home <= hole && home > j);
+            if (movable) {
+                slots[hole] = pos;
+                slots[j] = EMPTY;
+                hole = j;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V valueAt(Table t, int pos) {
+        return (V) t.values[pos];
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int n) {
+        int size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,381 @@
+package com.boostphysio;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Drives a BookingSystem from several threads with a weighted mix of
+// operations and reports throughput and latency percentiles per operation.
+// Each thread picks its operations and targets from its own seeded Random;
+// the interleaving between threads is up to the scheduler.
+// Run from the command line with key=value arguments, e.g.
+//   java -cp target/classes com.boostphysio.LoadDriver physios=200 patients=20000 threads=8
+public class LoadDriver {
+    public enum Operation {
+        SEARCH_BY_EXPERTISE, SEARCH_BY_PHYSIOTHERAPIST, BOOK, CANCEL, RESCHEDULE, ATTEND, REPORT
+    }
+
+    public static final String DEFAULT_MIX =
+        "search_by_expertise=30,search_by_physiotherapist=20,book=25,cancel=10,reschedule=10,attend=5";
+    private static final int PAGE_SIZE = 10;
+
+    private final BookingSystem system;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final int threads;
+    private final long seed;
+
+    // What the threads choose from, taken once when the driver is created
+    private final List<Physiotherapist> physios;
+    private final List<Patient> patients;
+    private final String[] expertiseAreas;
+    private final LocalDate firstDay;
+    private final int days;
+
+    public LoadDriver(BookingSystem system, Map<Operation, Integer> mix, int threads, long seed) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed");
+        }
+        this.system = system;
+        this.threads = threads;
+        this.seed = seed;
+
+        List<Operation> weighted = new ArrayList<>();
+        List<Integer> totals = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            if (entry.getValue() < 0) {
+                throw new IllegalArgumentException("Weight of " + entry.getKey() + " is negative");
+            }
+            if (entry.getValue() > 0) {
+                total += entry.getValue();
+                weighted.add(entry.getKey());
+                totals.add(total);
+            }
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("The operation mix is empty");
+        }
+        operations = weighted.toArray(new Operation[0]);
+        cumulativeWeights = totals.stream().mapToInt(Integer::intValue).toArray();
+
+        physios = system.getAllPhysiotherapists();
+        patients = system.getAllPatients();
+        if (physios.isEmpty() || patients.isEmpty()) {
+            throw new IllegalArgumentException("The booking system needs physiotherapists and patients");
+        }
+        Set<String> areas = new LinkedHashSet<>();
+        LocalDate first = null;
+        LocalDate last = null;
+        for (Physiotherapist physio : physios) {
+            areas.addAll(physio.getExpertiseAreas());
+            if (!physio.getTimetable().isEmpty()) {
+                LocalDate start = physio.getTimetable().firstKey();
+                LocalDate end = physio.getTimetable().lastKey();
+                first = first == null || start.isBefore(first) ? start : first;
+                last = last == null || end.isAfter(last) ? end : last;
+            }
+        }
+        expertiseAreas = areas.toArray(new String[0]);
+        firstDay = first == null ? LocalDate.now() : first;
+        days = first == null ? 1 : (int) (last.toEpochDay() - first.toEpochDay()) + 1;
+    }
+
+    // "book=25,cancel=10,..." with operation names in any case
+    public static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight but got '" + part + "'");
+            }
+            try {
+                weights.put(Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)),
+                    Integer.parseInt(pair[1].trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown operation or weight in '" + part + "'");
+            }
+        }
+        return weights;
+    }
+
+    // Latencies of one operation type, from one thread or merged
+    public static final class OperationStats {
+        private final Operation operation;
+        private long[] latencies = new long[64];   // nanoseconds; sorted once merged
+        private int count;
+        private int failed;
+
+        OperationStats(Operation operation) {
+            this.operation = operation;
+        }
+
+        void record(long nanos, boolean succeeded) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (!succeeded) {
+                failed++;
+            }
+        }
+
+        void merge(OperationStats other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, count + other.count);
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            failed += other.failed;
+        }
+
+        public Operation getOperation() { return operation; }
+        public int getCount() { return count; }
+        // Operations that found nothing to do or lost a race for a slot
+        public int getFailed() { return failed; }
+
+        // Latency in microseconds at the given percentile, e.g. 99.9
+        public double getPercentileMicros(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * count);
+            return latencies[Math.max(rank, 1) - 1] / 1000.0;
+        }
+    }
+
+    public static final class Result {
+        private final int threads;
+        private final long elapsedNanos;
+        private final List<OperationStats> stats;
+
+        Result(int threads, long elapsedNanos, List<OperationStats> stats) {
+            this.threads = threads;
+            this.elapsedNanos = elapsedNanos;
+            this.stats = stats;
+        }
+
+        public long getOperations() {
+            return stats.stream().mapToLong(OperationStats::getCount).sum();
+        }
+
+        public double getSeconds() { return elapsedNanos / 1e9; }
+        public double getThroughput() { return getOperations() / getSeconds(); }
+        public List<OperationStats> getStats() { return stats; }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format(Locale.ROOT, "%d operations in %.3f s on %d threads: %.0f ops/s%n",
+                getOperations(), getSeconds(), threads, getThroughput()));
+            report.append(String.format(Locale.ROOT, "%-26s %9s %7s %10s %10s %10s %10s %10s%n",
+                "Operation", "Count", "Failed", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us"));
+            for (OperationStats s : stats) {
+                report.append(String.format(Locale.ROOT, "%-26s %9d %7d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    s.getOperation(), s.getCount(), s.getFailed(), s.getPercentileMicros(50),
+                    s.getPercentileMicros(90), s.getPercentileMicros(99), s.getPercentileMicros(99.9),
+                    s.getPercentileMicros(100)));
+            }
+            return report.toString();
+        }
+    }
+
+    // Runs the given number of operations split across the threads, all
+    // starting together; returns once every thread has finished
+    public Result run(int totalOperations) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<OperationStats[]>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int share = totalOperations / threads + (t < totalOperations % threads ? 1 : 0);
+            Random random = new Random(seed * 31 + t);
+            workers.add(executor.submit(() -> {
+                start.await();
+                return runWorker(random, share);
+            }));
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        Map<Operation, OperationStats> merged = new EnumMap<>(Operation.class);
+        try {
+            for (Future<OperationStats[]> worker : workers) {
+                for (OperationStats s : worker.get()) {
+                    merged.computeIfAbsent(s.getOperation(), OperationStats::new).merge(s);
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Load driver thread failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - began;
+
+        List<OperationStats> stats = new ArrayList<>();
+        for (Operation operation : operations) {
+            OperationStats s = merged.get(operation);
+            Arrays.sort(s.latencies, 0, s.count);
+            stats.add(s);
+        }
+        return new Result(threads, elapsed, stats);
+    }
+
+    private OperationStats[] runWorker(Random random, int count) throws IOException {
+        OperationStats[] stats = new OperationStats[operations.length];
+        for (int i = 0; i < operations.length; i++) {
+            stats[i] = new OperationStats(operations[i]);
+        }
+        int total = cumulativeWeights[cumulativeWeights.length - 1];
+        for (int i = 0; i < count; i++) {
+            int pick = random.nextInt(total);
+            int index = 0;
+            while (cumulativeWeights[index] <= pick) {
+                index++;
+            }
+            long began = System.nanoTime();
+            boolean succeeded = perform(operations[index], random);
+            stats[index].record(System.nanoTime() - began, succeeded);
+        }
+        return stats;
+    }
+
+    private boolean perform(Operation operation, Random random) throws IOException {
+        try {
+            switch (operation) {
+                case SEARCH_BY_EXPERTISE:
+                    return !system.findAvailableSlotsByExpertise(
+                        expertiseAreas[random.nextInt(expertiseAreas.length)], 0, PAGE_SIZE).isEmpty();
+                case SEARCH_BY_PHYSIOTHERAPIST:
+                    return !system.findAvailableSlotsByPhysiotherapist(
+                        randomPhysiotherapist(random).getFullName(), 0, PAGE_SIZE).isEmpty();
+                case BOOK: {
+                    Physiotherapist physio = randomPhysiotherapist(random);
+                    List<Treatment> treatments = physio.getTreatments();
+                    if (treatments.isEmpty()) {
+                        return false;
+                    }
+                    Treatment treatment = treatments.get(random.nextInt(treatments.size()));
+                    TimeSlot slot = freeSlot(physio, treatment, random);
+                    if (slot == null) {
+                        return false;
+                    }
+                    system.bookAppointment(patients.get(random.nextInt(patients.size())), physio, treatment, slot);
+                    return true;
+                }
+                case CANCEL: {
+                    Appointment appointment = bookedAppointment(random);
+                    if (appointment == null) {
+                        return false;
+                    }
+                    system.cancelAppointment(appointment.getId());
+                    return true;
+                }
+                case RESCHEDULE: {
+                    Appointment appointment = bookedAppointment(random);
+                    if (appointment == null) {
+                        return false;
+                    }
+                    TimeSlot slot = freeSlot(appointment.getPhysiotherapist(), appointment.getTreatment(), random);
+                    if (slot == null) {
+                        return false;
+                    }
+                    system.rescheduleAppointment(appointment.getId(), slot);
+                    return true;
+                }
+                case ATTEND: {
+                    Appointment appointment = bookedAppointment(random);
+                    if (appointment == null) {
+                        return false;
+                    }
+                    system.markAppointmentAsAttended(appointment.getId());
+                    return true;
+                }
+                case REPORT:
+                    new ReportGenerator(system).writeEndOfTermReport(Writer.nullWriter());
+                    return true;
+                default:
+                    throw new IllegalStateException("Unknown operation " + operation);
+            }
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            // Another thread took the slot or changed the appointment first
+            return false;
+        }
+    }
+
+    private Physiotherapist randomPhysiotherapist(Random random) {
+        return physios.get(random.nextInt(physios.size()));
+    }
+
+    // The first free slot on or after a random day of the timetable
+    private TimeSlot freeSlot(Physiotherapist physio, Treatment treatment, Random random) {
+        LocalDate from = firstDay.plusDays(random.nextInt(days));
+        Iterator<SlotOffer> offers = system.findAvailableSlots(physio, treatment, from, null);
+        return offers.hasNext() ? offers.next().getTimeSlot() : null;
+    }
+
+    private Appointment bookedAppointment(Random random) {
+        Patient patient = patients.get(random.nextInt(patients.size()));
+        List<Appointment> booked = system.getAppointmentsForPatient(patient.getId(), Appointment.Status.BOOKED);
+        return booked.isEmpty() ? null : booked.get(random.nextInt(booked.size()));
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>(Map.of(
+            "seed", "1", "physios", "100", "patients", "10000", "weeks", "12",
+            "threads", String.valueOf(Runtime.getRuntime().availableProcessors()),
+            "operations", "200000", "warmup", "50000", "mix", DEFAULT_MIX));
+        String dataDir = null;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String key = eq < 0 ? arg : arg.substring(0, eq);
+            if (eq < 0 || !(options.containsKey(key) || key.equals("dataDir"))) {
+                System.out.println("Usage: LoadDriver [key=value]... with keys " + options.keySet() + " and dataDir");
+                return;
+            }
+            if (key.equals("dataDir")) {
+                dataDir = arg.substring(eq + 1);
+            } else {
+                options.put(key, arg.substring(eq + 1));
+            }
+        }
+        long seed = Long.parseLong(options.get("seed"));
+
+        // With dataDir every change goes through the write-ahead log
+        try (BookingSystem system = dataDir == null ? new BookingSystem() : BookingSystem.open(Path.of(dataDir), null)) {
+            long began = System.nanoTime();
+            if (system.getAllPhysiotherapists().isEmpty()) {
+                new ClinicDataGenerator(seed, Integer.parseInt(options.get("physios")),
+                    Integer.parseInt(options.get("patients")), Integer.parseInt(options.get("weeks"))).generate(system);
+            }
+            System.out.printf(Locale.ROOT, "Clinic of %d physios, %d patients and %d appointments ready in %d ms%n",
+                system.getAllPhysiotherapists().size(), system.getAllPatients().size(),
+                system.getAllAppointments().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began));
+
+            LoadDriver driver = new LoadDriver(system, parseMix(options.get("mix")),
+                Integer.parseInt(options.get("threads")), seed);
+            int warmup = Integer.parseInt(options.get("warmup"));
+            if (warmup > 0) {
+                driver.run(warmup);
+            }
+            System.out.print(driver.run(Integer.parseInt(options.get("operations"))));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.boostphysio;
+
+// Case-insensitive name lookup. Names are normalised by trimming, collapsing
+// runs of whitespace to one space and folding case, so "jane  DOE " finds
+// "Jane Doe". The normalised form is hashed and compared in place, so a
+// lookup allocates nothing. Entries with the same hash are chained in small
+// immutable nodes stored in an IntHashIndex; writers replace the chain
+// under this object's monitor.
+class NameIndex<V> {
+    private static final class Node<V> {
+        final String name;
+        final V value;
+        final Node<V> next;
+
+        Node(String name, V value, Node<V> next) {
+            this.name = name;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    private final IntHashIndex<Node<V>> buckets = new IntHashIndex<>();
+
+    public V get(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (Node<V> node = buckets.get(hash(name)); node != null; node = node.next) {
+            if (matches(node.name, name)) {
+                return node.value;
+            }
+        }
+        return null;
+    }
+
+    // Adds the value under the name unless the name is already taken; the
+    // first registration wins, as it did with the old linear search
+    public synchronized boolean add(String name, V value) {
+        int h = hash(name);
+        Node<V> head = buckets.get(h);
+        for (Node<V> node = head; node != null; node = node.next) {
+            if (matches(node.name, name)) {
+                return false;
+            }
+        }
+        buckets.put(h, new Node<>(name, value, head));
+        return true;
+    }
+
+    public synchronized boolean remove(String name, V value) {
+        int h = hash(name);
+        Node<V> head = buckets.get(h);
+        Node<V> rebuilt = null;
+        boolean removed = false;
+        for (Node<V> node = head; node != null; node = node.next) {
+            if (!removed && node.value == value && matches(node.name, name)) {
+                removed = true;
+            } else {
+                rebuilt = new Node<>(node.name, node.value, rebuilt);
+            }
+        }
+        if (!removed) {
+            return false;
+        }
+        if (rebuilt == null) {
+            buckets.remove(h);
+        } else {
+            buckets.put(h, rebuilt);
+        }
+        return true;
+    }
+
+    static int hash(String name) {
+        int h = 0;
+        boolean pendingSpace = false;
+        boolean started = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = started;
+                continue;
+            }
+            if (pendingSpace) {
+                h = 31 * h + ' ';
+                pendingSpace = false;
+            }
+            h = 31 * h + fold(c);
+            started = true;
+        }
+        return h;
+    }
+
+    static boolean matches(String a, String b) {
+        int n = a.length();
+        int m = b.length();
+        int i = skipWhitespace(a, 0);
+        int j = skipWhitespace(b, 0);
+        while (i < n && j < m) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(j);
+            boolean spaceA = Character.isWhitespace(ca);
+            boolean spaceB = Character.isWhitespace(cb);
+            if (spaceA != spaceB) {
+                return false;
+            }
+            if (spaceA) {
+                i = skipWhitespace(a, i);
+                j = skipWhitespace(b, j);
+                // Trailing whitespace on one side only is still a match
+                if (i == n || j == m) {
+                    break;
+                }
+                continue;
+            }
+            if (fold(ca) != fold(cb)) {
+                return false;
+            }
+            i++;
+            j++;
+        }
+        return skipWhitespace(a, i) == n && skipWhitespace(b, j) == m;
+    }
+
+    private static int skipWhitespace(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
@@ -0,0 +1,124 @@
+package com.boostphysio;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+// Free slots of a list of (physiotherapist, treatment) offerings, closest to a
+// target time first, earlier or later. Each offering gets two cursors walking
+// its timetable away from the target, one forward and one backward, so each
+// yields slots in order of distance; a heap merges them. The first k slots
+// cost O((n + k) log n) heap work for n offerings and only read the days
+// nearest the target. Slots before the floor are never offered.
+class NearestSlotSearch implements Iterator<SlotOffer> {
+    private static final class Cursor implements Comparable<Cursor> {
+        final ExpertiseIndex.Offering offering;
+        final int order;
+        private final Iterator<Map.Entry<LocalDate, List<TimeSlot>>> days;
+        private final boolean forward;
+        private Iterator<TimeSlot> slots = Collections.emptyIterator();
+        private LocalDate date;
+        TimeSlot head;
+        long distance;
+
+        Cursor(ExpertiseIndex.Offering offering, int order, LocalDate target, LocalDate floor, boolean forward) {
+            this.offering = offering;
+            this.order = order;
+            this.forward = forward;
+            Physiotherapist physio = offering.getPhysiotherapist();
+            this.days = forward
+                ? physio.getTimetable(target.isBefore(floor) ? floor : target, null).entrySet().iterator()
+                : physio.getTimetable(floor, target).descendingMap().entrySet().iterator();
+        }
+
+        // Moves to the next free slot on this cursor's side of the target;
+        // false once it runs out
+        boolean advance(long targetSecond, long floorSecond) {
+            int duration = offering.getTreatment().getDurationMinutes();
+            while (true) {
+                while (slots.hasNext()) {
+                    TimeSlot slot = slots.next();
+                    long start = slot.getStartSecond();
+                    boolean onSide = forward
+                        ? start >= Math.max(targetSecond, floorSecond)
+                        : start < targetSecond && start >= floorSecond;
+                    if (onSide && slot.canStart(duration)) {
+                        head = slot;
+                        distance = Math.abs(start - targetSecond);
+                        return true;
+                    }
+                }
+                if (!days.hasNext()) {
+                    head = null;
+                    return false;
+                }
+                Map.Entry<LocalDate, List<TimeSlot>> day = days.next();
+                date = day.getKey();
+                List<TimeSlot> daySlots = day.getValue();
+                slots = forward ? daySlots.iterator() : daySlots.reversed().iterator();
+            }
+        }
+
+        SlotOffer offer() {
+            return new SlotOffer(offering.getPhysiotherapist(), offering.getTreatment(), head, date);
+        }
+
+        // Closer first; on a tie, the later slot, then the earlier offering
+        @Override
+        public int compareTo(Cursor other) {
+            int byDistance = Long.compare(distance, other.distance);
+            if (byDistance != 0) {
+                return byDistance;
+            }
+            if (forward != other.forward) {
+                return forward ? -1 : 1;
+            }
+            return Integer.compare(order, other.order);
+        }
+    }
+
+    private final PriorityQueue<Cursor> heap;
+    private final long targetSecond;
+    private final long floorSecond;
+
+    NearestSlotSearch(List<ExpertiseIndex.Offering> offerings, LocalDateTime target, LocalDateTime floor) {
+        this.targetSecond = AvailabilityCalendar.toSecond(target);
+        this.floorSecond = AvailabilityCalendar.toSecond(floor);
+        this.heap = new PriorityQueue<>(Math.max(1, offerings.size() * 2));
+        int order = 0;
+        for (ExpertiseIndex.Offering offering : offerings) {
+            add(new Cursor(offering, order, target.toLocalDate(), floor.toLocalDate(), true));
+            if (floor.isBefore(target)) {
+                add(new Cursor(offering, order, target.toLocalDate(), floor.toLocalDate(), false));
+            }
+            order++;
+        }
+    }
+
+    private void add(Cursor cursor) {
+        if (cursor.advance(targetSecond, floorSecond)) {
+            heap.add(cursor);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heap.isEmpty();
+    }
+
+    @Override
+    public SlotOffer next() {
+        Cursor cursor = heap.poll();
+        if (cursor == null) {
+            throw new NoSuchElementException();
+        }
+        SlotOffer offer = cursor.offer();
+        add(cursor);
+        return offer;
+    }
+}
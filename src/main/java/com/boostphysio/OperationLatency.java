@@ -0,0 +1,43 @@
+package com.boostphysio;
+
+import java.util.Locale;
+
+// Latency summary of one kind of operation; times are in microseconds
+public final class OperationLatency {
+    private final String operation;
+    private final long count;
+    private final long failures;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+
+    public OperationLatency(String operation, long count, long failures, double meanMicros,
+                            double p50Micros, double p99Micros, double p999Micros, double maxMicros) {
+        this.operation = operation;
+        this.count = count;
+        this.failures = failures;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    // Getters
+    public String getOperation() { return operation; }
+    public long getCount() { return count; }
+    public long getFailures() { return failures; }
+    public double getMeanMicros() { return meanMicros; }
+    public double getP50Micros() { return p50Micros; }
+    public double getP99Micros() { return p99Micros; }
+    public double getP999Micros() { return p999Micros; }
+    public double getMaxMicros() { return maxMicros; }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%-26s %9d %7d %10.1f %10.1f %10.1f %10.1f %10.1f",
+            operation, count, failures, meanMicros, p50Micros, p99Micros, p999Micros, maxMicros);
+    }
+}
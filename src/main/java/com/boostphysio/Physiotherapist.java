@@ -1,48 +1,136 @@
 package com.boostphysio;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Physiotherapist extends Person {
-    private List<String> expertiseAreas;
-    private List<Treatment> treatments;
-    private HashMap<String, List<TimeSlot>> timetable; // key: date in "yyyy-MM-dd" format
+    private final List<String> expertiseAreas;
+    private final List<Treatment> treatments;
+    // Set once the physio joins a booking system, whose treatments it shares
+    private volatile ExpertiseCatalog catalog;
+    // Bit n is set for area n of the catalog; replaced, never changed in place
+    private volatile long[] expertise = new long[0];
+    // Sorted by date so range queries only touch the days asked for; each day's
+    // list is immutable, ordered by start time and replaced when a slot is added
+    private final ConcurrentSkipListMap<LocalDate, List<TimeSlot>> timetable;
+    private final AvailabilityCalendar calendar;
+    private final List<PhysiotherapistListener> listeners;
     
     public Physiotherapist(int id, String fullName, String address, String phoneNumber) {
         super(id, fullName, address, phoneNumber);
-        this.expertiseAreas = new ArrayList<>();
-        this.treatments = new ArrayList<>();
-        this.timetable = new HashMap<>();
+        // Read far more often than written, and searched while bookings run
+        this.expertiseAreas = new CopyOnWriteArrayList<>();
+        this.treatments = new CopyOnWriteArrayList<>();
+        this.timetable = new ConcurrentSkipListMap<>();
+        this.calendar = new AvailabilityCalendar();
+        this.listeners = new CopyOnWriteArrayList<>();
     }
     
     // Expertise area methods
-    public void addExpertiseArea(String area) {
-        expertiseAreas.add(area);
+    
+    // Kept trimmed with runs of spaces collapsed; adding an area the physio
+    // already has, in any spelling, does nothing
+    public synchronized void addExpertiseArea(String area) {
+        if (hasExpertise(area)) {
+            return;
+        }
+        String name = ExpertiseCatalog.normalize(area);
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Expertise area must not be blank");
+        }
+        ExpertiseCatalog shared = catalog;
+        if (shared != null) {
+            expertise = withArea(expertise, shared.register(name));
+        }
+        expertiseAreas.add(name);
+        for (PhysiotherapistListener listener : listeners) {
+            listener.expertiseAdded(this, name);
+        }
     }
     
     public List<String> getExpertiseAreas() {
         return new ArrayList<>(expertiseAreas);
     }
     
+    // Ignores case and stray whitespace. In a booking system this is one AND
+    // against the bitmask; a physio outside any system compares its few names.
     public boolean hasExpertise(String area) {
-        for (String expertise : expertiseAreas) {
-            System.out.println("Comparing treatment expertise [" + area + "] with physio expertise [" + expertise + "]");
+        if (area == null) {
+            return false;
         }
-        return expertiseAreas.contains(area);
+        ExpertiseCatalog shared = catalog;
+        if (shared != null) {
+            int id = shared.find(area);
+            return id >= 0 && hasExpertise(id);
+        }
+        for (String held : expertiseAreas) {
+            if (NameIndex.matches(held, area)) {
+                return true;
+            }
+        }
+        return false;
     }
     
+    // By ID in the catalog of the physio's booking system
+    boolean hasExpertise(int areaId) {
+        long[] mask = expertise;
+        int word = areaId >>> 6;
+        return word < mask.length && (mask[word] & (1L << areaId)) != 0;
+    }
+    
+    private static long[] withArea(long[] mask, int areaId) {
+        long[] grown = Arrays.copyOf(mask, Math.max(mask.length, (areaId >>> 6) + 1));
+        grown[areaId >>> 6] |= 1L << areaId;
+        return grown;
+    }
     
     // Treatment methods
-    public void addTreatment(Treatment treatment) {
+    
+    // Once the physio is in a booking system, equal treatments (same name,
+    // area and duration) are shared through its ExpertiseCatalog, so the
+    // physio keeps the shared instance
+    public synchronized void addTreatment(Treatment treatment) {
         if (hasExpertise(treatment.getExpertiseArea())) {
+            ExpertiseCatalog shared = catalog;
+            if (shared != null) {
+                treatment = shared.intern(treatment);
+            }
             treatments.add(treatment);
+            for (PhysiotherapistListener listener : listeners) {
+                listener.treatmentAdded(this, treatment);
+            }
         } else {
             throw new IllegalArgumentException("Physiotherapist does not have expertise in " 
                 + treatment.getExpertiseArea());
         }
     }
     
+    // Swaps the treatments for the catalog's shared instances, and shares
+    // those added from now on; the areas are registered in the catalog and
+    // checked by bitmask from then on
+    synchronized void shareTreatments(ExpertiseCatalog catalog) {
+        long[] mask = new long[0];
+        for (String area : expertiseAreas) {
+            mask = withArea(mask, catalog.register(area));
+        }
+        // The mask is in place before hasExpertise starts reading it
+        expertise = mask;
+        this.catalog = catalog;
+        for (int i = 0; i < treatments.size(); i++) {
+            treatments.set(i, catalog.intern(treatments.get(i)));
+        }
+    }
+    
     public List<Treatment> getTreatments() {
         return new ArrayList<>(treatments);
     }
@@ -54,20 +142,188 @@ public class Physiotherapist extends Person {
                 .orElse(null);
     }
     
+    // The listed treatment with the same name, area and duration, or null;
+    // two treatments can share a name
+    Treatment getTreatment(Treatment like) {
+        for (Treatment treatment : treatments) {
+            if (treatment.equals(like)) {
+                return treatment;
+            }
+        }
+        return null;
+    }
+    
     // Timetable methods
+    
+    // Slots are filed under their own start date; the date string is kept for
+    // existing callers and is not used to place the slot
     public void addTimeSlot(String date, TimeSlot slot) {
-        timetable.computeIfAbsent(date, k -> new ArrayList<>()).add(slot);
+        addTimeSlot(slot);
+    }
+    
+    public synchronized void addTimeSlot(TimeSlot slot) {
+        slot.attach(calendar);
+        timetable.compute(slot.getDate(), (date, slots) -> insertByStartTime(slots, slot));
+        for (PhysiotherapistListener listener : listeners) {
+            listener.timeSlotAdded(this, slot);
+        }
+    }
+    
+    // Adds many slots at once, e.g. a term's timetable: each day's list is
+    // rebuilt once rather than once per slot
+    public synchronized void addTimeSlots(Collection<TimeSlot> slots) {
+        TreeMap<LocalDate, List<TimeSlot>> byDate = new TreeMap<>();
+        for (TimeSlot slot : slots) {
+            slot.attach(calendar);
+            byDate.computeIfAbsent(slot.getDate(), date -> new ArrayList<>()).add(slot);
+        }
+        for (Map.Entry<LocalDate, List<TimeSlot>> day : byDate.entrySet()) {
+            List<TimeSlot> added = day.getValue();
+            added.sort(TimeSlot::compareStart);
+            timetable.compute(day.getKey(), (date, existing) -> mergeByStartTime(existing, added));
+        }
+        for (PhysiotherapistListener listener : listeners) {
+            for (TimeSlot slot : slots) {
+                listener.timeSlotAdded(this, slot);
+            }
+        }
+    }
+    
+    // Loads a whole day at once, e.g. from a snapshot; the slots must be
+    // ordered by start time and the day must not have any slots yet
+    synchronized void restoreDay(LocalDate date, List<TimeSlot> slots) {
+        for (TimeSlot slot : slots) {
+            slot.attach(calendar);
+        }
+        if (timetable.putIfAbsent(date, Collections.unmodifiableList(slots)) != null) {
+            throw new IllegalStateException("Timetable already has slots on " + date);
+        }
+    }
+    
+    // The slot starting exactly at this time, or null
+    TimeSlot getTimeSlotAt(LocalDateTime start) {
+        return getTimeSlotAt(AvailabilityCalendar.toSecond(start), start.getNano());
+    }
+
+    TimeSlot getTimeSlotAt(long startSecond, int startNano) {
+        LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(startSecond, 86400));
+        for (TimeSlot slot : timetable.getOrDefault(date, List.of())) {
+            if (slot.startsAt(startSecond, startNano)) {
+                return slot;
+            }
+        }
+        return null;
+    }
+    
+    // Whether a treatment of this length could start at this time, e.g. a
+    // 45 minute treatment at 10:15; a bitmap check, independent of slot objects
+    public boolean isAvailable(LocalDateTime start, int durationMinutes) {
+        long startSecond = AvailabilityCalendar.toSecond(start);
+        return calendar.isFree(startSecond, startSecond + durationMinutes * 60L);
     }
     
     public List<TimeSlot> getAvailableSlotsForDate(String date) {
-        List<TimeSlot> slots = timetable.getOrDefault(date, new ArrayList<>());
-        return slots.stream()
-                .filter(TimeSlot::isAvailable)
-                .collect(java.util.stream.Collectors.toList());
+        return getAvailableSlotsForDate(LocalDate.parse(date));
+    }
+    
+    public List<TimeSlot> getAvailableSlotsForDate(LocalDate date) {
+        return availableIn(timetable.getOrDefault(date, List.of()), new ArrayList<>());
+    }
+    
+    // Available slots from one date to another, both inclusive
+    public List<TimeSlot> getAvailableSlots(LocalDate from, LocalDate to) {
+        List<TimeSlot> available = new ArrayList<>();
+        for (List<TimeSlot> slots : getTimetable(from, to).values()) {
+            availableIn(slots, available);
+        }
+        return available;
+    }
+    
+    // Read-only, date-ordered view of the whole timetable (not a copy)
+    public NavigableMap<LocalDate, List<TimeSlot>> getTimetable() {
+        return Collections.unmodifiableNavigableMap(timetable);
+    }
+    
+    // Read-only view of the days between from and to, both inclusive; a null
+    // bound leaves that end open, e.g. getTimetable(LocalDate.now(), null)
+    public NavigableMap<LocalDate, List<TimeSlot>> getTimetable(LocalDate from, LocalDate to) {
+        NavigableMap<LocalDate, List<TimeSlot>> range = timetable;
+        if (from != null && to != null) {
+            range = timetable.subMap(from, true, to, true);
+        } else if (from != null) {
+            range = timetable.tailMap(from, true);
+        } else if (to != null) {
+            range = timetable.headMap(to, true);
+        }
+        return Collections.unmodifiableNavigableMap(range);
+    }
+    
+    private static List<TimeSlot> insertByStartTime(List<TimeSlot> slots, TimeSlot slot) {
+        if (slots == null) {
+            return List.of(slot);
+        }
+        List<TimeSlot> updated = new ArrayList<>(slots.size() + 1);
+        int i = 0;
+        while (i < slots.size() && slots.get(i).compareStart(slot) <= 0) {
+            updated.add(slots.get(i++));
+        }
+        updated.add(slot);
+        updated.addAll(slots.subList(i, slots.size()));
+        return Collections.unmodifiableList(updated);
+    }
+    
+    // Merges sorted slots into a day's list; on equal start times the slots
+    // already there come first, as with insertByStartTime
+    private static List<TimeSlot> mergeByStartTime(List<TimeSlot> slots, List<TimeSlot> added) {
+        if (slots == null) {
+            return Collections.unmodifiableList(added);
+        }
+        List<TimeSlot> merged = new ArrayList<>(slots.size() + added.size());
+        int i = 0;
+        int j = 0;
+        while (i < slots.size() && j < added.size()) {
+            if (slots.get(i).compareStart(added.get(j)) <= 0) {
+                merged.add(slots.get(i++));
+            } else {
+                merged.add(added.get(j++));
+            }
+        }
+        merged.addAll(slots.subList(i, slots.size()));
+        merged.addAll(added.subList(j, added.size()));
+        return Collections.unmodifiableList(merged);
+    }
+    
+    private static List<TimeSlot> availableIn(List<TimeSlot> slots, List<TimeSlot> into) {
+        for (TimeSlot slot : slots) {
+            if (slot.isAvailable()) {
+                into.add(slot);
+            }
+        }
+        return into;
+    }
+    
+    // Registers a listener and replays the current expertise, treatments and
+    // slots to it, so it never misses a change made while it was being attached
+    void addListener(PhysiotherapistListener listener) {
+        addListener(listener, true);
     }
     
-    public HashMap<String, List<TimeSlot>> getTimetable() {
-        return new HashMap<>(timetable);
+    synchronized void addListener(PhysiotherapistListener listener, boolean replay) {
+        listeners.add(listener);
+        if (!replay) {
+            return;
+        }
+        for (String area : expertiseAreas) {
+            listener.expertiseAdded(this, area);
+        }
+        for (Treatment treatment : treatments) {
+            listener.treatmentAdded(this, treatment);
+        }
+        for (List<TimeSlot> slots : timetable.values()) {
+            for (TimeSlot slot : slots) {
+                listener.timeSlotAdded(this, slot);
+            }
+        }
     }
     
     @Override
@@ -0,0 +1,13 @@
+package com.boostphysio;
+
+// Notified when a registered physiotherapist's expertise, treatments or
+// timetable change, so indexes held by BookingSystem stay in step with the
+// physiotherapist
+interface PhysiotherapistListener {
+    void expertiseAdded(Physiotherapist physio, String area);
+
+    void treatmentAdded(Physiotherapist physio, Treatment treatment);
+
+    default void timeSlotAdded(Physiotherapist physio, TimeSlot slot) {
+    }
+}
@@ -1,104 +1,220 @@
 package com.boostphysio;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class ReportGenerator {
+    private static final int BUFFER_SIZE = 8192;
+    // Sections rendered ahead per worker thread in parallel mode
+    private static final int SECTIONS_PER_WORKER = 8;
+
     private BookingSystem bookingSystem;
-    
+    private final ForkJoinPool pool;
+
     public ReportGenerator(BookingSystem bookingSystem) {
+        this(bookingSystem, null);
+    }
+
+    // Parallel mode: physiotherapist sections are rendered on the pool, e.g.
+    // ForkJoinPool.commonPool(), and still written in ranking order, so the
+    // report is identical to the sequential one. A null pool is sequential.
+    public ReportGenerator(BookingSystem bookingSystem, ForkJoinPool pool) {
         this.bookingSystem = bookingSystem;
+        this.pool = pool;
+    }
+
+    // A physiotherapist with their running appointment counts
+    private static final class RankedPhysio {
+        final Physiotherapist physio;
+        final AppointmentCounts counts;
+
+        RankedPhysio(Physiotherapist physio, AppointmentCounts counts) {
+            this.physio = physio;
+            this.counts = counts;
+        }
     }
-    
+
+    // Whole report as one string; fine for small clinics, use one of the
+    // writeEndOfTermReport methods to stream a large report instead
     public String generateEndOfTermReport() {
-        StringBuilder report = new StringBuilder();
-        report.append("===== BOOST PHYSIO CLINIC: END OF TERM REPORT =====\n\n");
-        
-        // Get all physiotherapists
-        List<Physiotherapist> allPhysios = bookingSystem.getAllPhysiotherapists();
-        List<Appointment> allAppointments = bookingSystem.getAllAppointments();
-        
-        // Group appointments by physiotherapist
-        Map<Physiotherapist, List<Appointment>> appointmentsByPhysio = allAppointments.stream()
-            .collect(Collectors.groupingBy(Appointment::getPhysiotherapist));
-        
-        // Count attended appointments per physiotherapist
-        Map<Physiotherapist, Long> attendedCountByPhysio = new HashMap<>();
-        
-        for (Physiotherapist physio : allPhysios) {
-            List<Appointment> physioAppointments = appointmentsByPhysio.getOrDefault(physio, List.of());
-            
-            long attendedCount = physioAppointments.stream()
-                .filter(a -> a.getStatus() == Appointment.Status.ATTENDED)
-                .count();
-            
-            attendedCountByPhysio.put(physio, attendedCount);
+        StringWriter report = new StringWriter();
+        try {
+            writeEndOfTermReport(report);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        
-        // Sort physiotherapists by attended appointments (descending)
-        List<Physiotherapist> sortedPhysios = allPhysios.stream()
-            .sorted(Comparator.comparing(p -> attendedCountByPhysio.getOrDefault(p, 0L), Comparator.reverseOrder()))
-            .collect(Collectors.toList());
-        
-        // Build the report
-        report.append("PHYSIOTHERAPIST RANKINGS (by attended appointments):\n");
-        report.append("------------------------------------------------\n");
-        
+        return report.toString();
+    }
+
+    // Streams the report to the stream as UTF-8 through a fixed-size buffer;
+    // the stream is flushed but left open
+    public void writeEndOfTermReport(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writeEndOfTermReport(writer);
+        writer.flush();
+    }
+
+    // Streams the report to the channel as UTF-8; the channel is left open
+    public void writeEndOfTermReport(WritableByteChannel channel) throws IOException {
+        Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writeEndOfTermReport(writer);
+        writer.flush();
+    }
+
+    // Writes the report section by section, so memory use depends on one
+    // physiotherapist's appointments rather than the whole term. Every form of
+    // the report is timed here, as REPORT in the booking system's metrics.
+    public void writeEndOfTermReport(Writer report) throws IOException {
+        bookingSystem.getMetrics().time(BookingMetrics.Operation.REPORT, () -> writeReport(report));
+    }
+
+    private void writeReport(Writer report) throws IOException {
+        report.write("===== BOOST PHYSIO CLINIC: END OF TERM REPORT =====\n\n");
+
+        List<RankedPhysio> sortedPhysios = rankPhysios();
+
+        // Write the rankings
+        report.write("PHYSIOTHERAPIST RANKINGS (by attended appointments):\n");
+        report.write("------------------------------------------------\n");
+
         for (int i = 0; i < sortedPhysios.size(); i++) {
-            Physiotherapist physio = sortedPhysios.get(i);
-            long attendedCount = attendedCountByPhysio.getOrDefault(physio, 0L);
-            
-            report.append(String.format("%d. %s - %d attended appointments\n", 
-                                       i+1, physio.getFullName(), attendedCount));
+            RankedPhysio ranked = sortedPhysios.get(i);
+
+            report.write(Integer.toString(i + 1));
+            report.write(". ");
+            report.write(ranked.physio.getFullName());
+            report.write(" - ");
+            report.write(Integer.toString(ranked.counts.getAttended()));
+            report.write(" attended appointments\n");
         }
-        
-        report.append("\n\nDETAILED APPOINTMENT RECORDS BY PHYSIOTHERAPIST:\n");
-        report.append("------------------------------------------------\n\n");
-        
+
+        report.write("\n\nDETAILED APPOINTMENT RECORDS BY PHYSIOTHERAPIST:\n");
+        report.write("------------------------------------------------\n\n");
+
         // Add detailed appointment records for each physiotherapist
-        for (Physiotherapist physio : sortedPhysios) {
-            report.append("PHYSIOTHERAPIST: ").append(physio.getFullName()).append("\n");
-            report.append("Expertise Areas: ").append(String.join(", ", physio.getExpertiseAreas())).append("\n");
-            report.append("--------------------------------------------------\n");
-            
-            List<Appointment> physioAppointments = appointmentsByPhysio.getOrDefault(physio, List.of());
-            
-            if (physioAppointments.isEmpty()) {
-                report.append("No appointments recorded.\n\n");
-                continue;
+        if (pool == null || sortedPhysios.size() < 2) {
+            for (RankedPhysio ranked : sortedPhysios) {
+                writePhysioSection(report, ranked);
             }
-            
-            // Count statistics
-            long booked = physioAppointments.stream()
-                .filter(a -> a.getStatus() == Appointment.Status.BOOKED)
-                .count();
-            
-            long cancelled = physioAppointments.stream()
-                .filter(a -> a.getStatus() == Appointment.Status.CANCELLED)
-                .count();
-            
-            long attended = physioAppointments.stream()
-                .filter(a -> a.getStatus() == Appointment.Status.ATTENDED)
-                .count();
-            
-            report.append(String.format("Total Appointments: %d (Booked: %d, Cancelled: %d, Attended: %d)\n\n", 
-                          physioAppointments.size(), booked, cancelled, attended));
-            
-            report.append("APPOINTMENT DETAILS:\n");
-            for (Appointment appt : physioAppointments) {
-                report.append(String.format("- %s | Treatment: %s | Patient: %s | Status: %s\n",
-                                          appt.getTimeSlot().getFormattedTimeRange(),
-                                          appt.getTreatment().getName(),
-                                          appt.getPatient().getFullName(),
-                                          appt.getStatus()));
+        } else {
+            writeSectionsInParallel(report, sortedPhysios);
+        }
+    }
+
+    // Renders the sections a window at a time on the pool; while one window
+    // is written out in order the next is already rendering, and memory holds
+    // at most two windows of text however many physiotherapists there are
+    private void writeSectionsInParallel(Writer report, List<RankedPhysio> sortedPhysios) throws IOException {
+        int window = pool.getParallelism() * SECTIONS_PER_WORKER;
+        String[] current = new String[window];
+        String[] next = new String[window];
+        ForkJoinTask<?> rendering = pool.submit(renderSections(sortedPhysios, 0,
+            Math.min(window, sortedPhysios.size()), current, 0));
+        for (int start = 0; start < sortedPhysios.size(); start += window) {
+            int end = Math.min(start + window, sortedPhysios.size());
+            rendering.join();
+            if (end < sortedPhysios.size()) {
+                rendering = pool.submit(renderSections(sortedPhysios, end,
+                    Math.min(end + window, sortedPhysios.size()), next, end));
+            }
+            for (int i = 0; i < end - start; i++) {
+                report.write(current[i]);
+                current[i] = null;
             }
-            
-            report.append("\n\n");
+            String[] written = current;
+            current = next;
+            next = written;
         }
-        
-        return report.toString();
     }
-}
\ No newline at end of file
+
+    // Renders sections [from, to) into sections[i - offset], splitting in
+    // halves down to single sections so idle workers can steal them
+    private ForkJoinTask<?> renderSections(List<RankedPhysio> physios, int from, int to, String[] sections,
+                                           int offset) {
+        return ForkJoinTask.adapt(() -> {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                ForkJoinTask.invokeAll(renderSections(physios, from, mid, sections, offset),
+                    renderSections(physios, mid, to, sections, offset));
+                return;
+            }
+            StringWriter section = new StringWriter();
+            try {
+                writePhysioSection(section, physios.get(from));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            sections[from - offset] = section.toString();
+        });
+    }
+
+    // Get all physiotherapists with the counters kept by the booking system,
+    // so ranking costs O(physios log physios) however many appointments there are
+    private List<RankedPhysio> rankPhysios() {
+        List<Physiotherapist> allPhysios = bookingSystem.getAllPhysiotherapists();
+        List<RankedPhysio> sortedPhysios = new ArrayList<>(allPhysios.size());
+
+        for (Physiotherapist physio : allPhysios) {
+            sortedPhysios.add(new RankedPhysio(physio,
+                bookingSystem.getAppointmentCountsForPhysiotherapist(physio.getId())));
+        }
+
+        // Sort physiotherapists by attended appointments (descending)
+        sortedPhysios.sort(Comparator.comparingInt((RankedPhysio r) -> r.counts.getAttended()).reversed());
+        return sortedPhysios;
+    }
+
+    private void writePhysioSection(Writer report, RankedPhysio ranked) throws IOException {
+        Physiotherapist physio = ranked.physio;
+        AppointmentCounts counts = ranked.counts;
+
+        report.write("PHYSIOTHERAPIST: ");
+        report.write(physio.getFullName());
+        report.write("\nExpertise Areas: ");
+        report.write(String.join(", ", physio.getExpertiseAreas()));
+        report.write("\n--------------------------------------------------\n");
+
+        if (counts.getTotal() == 0) {
+            report.write("No appointments recorded.\n\n");
+            return;
+        }
+
+        report.write("Total Appointments: ");
+        report.write(Integer.toString(counts.getTotal()));
+        report.write(" (Booked: ");
+        report.write(Integer.toString(counts.getBooked()));
+        report.write(", Cancelled: ");
+        report.write(Integer.toString(counts.getCancelled()));
+        report.write(", Attended: ");
+        report.write(Integer.toString(counts.getAttended()));
+        report.write(")\n\n");
+
+        report.write("APPOINTMENT DETAILS:\n");
+        for (Appointment appt : bookingSystem.getAppointmentsForPhysiotherapist(physio.getId())) {
+            report.write("- ");
+            appt.getTimeSlot().appendFormattedTimeRange(report);
+            report.write(" | Treatment: ");
+            report.write(appt.getTreatment().getName());
+            report.write(" | Patient: ");
+            report.write(appt.getPatient().getFullName());
+            report.write(" | Status: ");
+            report.write(appt.getStatus().name());
+            report.write('\n');
+        }
+
+        report.write("\n\n");
+    }
+}
@@ -0,0 +1,123 @@
+package com.boostphysio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// What a restart needs from a sealed week without reading it back: the
+// appointment IDs in row order, each patient's and physiotherapist's IDs with
+// their counts by status, and the time every appointment not cancelled holds
+// in its slot. Built when the week is sealed and saved in every snapshot, so
+// the week's file is only opened when something asks for its appointments.
+final class SealedWeek {
+    private static final int STATUS_COUNT = Appointment.Status.values().length;
+
+    // One person's appointments in the week
+    static final class Share<P> {
+        private final P person;
+        private final int[] ids;
+        private final int[] counts;
+
+        Share(P person, int[] ids, int[] counts) {
+            this.person = person;
+            this.ids = ids;
+            this.counts = counts;
+        }
+
+        // Getters
+        P getPerson() { return person; }
+        int[] getIds() { return ids; }
+        // Indexed by Appointment.Status ordinal
+        int[] getCounts() { return counts; }
+    }
+
+    // Minutes an appointment holds from the start of its slot
+    static final class Reservation {
+        private final Physiotherapist physiotherapist;
+        private final TimeSlot slot;
+        private final int minutes;
+
+        Reservation(Physiotherapist physiotherapist, TimeSlot slot, int minutes) {
+            this.physiotherapist = physiotherapist;
+            this.slot = slot;
+            this.minutes = minutes;
+        }
+
+        // Getters
+        Physiotherapist getPhysiotherapist() { return physiotherapist; }
+        TimeSlot getSlot() { return slot; }
+        int getMinutes() { return minutes; }
+    }
+
+    private final int[] ids;
+    private final List<Share<Patient>> patients;
+    private final List<Share<Physiotherapist>> physiotherapists;
+    private final List<Reservation> reservations;
+
+    SealedWeek(int[] ids, List<Share<Patient>> patients, List<Share<Physiotherapist>> physiotherapists,
+               List<Reservation> reservations) {
+        this.ids = ids;
+        this.patients = patients;
+        this.physiotherapists = physiotherapists;
+        this.reservations = reservations;
+    }
+
+    // Summarises a week's rows, in row order, once their statuses are final
+    static SealedWeek of(List<Appointment> appointments) {
+        int[] ids = new int[appointments.size()];
+        Map<Patient, Tally> byPatient = new IdentityHashMap<>();
+        Map<Physiotherapist, Tally> byPhysiotherapist = new IdentityHashMap<>();
+        List<Reservation> reservations = new ArrayList<>();
+        for (int row = 0; row < ids.length; row++) {
+            Appointment appointment = appointments.get(row);
+            ids[row] = appointment.getId();
+            byPatient.computeIfAbsent(appointment.getPatient(), patient -> new Tally()).add(appointment);
+            byPhysiotherapist.computeIfAbsent(appointment.getPhysiotherapist(), physio -> new Tally())
+                .add(appointment);
+            if (appointment.getStatus() != Appointment.Status.CANCELLED) {
+                reservations.add(new Reservation(appointment.getPhysiotherapist(), appointment.getTimeSlot(),
+                    appointment.getTreatment().getDurationMinutes()));
+            }
+        }
+        return new SealedWeek(ids, shares(byPatient), shares(byPhysiotherapist), reservations);
+    }
+
+    // Getters
+    int[] getIds() { return ids; }
+    List<Share<Patient>> getPatients() { return patients; }
+    List<Share<Physiotherapist>> getPhysiotherapists() { return physiotherapists; }
+    List<Reservation> getReservations() { return reservations; }
+
+    int getMaxId() {
+        int max = 0;
+        for (int id : ids) {
+            max = Math.max(max, id);
+        }
+        return max;
+    }
+
+    private static <P> List<Share<P>> shares(Map<P, Tally> tallies) {
+        List<Share<P>> shares = new ArrayList<>(tallies.size());
+        for (Map.Entry<P, Tally> entry : tallies.entrySet()) {
+            Tally tally = entry.getValue();
+            shares.add(new Share<>(entry.getKey(), Arrays.copyOf(tally.ids, tally.size), tally.counts));
+        }
+        return shares;
+    }
+
+    private static final class Tally {
+        private int[] ids = new int[4];
+        private int size;
+        private final int[] counts = new int[STATUS_COUNT];
+
+        void add(Appointment appointment) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = appointment.getId();
+            counts[appointment.getStatus().ordinal()]++;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.boostphysio;
+
+import java.time.LocalDate;
+
+// One bookable combination of physiotherapist, treatment and free time slot,
+// as returned by the BookingSystem slot searches
+public final class SlotOffer {
+    private final Physiotherapist physiotherapist;
+    private final Treatment treatment;
+    private final TimeSlot timeSlot;
+    private final LocalDate date;
+    
+    public SlotOffer(Physiotherapist physiotherapist, Treatment treatment, TimeSlot timeSlot, LocalDate date) {
+        this.physiotherapist = physiotherapist;
+        this.treatment = treatment;
+        this.timeSlot = timeSlot;
+        this.date = date;
+    }
+    
+    // Getters
+    public Physiotherapist getPhysiotherapist() { return physiotherapist; }
+    public Treatment getTreatment() { return treatment; }
+    public TimeSlot getTimeSlot() { return timeSlot; }
+    public LocalDate getDate() { return date; }
+    
+    @Override
+    public String toString() {
+        return physiotherapist.getFullName() + " - " + treatment.getName() + " - " +
+               timeSlot.getFormattedTimeRange();
+    }
+}
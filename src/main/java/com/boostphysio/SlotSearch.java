@@ -0,0 +1,82 @@
+package com.boostphysio;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+// Lazy cursor over the free slots of a list of (physiotherapist, treatment)
+// offerings, optionally limited to a date range. Nothing is materialised up
+// front: each call to next() walks the timetables just far enough to find the
+// following free slot, and days outside the range are never visited.
+class SlotSearch implements Iterator<SlotOffer> {
+    private final Iterator<ExpertiseIndex.Offering> offerings;
+    private ExpertiseIndex.Offering offering;
+    private final LocalDate from;
+    private final LocalDate to;
+    private Iterator<Map.Entry<LocalDate, List<TimeSlot>>> days = Collections.emptyIterator();
+    private LocalDate date;
+    private Iterator<TimeSlot> slots = Collections.emptyIterator();
+    private SlotOffer next;
+    
+    SlotSearch(List<ExpertiseIndex.Offering> offerings) {
+        this(offerings, null, null);
+    }
+    
+    // from and to are inclusive; null leaves that end of the range open
+    SlotSearch(List<ExpertiseIndex.Offering> offerings, LocalDate from, LocalDate to) {
+        this.offerings = offerings.iterator();
+        this.from = from;
+        this.to = to;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            if (slots.hasNext()) {
+                TimeSlot slot = slots.next();
+                if (slot.canStart(offering.getTreatment().getDurationMinutes())) {
+                    next = new SlotOffer(offering.getPhysiotherapist(), offering.getTreatment(), slot, date);
+                }
+            } else if (days.hasNext()) {
+                Map.Entry<LocalDate, List<TimeSlot>> day = days.next();
+                date = day.getKey();
+                slots = day.getValue().iterator();
+            } else if (offerings.hasNext()) {
+                offering = offerings.next();
+                days = offering.getPhysiotherapist().getTimetable(from, to).entrySet().iterator();
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public SlotOffer next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        SlotOffer offer = next;
+        next = null;
+        return offer;
+    }
+    
+    // Skips the first offset offers and collects at most limit after that
+    static List<SlotOffer> page(Iterator<SlotOffer> offers, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        for (int i = 0; i < offset && offers.hasNext(); i++) {
+            offers.next();
+        }
+        List<SlotOffer> page = new ArrayList<>(Math.min(limit, 64));
+        while (page.size() < limit && offers.hasNext()) {
+            page.add(offers.next());
+        }
+        return page;
+    }
+}
@@ -1,36 +1,186 @@
 package com.boostphysio;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
+// Once added to a physiotherapist's timetable a slot is a view over that
+// physiotherapist's AvailabilityCalendar: availability and bookings live in
+// the calendar's bitmaps, not in the slot. A slot that has not been added to
+// a timetable yet keeps its own flag.
+// The times are held as epoch seconds and nanos; slots loaded from a snapshot
+// only build their LocalDateTimes when first asked, which keeps a timetable of
+// millions of slots small.
 public class TimeSlot {
     private LocalDateTime startTime;
     private LocalDateTime endTime;
-    private boolean isAvailable;
-    
-    private static final DateTimeFormatter formatter = 
+    private final long startSecond;
+    private final long endSecond;
+    private final int startNano;
+    private final int endNano;
+    // Availability before the slot is attached; a plain field rather than an
+    // AtomicBoolean so each slot is one object
+    private volatile boolean isAvailable = true;
+    private volatile AvailabilityCalendar calendar;
+
+    private static final VarHandle AVAILABLE;
+    static {
+        try {
+            AVAILABLE = MethodHandles.lookup().findVarHandle(TimeSlot.class, "isAvailable", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final DateTimeFormatter formatter =
         DateTimeFormatter.ofPattern("EEEE d MMMM yyyy, HH:mm");
-    
+    private static final DateTimeFormatter endFormatter = DateTimeFormatter.ofPattern("HH:mm");
+
     public TimeSlot(LocalDateTime startTime, LocalDateTime endTime) {
         this.startTime = startTime;
         this.endTime = endTime;
-        this.isAvailable = true;
+        this.startSecond = AvailabilityCalendar.toSecond(startTime);
+        this.endSecond = AvailabilityCalendar.toSecond(endTime);
+        this.startNano = startTime.getNano();
+        this.endNano = endTime.getNano();
+    }
+
+    TimeSlot(long startSecond, int startNano, long endSecond, int endNano) {
+        this.startSecond = startSecond;
+        this.endSecond = endSecond;
+        this.startNano = startNano;
+        this.endNano = endNano;
     }
-    
+
     // Getters and setters
-    public LocalDateTime getStartTime() { return startTime; }
-    public LocalDateTime getEndTime() { return endTime; }
-    
-    public boolean isAvailable() { return isAvailable; }
-    public void setAvailable(boolean available) { isAvailable = available; }
-    
+    public LocalDateTime getStartTime() {
+        LocalDateTime time = startTime;
+        if (time == null) {
+            time = LocalDateTime.ofEpochSecond(startSecond, startNano, ZoneOffset.UTC);
+            startTime = time;
+        }
+        return time;
+    }
+
+    public LocalDateTime getEndTime() {
+        LocalDateTime time = endTime;
+        if (time == null) {
+            time = LocalDateTime.ofEpochSecond(endSecond, endNano, ZoneOffset.UTC);
+            endTime = time;
+        }
+        return time;
+    }
+
+    // Day the slot starts on
+    public LocalDate getDate() {
+        return LocalDate.ofEpochDay(Math.floorDiv(startSecond, 86400));
+    }
+
+    long getStartSecond() {
+        return startSecond;
+    }
+
+    int getStartNano() {
+        return startNano;
+    }
+
+    long getEndSecond() {
+        return endSecond;
+    }
+
+    int getEndNano() {
+        return endNano;
+    }
+
+    // Orders slots by start time without building LocalDateTimes
+    int compareStart(TimeSlot other) {
+        int bySecond = Long.compare(startSecond, other.startSecond);
+        return bySecond != 0 ? bySecond : Integer.compare(startNano, other.startNano);
+    }
+
+    boolean startsAt(long second, int nano) {
+        return startSecond == second && startNano == nano;
+    }
+
+    public int getDurationMinutes() {
+        return (int) ((endSecond - startSecond) / 60);
+    }
+
+    public boolean isAvailable() {
+        AvailabilityCalendar c = calendar;
+        return c == null ? isAvailable : c.isFree(startSecond, endSecond);
+    }
+
+    public void setAvailable(boolean available) {
+        AvailabilityCalendar c = calendar;
+        if (c == null) {
+            isAvailable = available;
+        } else if (available) {
+            c.release(startSecond, endSecond);
+        } else {
+            c.reserve(startSecond, endSecond);
+        }
+    }
+
+    // True if a treatment of this length could start at the beginning of the slot
+    public boolean canStart(int durationMinutes) {
+        AvailabilityCalendar c = calendar;
+        return c == null ? isAvailable : c.isFree(startSecond, startSecond + durationMinutes * 60L);
+    }
+
+    // Atomically claims the slot; returns false if someone else got there first
+    public boolean tryReserve() {
+        return tryReserve(getDurationMinutes());
+    }
+
+    // Atomically claims exactly durationMinutes from the start of the slot
+    public boolean tryReserve(int durationMinutes) {
+        AvailabilityCalendar c = calendar;
+        return c == null
+            ? AVAILABLE.compareAndSet(this, true, false)
+            : c.tryReserve(startSecond, startSecond + durationMinutes * 60L);
+    }
+
+    public void release() {
+        release(getDurationMinutes());
+    }
+
+    public void release(int durationMinutes) {
+        AvailabilityCalendar c = calendar;
+        if (c == null) {
+            isAvailable = true;
+        } else {
+            c.release(startSecond, startSecond + durationMinutes * 60L);
+        }
+    }
+
+    // Called when the slot is added to a timetable: publishes the slot's time
+    // as open and carries over a booking made before it was attached
+    void attach(AvailabilityCalendar calendar) {
+        calendar.open(startSecond, endSecond);
+        if (!isAvailable) {
+            calendar.reserve(startSecond, endSecond);
+        }
+        this.calendar = calendar;
+    }
+
     public String getFormattedTimeRange() {
-        return startTime.format(formatter) + "-" + 
-               endTime.format(DateTimeFormatter.ofPattern("HH:mm"));
+        return getStartTime().format(formatter) + "-" + getEndTime().format(endFormatter);
     }
-    
+
+    // Same text as getFormattedTimeRange, written straight to the output
+    public void appendFormattedTimeRange(Appendable out) throws IOException {
+        formatter.formatTo(getStartTime(), out);
+        out.append('-');
+        endFormatter.formatTo(getEndTime(), out);
+    }
+
     @Override
     public String toString() {
-        return getFormattedTimeRange() + (isAvailable ? " (Available)" : " (Booked)");
+        return getFormattedTimeRange() + (isAvailable() ? " (Available)" : " (Booked)");
     }
-}
\ No newline at end of file
+}
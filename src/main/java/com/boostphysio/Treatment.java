@@ -1,14 +1,17 @@
 package com.boostphysio;
 
-
 public class Treatment {
-    private String name;
-    private String expertiseArea;
-    private int durationMinutes;
+    private final String name;
+    private final String expertiseArea;
+    private final int durationMinutes;
     
+    // The name and area are trimmed with inner runs of spaces collapsed
     public Treatment(String name, String expertiseArea, int durationMinutes) {
-        this.name = name;
-        this.expertiseArea = expertiseArea;
+        this.name = ExpertiseCatalog.normalize(name);
+        this.expertiseArea = ExpertiseCatalog.normalize(expertiseArea);
+        if (this.expertiseArea.isEmpty()) {
+            throw new IllegalArgumentException("Expertise area must not be blank");
+        }
         this.durationMinutes = durationMinutes;
     }
     
@@ -17,8 +20,30 @@ public class Treatment {
     public String getExpertiseArea() { return expertiseArea; }
     public int getDurationMinutes() { return durationMinutes; }
     
+    // Treatments are values: physios in one booking system share one instance
+    // per name, area and duration (see ExpertiseCatalog), and an equal copy
+    // stands for it. Names and areas match ignoring case the way NameIndex
+    // does, so equal treatments always hash alike.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Treatment)) {
+            return false;
+        }
+        Treatment other = (Treatment) o;
+        return durationMinutes == other.durationMinutes && NameIndex.matches(name, other.name)
+            && NameIndex.matches(expertiseArea, other.expertiseArea);
+    }
+    
+    @Override
+    public int hashCode() {
+        return (NameIndex.hash(name) * 31 + NameIndex.hash(expertiseArea)) * 31 + durationMinutes;
+    }
+    
     @Override
     public String toString() {
         return name + " (" + expertiseArea + ", " + durationMinutes + " mins)";
     }
-}
\ No newline at end of file
+}
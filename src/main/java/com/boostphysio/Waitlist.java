@@ -0,0 +1,323 @@
+package com.boostphysio;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Every waitlist of a BookingSystem. Each (physiotherapist, treatment) pair and
+// each expertise area has its own priority queue. When a cancellation or
+// reschedule frees a slot, only the heads of the queues that could use it are
+// compared: the physio's queue for each treatment that fits the slot, and the
+// queue for the cancelled treatment's area. So the best match is found and
+// taken in O(log n). An auto-booking entry is booked into the slot straight
+// away; any other gets it as an offer to accept or decline, and the slot
+// stays free for anyone until then. An offer not answered within the offer
+// timeout passes to the next in line as if declined; deadlines are checked
+// whenever the waitlist is used. Entries that left, or whose patient was
+// removed, are dropped when they reach the head of their queue.
+// Waitlists live in memory only; bookings made from them are logged as usual,
+// and one that fails for any reason but a taken slot counts as a failed
+// WAITLIST operation in the system's metrics.
+class Waitlist {
+    // Highest priority first, then first come first served
+    private static final Comparator<WaitlistEntry> ORDER = (a, b) -> {
+        int byPriority = Integer.compare(b.getPriority(), a.getPriority());
+        return byPriority != 0 ? byPriority : Long.compare(a.getSequence(), b.getSequence());
+    };
+
+    static final Duration DEFAULT_OFFER_TIMEOUT = Duration.ofMinutes(30);
+
+    // An offer as made, so a deadline is only acted on if the entry still holds it
+    private static final class Deadline {
+        final WaitlistEntry entry;
+        final SlotOffer offer;
+        final LocalDateTime expires;
+
+        Deadline(WaitlistEntry entry, SlotOffer offer, LocalDateTime expires) {
+            this.entry = entry;
+            this.offer = offer;
+            this.expires = expires;
+        }
+    }
+
+    private final BookingSystem system;
+    private final ExpertiseCatalog catalog;
+    private volatile Duration offerTimeout = DEFAULT_OFFER_TIMEOUT;
+    // Guarded by this; never held while booking, which takes the checkpoint lock
+    private final Map<Integer, Map<Treatment, PriorityQueue<WaitlistEntry>>> byPhysio = new HashMap<>();
+    private final Map<Integer, PriorityQueue<WaitlistEntry>> byArea = new HashMap<>();
+    private final Map<Integer, WaitlistEntry> entries = new HashMap<>();
+    private final PriorityQueue<Deadline> deadlines = new PriorityQueue<>(
+        Comparator.comparing((Deadline deadline) -> deadline.expires));
+    private int nextId = 1;
+    private long nextSequence;
+
+    Waitlist(BookingSystem system, ExpertiseCatalog catalog) {
+        this.system = system;
+        this.catalog = catalog;
+    }
+
+    void setOfferTimeout(Duration timeout) {
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("Offer timeout must not be negative");
+        }
+        offerTimeout = timeout;
+    }
+
+    WaitlistEntry join(Patient patient, Physiotherapist physio, Treatment treatment, int priority, boolean autoBook) {
+        expireOffers();
+        synchronized (this) {
+            return add(patient, physio, treatment, treatment.getExpertiseArea(), priority, autoBook);
+        }
+    }
+
+    WaitlistEntry join(Patient patient, int areaId, int priority, boolean autoBook) {
+        expireOffers();
+        synchronized (this) {
+            return add(patient, null, null, catalog.name(areaId), priority, autoBook);
+        }
+    }
+
+    private WaitlistEntry add(Patient patient, Physiotherapist physio, Treatment treatment, String area,
+                              int priority, boolean autoBook) {
+        WaitlistEntry entry = new WaitlistEntry(nextId++, patient, physio, treatment, area, priority, autoBook,
+            nextSequence++);
+        entries.put(entry.getId(), entry);
+        enqueue(entry);
+        return entry;
+    }
+
+    // Still in its queue until it reaches the head; a slot it was offered
+    // goes to the next in line
+    void leave(int id) {
+        SlotOffer offer;
+        synchronized (this) {
+            WaitlistEntry entry = entries.remove(id);
+            if (entry == null) {
+                throw new IllegalArgumentException("Waitlist entry not found");
+            }
+            offer = entry.getOffer();
+            entry.left();
+        }
+        if (offer != null) {
+            offer(offer.getPhysiotherapist(), offer.getTreatment(), offer.getTimeSlot());
+        }
+        expireOffers();
+    }
+
+    List<WaitlistEntry> offers() {
+        expireOffers();
+        synchronized (this) {
+            List<WaitlistEntry> offers = new ArrayList<>();
+            for (WaitlistEntry entry : entries.values()) {
+                if (entry.getStatus() == WaitlistEntry.Status.OFFERED) {
+                    offers.add(entry);
+                }
+            }
+            offers.sort(ORDER);
+            return offers;
+        }
+    }
+
+    // Called once a cancelled appointment's slot is free again
+    void slotReleased(Appointment cancelled) {
+        Physiotherapist physio = cancelled.getPhysiotherapist();
+        TimeSlot slot = cancelled.getTimeSlot();
+        if (slot.getStartTime().isBefore(LocalDateTime.now())
+                || system.getPhysiotherapistById(physio.getId()) != physio) {
+            return;
+        }
+        expireOffers();
+        offer(physio, cancelled.getTreatment(), slot);
+    }
+
+    Appointment accept(int id) {
+        expireOffers();
+        WaitlistEntry entry;
+        SlotOffer offer;
+        synchronized (this) {
+            entry = entries.get(id);
+            if (entry == null) {
+                throw new IllegalArgumentException("Waitlist entry not found");
+            }
+            offer = entry.getOffer();
+            if (entry.getStatus() != WaitlistEntry.Status.OFFERED || offer == null) {
+                throw new IllegalStateException("Waitlist entry #" + id + " has no open offer");
+            }
+            // Claimed, so a second accept finds no offer
+            entry.offered(null, null);
+        }
+        try {
+            Appointment appointment = system.bookAppointment(entry.getPatient(), offer.getPhysiotherapist(),
+                offer.getTreatment(), offer.getTimeSlot());
+            synchronized (this) {
+                entries.remove(id);
+                entry.booked(appointment);
+            }
+            return appointment;
+        } catch (RuntimeException e) {
+            // Most likely someone else took the slot; the entry keeps its place
+            synchronized (this) {
+                requeue(entry);
+            }
+            if (e instanceof IllegalStateException) {
+                throw new IllegalStateException("The offered slot is no longer available", e);
+            }
+            throw e;
+        }
+    }
+
+    // The slot goes to the next in line; the entry keeps its own place
+    void decline(int id) {
+        expireOffers();
+        WaitlistEntry entry;
+        SlotOffer offer;
+        synchronized (this) {
+            entry = entries.get(id);
+            if (entry == null) {
+                throw new IllegalArgumentException("Waitlist entry not found");
+            }
+            offer = entry.getOffer();
+            if (entry.getStatus() != WaitlistEntry.Status.OFFERED || offer == null) {
+                throw new IllegalStateException("Waitlist entry #" + id + " has no open offer");
+            }
+            entry.offered(null, null);
+        }
+        passOn(entry, offer);
+    }
+
+    private void passOn(WaitlistEntry entry, SlotOffer offer) {
+        offer(offer.getPhysiotherapist(), offer.getTreatment(), offer.getTimeSlot());
+        synchronized (this) {
+            requeue(entry);
+        }
+    }
+
+    // Offers whose deadline has passed go to the next in line, soonest first
+    private void expireOffers() {
+        LocalDateTime now = LocalDateTime.now();
+        while (true) {
+            Deadline expired;
+            synchronized (this) {
+                expired = deadlines.peek();
+                // Strictly past, so offers made during this pass wait for the next
+                if (expired == null || !expired.expires.isBefore(now)) {
+                    return;
+                }
+                deadlines.poll();
+                // Answered or withdrawn since
+                if (expired.entry.getOffer() != expired.offer) {
+                    continue;
+                }
+                expired.entry.offered(null, null);
+            }
+            passOn(expired.entry, expired.offer);
+        }
+    }
+
+    // Hands the slot to the best waiting entry that can use it
+    private void offer(Physiotherapist physio, Treatment freed, TimeSlot slot) {
+        WaitlistEntry entry;
+        Treatment treatment;
+        synchronized (this) {
+            entry = takeBest(physio, freed, slot);
+            if (entry == null) {
+                return;
+            }
+            // Area entries take the treatment that was cancelled
+            treatment = entry.getTreatment() != null ? entry.getTreatment() : freed;
+            if (!entry.isAutoBook()) {
+                SlotOffer offer = new SlotOffer(physio, treatment, slot, slot.getDate());
+                LocalDateTime expires = LocalDateTime.now().plus(offerTimeout);
+                entry.offered(offer, expires);
+                deadlines.add(new Deadline(entry, offer, expires));
+                return;
+            }
+        }
+        try {
+            Appointment appointment = system.bookAppointment(entry.getPatient(), physio, treatment, slot);
+            synchronized (this) {
+                entries.remove(entry.getId());
+                entry.booked(appointment);
+            }
+        } catch (RuntimeException e) {
+            // Taken first, or its week was archived; the entry keeps its place.
+            // The cancellation that freed the slot has already happened, so
+            // this must not fail it.
+            synchronized (this) {
+                requeue(entry);
+            }
+            if (!(e instanceof IllegalStateException)) {
+                system.getMetrics().failed(BookingMetrics.Operation.WAITLIST);
+            }
+        }
+    }
+
+    private WaitlistEntry takeBest(Physiotherapist physio, Treatment freed, TimeSlot slot) {
+        WaitlistEntry best = null;
+        PriorityQueue<WaitlistEntry> bestQueue = null;
+        Map<Treatment, PriorityQueue<WaitlistEntry>> queues = byPhysio.get(physio.getId());
+        if (queues != null) {
+            for (Map.Entry<Treatment, PriorityQueue<WaitlistEntry>> queue : queues.entrySet()) {
+                if (!slot.canStart(queue.getKey().getDurationMinutes())) {
+                    continue;
+                }
+                WaitlistEntry head = head(queue.getValue());
+                if (head != null && (best == null || ORDER.compare(head, best) < 0)) {
+                    best = head;
+                    bestQueue = queue.getValue();
+                }
+            }
+        }
+        PriorityQueue<WaitlistEntry> area = byArea.get(catalog.find(freed.getExpertiseArea()));
+        if (area != null && slot.canStart(freed.getDurationMinutes())) {
+            WaitlistEntry head = head(area);
+            if (head != null && (best == null || ORDER.compare(head, best) < 0)) {
+                best = head;
+                bestQueue = area;
+            }
+        }
+        if (bestQueue != null) {
+            bestQueue.poll();
+        }
+        return best;
+    }
+
+    // Drops entries that left or whose patient is gone from the front of the queue
+    private WaitlistEntry head(PriorityQueue<WaitlistEntry> queue) {
+        WaitlistEntry head = queue.peek();
+        while (head != null && (head.getStatus() == WaitlistEntry.Status.LEFT
+                || system.getPatientById(head.getPatient().getId()) != head.getPatient())) {
+            queue.poll();
+            entries.remove(head.getId());
+            head.left();
+            head = queue.peek();
+        }
+        return head;
+    }
+
+    // Back in line after an offer, unless it left meanwhile
+    private void requeue(WaitlistEntry entry) {
+        if (entries.get(entry.getId()) == entry) {
+            enqueue(entry);
+        }
+    }
+
+    private void enqueue(WaitlistEntry entry) {
+        entry.waiting();
+        PriorityQueue<WaitlistEntry> queue;
+        if (entry.getPhysiotherapist() != null) {
+            queue = byPhysio.computeIfAbsent(entry.getPhysiotherapist().getId(), id -> new HashMap<>())
+                .computeIfAbsent(entry.getTreatment(), treatment -> new PriorityQueue<>(ORDER));
+        } else {
+            queue = byArea.computeIfAbsent(catalog.find(entry.getExpertiseArea()),
+                id -> new PriorityQueue<>(ORDER));
+        }
+        queue.add(entry);
+    }
+}
@@ -0,0 +1,90 @@
+package com.boostphysio;
+
+import java.time.LocalDateTime;
+
+// A patient waiting for a slot to free up, either with one physiotherapist for
+// one treatment or with anyone qualified in an expertise area. Higher
+// priorities are served first, and first come first served within a priority.
+public final class WaitlistEntry {
+    public enum Status {
+        WAITING, OFFERED, BOOKED, LEFT
+    }
+
+    private final int id;
+    private final Patient patient;
+    private final Physiotherapist physiotherapist;
+    private final Treatment treatment;
+    private final String expertiseArea;
+    private final int priority;
+    private final boolean autoBook;
+    private final long sequence;
+    private volatile Status status = Status.WAITING;
+    private volatile SlotOffer offer;
+    private volatile LocalDateTime offerExpires;
+    private volatile Appointment appointment;
+
+    // physiotherapist and treatment are null for an expertise area waitlist
+    WaitlistEntry(int id, Patient patient, Physiotherapist physiotherapist, Treatment treatment,
+                  String expertiseArea, int priority, boolean autoBook, long sequence) {
+        this.id = id;
+        this.patient = patient;
+        this.physiotherapist = physiotherapist;
+        this.treatment = treatment;
+        this.expertiseArea = expertiseArea;
+        this.priority = priority;
+        this.autoBook = autoBook;
+        this.sequence = sequence;
+    }
+
+    // Getters
+    public int getId() { return id; }
+    public Patient getPatient() { return patient; }
+    public Physiotherapist getPhysiotherapist() { return physiotherapist; }
+    public Treatment getTreatment() { return treatment; }
+    public String getExpertiseArea() { return expertiseArea; }
+    public int getPriority() { return priority; }
+    public boolean isAutoBook() { return autoBook; }
+    public Status getStatus() { return status; }
+    // The slot on offer while OFFERED
+    public SlotOffer getOffer() { return offer; }
+    // When an unanswered offer passes to the next in line
+    public LocalDateTime getOfferExpires() { return offerExpires; }
+    // The appointment made once BOOKED
+    public Appointment getAppointment() { return appointment; }
+
+    long getSequence() { return sequence; }
+
+    void waiting() {
+        offer = null;
+        offerExpires = null;
+        status = Status.WAITING;
+    }
+
+    void offered(SlotOffer offer, LocalDateTime expires) {
+        this.offer = offer;
+        offerExpires = expires;
+        status = Status.OFFERED;
+    }
+
+    void booked(Appointment appointment) {
+        this.appointment = appointment;
+        offer = null;
+        offerExpires = null;
+        status = Status.BOOKED;
+    }
+
+    void left() {
+        offer = null;
+        offerExpires = null;
+        status = Status.LEFT;
+    }
+
+    @Override
+    public String toString() {
+        String wanted = physiotherapist != null
+            ? treatment.getName() + " with " + physiotherapist.getFullName()
+            : expertiseArea;
+        return "Waitlist #" + id + ": " + patient.getFullName() + " for " + wanted + " (priority " + priority
+            + ", " + status + ")";
+    }
+}
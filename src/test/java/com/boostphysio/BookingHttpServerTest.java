@@ -0,0 +1,136 @@
+package com.boostphysio;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class BookingHttpServerTest {
+    private BookingSystem bookingSystem;
+    private BookingHttpServer server;
+    private HttpClient client;
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        bookingSystem = new BookingSystem();
+        Physiotherapist physio = new Physiotherapist(1, "Http Physio", "1 Web St", "555-0001");
+        physio.addExpertiseArea("Physiotherapy");
+        physio.addTreatment(new Treatment("Massage", "Physiotherapy", 60));
+        start = LocalDateTime.of(2034, 3, 6, 9, 0);
+        for (int i = 0; i < 100; i++) {
+            physio.addTimeSlot(new TimeSlot(start.plusHours(i), start.plusHours(i + 1)));
+        }
+        bookingSystem.addPhysiotherapist(physio);
+        for (int id = 1; id <= 100; id++) {
+            bookingSystem.addPatient(new Patient(id, "Web Patient " + id, "2 Web St", null));
+        }
+        server = new BookingHttpServer(bookingSystem, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path));
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(request(path).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return client.send(request(path).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+            HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testBookingLifecycleOverHttp() throws Exception {
+        System.out.println("\n--- Test: Booking Over HTTP ---");
+        HttpResponse<String> slots = get("/slots?expertise=Physiotherapy&after=" + start + "&limit=2");
+        assertEquals(200, slots.statusCode());
+        assertTrue(slots.body().startsWith("[{\"physioId\":1,"), slots.body());
+        assertTrue(slots.body().contains("\"start\":\"" + start + "\""), "Soonest slot should come first");
+
+        System.out.println("Booking, rescheduling and attending...");
+        HttpResponse<String> booked = post("/appointments",
+            "{\"patientId\": 1, \"physioId\": 1, \"treatment\": \"Massage\", \"start\": \"" + start + "\"}");
+        assertEquals(201, booked.statusCode(), booked.body());
+        Map<String, String> appointment = BulkImporter.parseJsonObject(booked.body());
+        assertEquals("BOOKED", appointment.get("status"));
+
+        HttpResponse<String> taken = post("/appointments",
+            "{\"patientId\": 2, \"physioId\": 1, \"treatment\": \"Massage\", \"start\": \"" + start + "\"}");
+        assertEquals(409, taken.statusCode(), "A taken slot is a conflict");
+        assertTrue(taken.body().startsWith("{\"error\":"));
+
+        HttpResponse<String> moved = post("/appointments/" + appointment.get("id") + "/reschedule",
+            "{\"start\": \"" + start.plusHours(1) + "\"}");
+        assertEquals(200, moved.statusCode(), moved.body());
+        String newId = BulkImporter.parseJsonObject(moved.body()).get("id");
+        assertEquals("CANCELLED", BulkImporter.parseJsonObject(get("/appointments/" + appointment.get("id")).body())
+            .get("status"));
+        HttpResponse<String> attended = post("/appointments/" + newId + "/attend", "");
+        assertEquals("ATTENDED", BulkImporter.parseJsonObject(attended.body()).get("status"));
+
+        HttpResponse<String> report = get("/report");
+        assertEquals(200, report.statusCode());
+        assertTrue(report.body().contains("Http Physio - 1 attended appointments"), report.body());
+
+        assertEquals(404, get("/appointments/999").statusCode());
+        assertEquals(404, post("/appointments/999/cancel", "").statusCode());
+        assertEquals(405, post("/slots", "").statusCode());
+        assertEquals(400, get("/slots").statusCode(), "Search needs a target");
+
+        System.out.println("Sending oversized bodies...");
+        String huge = "{\"patientId\": \"" + "x".repeat(20_000) + "\"}";
+        assertEquals(413, post("/appointments", huge).statusCode(), "A declared length over the cap is refused");
+        HttpResponse<String> chunked = client.send(request("/appointments").POST(HttpRequest.BodyPublishers
+            .ofInputStream(() -> new ByteArrayInputStream(huge.getBytes(StandardCharsets.UTF_8)))).build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(413, chunked.statusCode(), "A body without a length is cut off at the cap");
+        System.out.println("SUCCESS: Booking lifecycle works over HTTP.");
+    }
+
+    @Test
+    void testConcurrentBookingsOverHttp() throws Exception {
+        System.out.println("\n--- Test: Concurrent HTTP Bookings ---");
+        System.out.println("100 patients race for 100 slots, two tries each...");
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int patient = 1; patient <= 100; patient++) {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                LocalDateTime slot = start.plusHours((patient + attempt * 50) % 100);
+                responses.add(client.sendAsync(request("/appointments").POST(HttpRequest.BodyPublishers.ofString(
+                    "{\"patientId\": " + patient + ", \"physioId\": 1, \"treatment\": \"Massage\", \"start\": \""
+                        + slot + "\"}")).build(), HttpResponse.BodyHandlers.ofString()));
+            }
+        }
+        int created = 0;
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            int status = response.get().statusCode();
+            assertTrue(status == 201 || status == 409, "Unexpected status " + status);
+            created += status == 201 ? 1 : 0;
+        }
+        assertEquals(100, created, "Every slot should be booked exactly once");
+        assertEquals(100, bookingSystem.getAllAppointments().size());
+        System.out.println("SUCCESS: Concurrent bookings never double-booked a slot.");
+    }
+}
@@ -0,0 +1,349 @@
+package com.boostphysio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class BookingJournalTest {
+    @TempDir
+    Path dataDir;
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2031, 4, 7, 9, 0);
+
+    // A physio with four one-hour slots from 09:00, a patient and two bookings,
+    // one attended and one rescheduled
+    private void populate(BookingSystem system) {
+        Physiotherapist physio = new Physiotherapist(1, "Journal Physio", "1 Log St", null);
+        physio.addExpertiseArea("Physiotherapy");
+        physio.addTreatment(new Treatment("Massage", "Physiotherapy", 30));
+        system.addPhysiotherapist(physio);
+        for (int hour = 0; hour < 4; hour++) {
+            physio.addTimeSlot(new TimeSlot(MONDAY.plusHours(hour), MONDAY.plusHours(hour + 1)));
+        }
+
+        Patient patient = new Patient(101, "Journal Patient", "2 Log St", "555-0101");
+        system.addPatient(patient);
+        system.addPatient(new Patient(102, "Leaving Patient", "3 Log St", "555-0102"));
+        system.removePatient(102);
+
+        Treatment massage = physio.getTreatmentByName("Massage");
+        List<TimeSlot> slots = physio.getAvailableSlotsForDate(MONDAY.toLocalDate());
+        Appointment attended = system.bookAppointment(patient, physio, massage, slots.get(0));
+        Appointment moved = system.bookAppointment(patient, physio, massage, slots.get(1));
+        system.markAppointmentAsAttended(attended.getId());
+        system.rescheduleAppointment(moved.getId(), slots.get(3));
+    }
+
+    @Test
+    void testReplayRebuildsBookingSystem() throws IOException {
+        System.out.println("\n--- Test: Write-Ahead Log Replay ---");
+        String expectedReport;
+        try (BookingSystem system = BookingSystem.open(dataDir)) {
+            populate(system);
+            expectedReport = new ReportGenerator(system).generateEndOfTermReport();
+        }
+
+        System.out.println("Reopening the booking system from its log...");
+        try (BookingSystem reopened = BookingSystem.open(dataDir)) {
+            Physiotherapist physio = reopened.getPhysiotherapistById(1);
+            assertNotNull(physio, "Physiotherapist should be restored");
+            assertNull(physio.getPhoneNumber(), "Missing details should stay missing");
+            assertNotNull(reopened.getPatientById(101), "Patient should be restored");
+            assertNull(reopened.getPatientById(102), "Removed patient should stay removed");
+
+            assertEquals(Appointment.Status.ATTENDED, reopened.getAppointmentById(1).getStatus());
+            assertEquals(Appointment.Status.CANCELLED, reopened.getAppointmentById(2).getStatus());
+            assertEquals(Appointment.Status.BOOKED, reopened.getAppointmentById(3).getStatus());
+            assertEquals(expectedReport, new ReportGenerator(reopened).generateEndOfTermReport(),
+                "Report should be identical after replay");
+
+            // 10:00 was freed by the reschedule, 12:00 holds the new booking
+            assertTrue(physio.isAvailable(MONDAY.plusHours(1), 30), "Rescheduled-away slot should be free");
+            assertFalse(physio.isAvailable(MONDAY.plusHours(3), 30), "Rescheduled-to slot should be booked");
+
+            TimeSlot free = physio.getAvailableSlotsForDate(MONDAY.toLocalDate()).get(0);
+            Appointment next = reopened.bookAppointment(reopened.getPatientById(101), physio,
+                physio.getTreatmentByName("Massage"), free);
+            assertEquals(4, next.getId(), "Appointment IDs should carry on from the log");
+        }
+
+        try (BookingSystem again = BookingSystem.open(dataDir)) {
+            assertEquals(4, again.getAllAppointments().size(), "Bookings after a restart should be logged too");
+            Physiotherapist physio = again.getPhysiotherapistById(1);
+            physio.addTimeSlot(new TimeSlot(MONDAY.plusHours(4), MONDAY.plusHours(5)));
+            List<BookingRequest> batch = new ArrayList<>();
+            for (TimeSlot slot : physio.getAvailableSlotsForDate(MONDAY.toLocalDate())) {
+                batch.add(new BookingRequest(again.getPatientById(101), physio, physio.getTreatmentByName("Massage"), slot));
+            }
+            assertEquals(2, again.bookAppointments(batch).size());
+        }
+
+        try (BookingSystem batched = BookingSystem.open(dataDir)) {
+            assertEquals(6, batched.getAllAppointments().size(), "A batch should replay as a whole");
+            assertEquals(6, batched.getAppointmentById(6).getId());
+            assertTrue(batched.getPhysiotherapistById(1).getAvailableSlotsForDate(MONDAY.toLocalDate()).isEmpty(),
+                "Batched slots should be booked after replay");
+        }
+        System.out.println("SUCCESS: Booking system rebuilt from its log.");
+    }
+
+    @Test
+    void testSnapshotReplacesReplayedLog() throws IOException {
+        System.out.println("\n--- Test: Snapshot and Log Compaction ---");
+        String expectedReport;
+        try (BookingSystem system = BookingSystem.open(dataDir, null)) {
+            populate(system);
+            // A patient who leaves keeps their past appointments
+            Patient leaving = new Patient(105, "Former Patient", "6 Log St", "555-0105");
+            system.addPatient(leaving);
+            Physiotherapist physio = system.getPhysiotherapistById(1);
+            Appointment past = system.bookAppointment(leaving, physio, physio.getTreatmentByName("Massage"),
+                physio.getTimeSlotAt(MONDAY.plusHours(2)));
+            system.cancelAppointment(past.getId());
+            system.removePatient(105);
+            system.checkpoint();
+            assertEquals(0, Files.size(dataDir.resolve(BookingSystem.LOG_FILE)),
+                "Log should start again after a checkpoint");
+
+            // Changes after the snapshot only live in the log until the next one
+            physio.addTimeSlot(new TimeSlot(MONDAY.plusHours(5), MONDAY.plusHours(6)));
+            system.addPatient(new Patient(104, "After Snapshot", "5 Log St", "555-0104"));
+            system.cancelAppointment(3);
+            expectedReport = new ReportGenerator(system).generateEndOfTermReport();
+
+            // Simulate a crash: the log is synced, so skip the final snapshot
+            Files.copy(dataDir.resolve(BookingSystem.SNAPSHOT_FILE), dataDir.resolve("crashed.snapshot"));
+            Files.copy(dataDir.resolve(BookingSystem.LOG_FILE), dataDir.resolve("crashed.wal"));
+        }
+        Files.move(dataDir.resolve("crashed.snapshot"), dataDir.resolve(BookingSystem.SNAPSHOT_FILE),
+            StandardCopyOption.REPLACE_EXISTING);
+        Files.move(dataDir.resolve("crashed.wal"), dataDir.resolve(BookingSystem.LOG_FILE),
+            StandardCopyOption.REPLACE_EXISTING);
+
+        System.out.println("Loading the snapshot and the log written after it...");
+        try (BookingSystem reopened = BookingSystem.open(dataDir, null)) {
+            assertEquals(expectedReport, new ReportGenerator(reopened).generateEndOfTermReport(),
+                "Snapshot plus log should rebuild the same state");
+            assertNotNull(reopened.getPatientById(104), "Patient added after the snapshot should be restored");
+            assertNull(reopened.getPatientById(102), "Removed patient should stay removed");
+            assertNull(reopened.getPatientById(105), "Patient removed before the snapshot should stay removed");
+            assertEquals("Former Patient", reopened.getAppointmentById(4).getPatient().getFullName(),
+                "Past appointments should keep their removed patient");
+            Physiotherapist physio = reopened.getPhysiotherapistById(1);
+            assertTrue(physio.isAvailable(MONDAY.plusHours(5), 60), "Slot added after the snapshot should be open");
+            assertTrue(physio.isAvailable(MONDAY.plusHours(3), 30), "Cancelled booking should have freed its time");
+            assertFalse(physio.isAvailable(MONDAY, 30), "Attended booking should still hold its time");
+            assertEquals(5, reopened.bookAppointment(reopened.getPatientById(104), physio,
+                physio.getTreatmentByName("Massage"), physio.getTimeSlotAt(MONDAY.plusHours(5))).getId(),
+                "Appointment IDs should carry on from the snapshot");
+        }
+
+        // close() snapshots, leaving nothing to replay
+        assertEquals(0, Files.size(dataDir.resolve(BookingSystem.LOG_FILE)), "Close should compact the log");
+        try (BookingSystem again = BookingSystem.open(dataDir, null)) {
+            assertEquals(5, again.getAllAppointments().size(), "Snapshot from close should hold everything");
+        }
+        System.out.println("SUCCESS: Snapshot loaded and log compacted.");
+    }
+
+    @Test
+    void testArchivedWeeksStayReachable() throws IOException {
+        System.out.println("\n--- Test: Archived Weeks ---");
+        LocalDateTime nextMonday = MONDAY.plusWeeks(1);
+        String expectedReport;
+        AppointmentCounts expectedCounts;
+        try (BookingSystem system = BookingSystem.open(dataDir, null)) {
+            populate(system);
+            Physiotherapist physio = system.getPhysiotherapistById(1);
+            physio.addTimeSlot(new TimeSlot(nextMonday, nextMonday.plusHours(1)));
+            system.bookAppointment(system.getPatientById(101), physio, physio.getTreatmentByName("Massage"),
+                physio.getTimeSlotAt(nextMonday));
+            expectedReport = new ReportGenerator(system).generateEndOfTermReport();
+
+            assertEquals(3, system.archiveWeeksBefore(nextMonday.toLocalDate()), "Only the first week should be sealed");
+            assertTrue(Files.exists(dataDir.resolve(BookingSystem.ARCHIVE_DIRECTORY)
+                .resolve("week-" + MONDAY.toLocalDate() + ".gz")), "Sealed week should be on disk");
+            assertTrue(system.getAppointmentById(1).isArchived());
+            assertFalse(system.getAppointmentById(4).isArchived(), "Next week should stay live");
+            assertEquals(expectedReport, new ReportGenerator(system).generateEndOfTermReport(),
+                "Report should still include the archived week");
+            assertThrows(IllegalStateException.class, () -> system.cancelAppointment(3),
+                "Archived appointments should not change");
+            assertThrows(IllegalStateException.class, () -> system.bookAppointment(system.getPatientById(101),
+                physio, physio.getTreatmentByName("Massage"), physio.getTimeSlotAt(MONDAY.plusHours(1))),
+                "A sealed week should take no more bookings");
+            assertEquals(1, system.getAppointmentsBetween(nextMonday.toLocalDate(), nextMonday.toLocalDate()).size());
+            expectedCounts = system.getAppointmentCountsForPhysiotherapist(1);
+        }
+
+        System.out.println("Reopening with the archived week's file moved away...");
+        Path weekFile = dataDir.resolve(BookingSystem.ARCHIVE_DIRECTORY)
+            .resolve("week-" + MONDAY.toLocalDate() + ".gz");
+        Path movedAway = weekFile.resolveSibling("moved-away");
+        Files.move(weekFile, movedAway);
+        try (BookingSystem reopened = BookingSystem.open(dataDir, null)) {
+            AppointmentCounts counts = reopened.getAppointmentCountsForPhysiotherapist(1);
+            assertEquals(expectedCounts.getTotal(), counts.getTotal(),
+                "Archived appointments should be counted without reading the week");
+            assertEquals(expectedCounts.getAttended(), counts.getAttended());
+            assertFalse(reopened.getPhysiotherapistById(1).isAvailable(MONDAY, 30),
+                "Archived bookings should hold their time without reading the week");
+        }
+        Files.move(movedAway, weekFile);
+
+        System.out.println("Reopening with the first week in the archive...");
+        try (BookingSystem reopened = BookingSystem.open(dataDir, null)) {
+            assertEquals(expectedReport, new ReportGenerator(reopened).generateEndOfTermReport(),
+                "Archived week should be found again after a restart");
+            assertEquals(4, reopened.getAppointmentsForPatient(101).size());
+            assertEquals(Appointment.Status.ATTENDED, reopened.getAppointmentById(1).getStatus());
+            assertFalse(reopened.getPhysiotherapistById(1).isAvailable(MONDAY, 30),
+                "Archived bookings should still hold their time");
+            assertEquals(1, reopened.getArchivedWeeks().size());
+            reopened.cancelAppointment(4);
+            Physiotherapist physio = reopened.getPhysiotherapistById(1);
+            assertEquals(5, reopened.bookAppointment(reopened.getPatientById(101), physio,
+                physio.getTreatmentByName("Massage"), physio.getTimeSlotAt(nextMonday)).getId(),
+                "Appointment IDs should carry on past the archive");
+        }
+        System.out.println("SUCCESS: Archived weeks sealed and read back.");
+    }
+
+    @Test
+    void testTornRecordIsDiscarded() throws IOException {
+        System.out.println("\n--- Test: Torn Log Record ---");
+        try (BookingSystem system = BookingSystem.open(dataDir)) {
+            populate(system);
+        }
+
+        // Simulate a crash part way through writing the last record
+        Path log = dataDir.resolve(BookingSystem.LOG_FILE);
+        long intact = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 40, 1, 2, 3 }));
+        }
+
+        try (BookingSystem reopened = BookingSystem.open(dataDir)) {
+            assertEquals(3, reopened.getAllAppointments().size(), "Intact records should all be replayed");
+            assertEquals(intact, Files.size(log), "Torn record should be cut off");
+            reopened.addPatient(new Patient(103, "After Crash", "4 Log St", "555-0103"));
+        }
+
+        try (BookingSystem again = BookingSystem.open(dataDir)) {
+            assertNotNull(again.getPatientById(103), "Records after the torn one should replay");
+        }
+        System.out.println("SUCCESS: Torn record discarded.");
+    }
+
+    @Test
+    void testSameNamedTreatmentsStayApart() throws IOException {
+        System.out.println("\n--- Test: Treatments Sharing a Name ---");
+        try (BookingSystem system = BookingSystem.open(dataDir, null)) {
+            populate(system);
+            Physiotherapist physio = system.getPhysiotherapistById(1);
+            physio.addExpertiseArea("Sports Therapy");
+            physio.addTreatment(new Treatment("Massage", "Physiotherapy", 45));
+            physio.addTreatment(new Treatment("Massage", "Sports Therapy", 30));
+            Treatment longer = physio.getTreatment(new Treatment("Massage", "Physiotherapy", 45));
+            Treatment sports = physio.getTreatment(new Treatment("Massage", "Sports Therapy", 30));
+            Patient patient = system.getPatientById(101);
+            system.bookAppointment(patient, physio, longer, physio.getTimeSlotAt(MONDAY.plusHours(1)));
+            system.bookAppointments(List.of(
+                new BookingRequest(patient, physio, sports, physio.getTimeSlotAt(MONDAY.plusHours(2)))));
+            // Simulate a crash, so everything is replayed from the log
+            Files.copy(dataDir.resolve(BookingSystem.LOG_FILE), dataDir.resolve("crashed.wal"));
+        }
+        Files.delete(dataDir.resolve(BookingSystem.SNAPSHOT_FILE));
+        Files.move(dataDir.resolve("crashed.wal"), dataDir.resolve(BookingSystem.LOG_FILE),
+            StandardCopyOption.REPLACE_EXISTING);
+
+        try (BookingSystem reopened = BookingSystem.open(dataDir, null)) {
+            assertEquals(3, reopened.getPhysiotherapistById(1).getTreatments().size(),
+                "Each Massage should be replayed as its own treatment");
+            assertEquals(new Treatment("Massage", "Physiotherapy", 45), reopened.getAppointmentById(4).getTreatment());
+            assertEquals(new Treatment("Massage", "Sports Therapy", 30), reopened.getAppointmentById(5).getTreatment());
+            assertFalse(reopened.getPhysiotherapistById(1).isAvailable(MONDAY.plusHours(1).plusMinutes(30), 15),
+                "The longer treatment should hold its full 45 minutes");
+        }
+
+        System.out.println("Reopening from the snapshot written on close...");
+        try (BookingSystem again = BookingSystem.open(dataDir, null)) {
+            Physiotherapist physio = again.getPhysiotherapistById(1);
+            assertEquals(3, physio.getTreatments().size());
+            assertSame(physio.getTreatment(new Treatment("Massage", "Physiotherapy", 45)),
+                again.getAppointmentById(4).getTreatment(), "Appointment should use the listed treatment");
+            assertSame(physio.getTreatment(new Treatment("Massage", "Sports Therapy", 30)),
+                again.getAppointmentById(5).getTreatment());
+        }
+        System.out.println("SUCCESS: Same-named treatments kept their area and duration.");
+    }
+
+    @Test
+    void testInvalidBookingsAreRejectedBeforeLogging() throws IOException {
+        System.out.println("\n--- Test: Invalid Bookings Never Reach the Log ---");
+        try (BookingSystem system = BookingSystem.open(dataDir)) {
+            populate(system);
+        }
+        LocalDateTime tuesday = MONDAY.plusDays(1);
+
+        assertRejected("Unregistered patient", system -> {
+            Physiotherapist physio = system.getPhysiotherapistById(1);
+            system.bookAppointment(new Patient(101, "Impostor", "9 Log St", null), physio,
+                physio.getTreatmentByName("Massage"), physio.getTimeSlotAt(MONDAY.plusHours(1)));
+        });
+        assertRejected("Unregistered physio", system -> {
+            Physiotherapist stranger = new Physiotherapist(2, "Stranger", "8 Log St", null);
+            stranger.addExpertiseArea("Physiotherapy");
+            Treatment massage = new Treatment("Massage", "Physiotherapy", 30);
+            stranger.addTreatment(massage);
+            TimeSlot slot = new TimeSlot(tuesday, tuesday.plusHours(1));
+            stranger.addTimeSlot(slot);
+            system.bookAppointment(system.getPatientById(101), stranger, massage, slot);
+        });
+        assertRejected("Treatment not offered", system -> {
+            Physiotherapist physio = system.getPhysiotherapistById(1);
+            system.bookAppointment(system.getPatientById(101), physio,
+                new Treatment("Acupuncture", "Physiotherapy", 30), physio.getTimeSlotAt(MONDAY.plusHours(1)));
+        });
+        assertRejected("Slot outside the timetable", system -> {
+            Physiotherapist physio = system.getPhysiotherapistById(1);
+            system.bookAppointment(system.getPatientById(101), physio, physio.getTreatmentByName("Massage"),
+                new TimeSlot(tuesday, tuesday.plusHours(1)));
+        });
+        assertRejected("Batch with a slot outside the timetable", system -> {
+            Physiotherapist physio = system.getPhysiotherapistById(1);
+            Patient patient = system.getPatientById(101);
+            Treatment massage = physio.getTreatmentByName("Massage");
+            system.bookAppointments(List.of(
+                new BookingRequest(patient, physio, massage, physio.getTimeSlotAt(MONDAY.plusHours(1))),
+                new BookingRequest(patient, physio, massage, new TimeSlot(tuesday, tuesday.plusHours(1)))));
+        });
+        assertRejected("Reschedule outside the timetable", system ->
+            system.rescheduleAppointment(3, new TimeSlot(tuesday, tuesday.plusHours(1))));
+        System.out.println("SUCCESS: Rejected bookings left the log replayable.");
+    }
+
+    private void assertRejected(String what, Consumer<BookingSystem> booking) throws IOException {
+        System.out.println(what + "...");
+        try (BookingSystem system = BookingSystem.open(dataDir)) {
+            assertThrows(IllegalArgumentException.class, () -> booking.accept(system), what);
+        }
+        try (BookingSystem reopened = BookingSystem.open(dataDir)) {
+            assertEquals(3, reopened.getAllAppointments().size(), what + " should not be logged");
+            assertTrue(reopened.getPhysiotherapistById(1).isAvailable(MONDAY.plusHours(1), 30),
+                what + " should not claim a slot");
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.boostphysio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+public class BookingMetricsTest {
+
+    @Test
+    void testHistogramPercentiles() throws InterruptedException {
+        System.out.println("\n--- Test: Latency Histogram Percentiles ---");
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            pool.execute(() -> {
+                // 1..100_000 ns, split across four threads
+                for (long v = 1 + thread; v <= 100_000; v += 4) {
+                    histogram.record(v);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(100_000, histogram.getCount(), "No recording may be lost");
+        assertEquals(100_000, histogram.getMaxNanos());
+        assertEquals(50_000.5, histogram.getMeanNanos(), 0.001);
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            double exact = percentile * 1000;
+            long reported = histogram.getPercentileNanos(percentile);
+            assertTrue(reported >= exact && reported <= exact * 1.0625,
+                "p" + percentile + " should be within one bucket: " + reported);
+        }
+        LatencyHistogram small = new LatencyHistogram();
+        for (long v = 1; v <= 10; v++) {
+            small.record(v);
+        }
+        assertEquals(5, small.getPercentileNanos(50), "Small values have exact buckets");
+        for (long v = 1; v < 1L << 62; v = v * 3 + 1) {
+            int bucket = LatencyHistogram.bucketOf(v);
+            assertTrue(v <= LatencyHistogram.highestIn(bucket), "Bucket must cover " + v);
+            assertTrue(bucket == 0 || v > LatencyHistogram.highestIn(bucket - 1), "Buckets must not overlap at " + v);
+        }
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        System.out.println("SUCCESS: Percentiles stay within a bucket.");
+    }
+
+    @Test
+    void testOperationsAreRecordedAndExposedOverJmx() throws Exception {
+        System.out.println("\n--- Test: Booking Metrics over JMX ---");
+        BookingSystem system = new BookingSystem();
+        Physiotherapist physio = new Physiotherapist(1, "Metric Physio", "1 Timer St", "555-0001");
+        physio.addExpertiseArea("Physiotherapy");
+        Treatment treatment = new Treatment("Assessment", "Physiotherapy", 60);
+        physio.addTreatment(treatment);
+        LocalDateTime nine = LocalDateTime.of(2031, 6, 2, 9, 0);
+        TimeSlot slot = new TimeSlot(nine, nine.plusHours(1));
+        physio.addTimeSlot(slot);
+        system.addPhysiotherapist(physio);
+        Patient patient = new Patient(101, "Metric Patient", "2 Timer St", "555-0101");
+        system.addPatient(patient);
+
+        system.findAvailableSlotsByExpertise("Physiotherapy", 0, 10);
+        assertThrows(IllegalArgumentException.class,
+            () -> system.findAvailableSlotsByExpertise("Physiotherapy", -1, 10));
+        Appointment appointment = system.bookAppointment(patient, physio, treatment, slot);
+        assertThrows(IllegalStateException.class, () -> system.bookAppointment(patient, physio, treatment, slot));
+        system.cancelAppointment(appointment.getId());
+        new ReportGenerator(system).generateEndOfTermReport();
+
+        BookingMetrics metrics = system.getMetrics();
+        OperationLatency book = metrics.getLatency(BookingMetrics.Operation.BOOK);
+        assertEquals(2, book.getCount(), "Failed bookings are timed too");
+        assertEquals(1, book.getFailures());
+        assertTrue(book.getP50Micros() <= book.getMaxMicros());
+        OperationLatency search = metrics.getLatency(BookingMetrics.Operation.SEARCH_BY_EXPERTISE);
+        assertEquals(2, search.getCount());
+        assertEquals(1, search.getFailures(), "Failed queries are counted like failed changes");
+        assertEquals(1, metrics.getLatency(BookingMetrics.Operation.CANCEL).getCount());
+        assertEquals(1, metrics.getLatency(BookingMetrics.Operation.REPORT).getCount());
+        assertEquals(0, metrics.getLatency(BookingMetrics.Operation.RESCHEDULE).getCount());
+
+        metrics.registerMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(BookingMetrics.OBJECT_NAME);
+        CompositeData[] latencies = (CompositeData[]) server.getAttribute(name, "Latencies");
+        assertEquals(metrics.getLatencies().size(), latencies.length);
+        assertEquals("ADD_PHYSIOTHERAPIST", latencies[0].get("operation"));
+        server.invoke(name, "reset", null, null);
+        assertTrue(metrics.getLatencies().isEmpty(), "Reset over JMX should clear the counters");
+        server.unregisterMBean(name);
+        System.out.println("SUCCESS: Metrics recorded and readable over JMX.");
+    }
+}
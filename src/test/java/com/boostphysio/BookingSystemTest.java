@@ -4,9 +4,20 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class BookingSystemTest {
     private BookingSystem bookingSystem;
@@ -200,4 +211,457 @@ public class BookingSystemTest {
         assertEquals(Appointment.Status.ATTENDED, attended.getStatus(), "Status should be ATTENDED");
         System.out.println("SUCCESS: Appointment marked as attended.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testConcurrentBookingOfSameSlot() throws Exception {
+        System.out.println("\n--- Test: Concurrent Booking of One Slot ---");
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+
+        System.out.println("Racing " + threads + " threads for the same time slot...");
+        for (int i = 0; i < threads; i++) {
+            pool.submit(() -> {
+                start.await();
+                try {
+                    bookingSystem.bookAppointment(testPatient, testPhysio, testTreatment, testTimeSlot);
+                    successes.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    failures.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS), "Booking threads should finish");
+
+        assertEquals(1, successes.get(), "Exactly one booking should win the slot");
+        assertEquals(threads - 1, failures.get(), "All other bookings should be rejected");
+        assertEquals(1, bookingSystem.getAllAppointments().size(), "Only one appointment should exist");
+        System.out.println("SUCCESS: Slot was booked exactly once.");
+    }
+
+    @Test
+    void testConcurrentBookingAllocatesUniqueIds() throws Exception {
+        System.out.println("\n--- Test: Concurrent Bookings Get Unique IDs ---");
+        int slotCount = 200;
+        List<TimeSlot> slots = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.now().plusDays(10);
+        for (int i = 0; i < slotCount; i++) {
+            TimeSlot slot = new TimeSlot(base.plusHours(i), base.plusHours(i + 1));
+            testPhysio.addTimeSlot("2025-06-01", slot);
+            slots.add(slot);
+        }
+
+        System.out.println("Booking " + slotCount + " slots from 8 threads...");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        ConcurrentLinkedQueue<Integer> ids = new ConcurrentLinkedQueue<>();
+        for (TimeSlot slot : slots) {
+            pool.submit(() -> ids.add(
+                    bookingSystem.bookAppointment(testPatient, testPhysio, testTreatment, slot).getId()));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS), "Booking threads should finish");
+
+        Set<Integer> unique = new HashSet<>(ids);
+        assertEquals(slotCount, ids.size(), "Every booking should succeed");
+        assertEquals(slotCount, unique.size(), "Appointment IDs should be unique");
+        System.out.println("SUCCESS: All appointment IDs are unique.");
+    }
+
+    @Test
+    void testLookupPhysiotherapistByNormalisedName() {
+        System.out.println("\n--- Test: Physiotherapist Lookup by Name ---");
+        System.out.println("Looking up ' test   PHYSIO ' ...");
+        assertEquals(testPhysio, bookingSystem.getPhysiotherapistByName(" test   PHYSIO "),
+                "Name lookup should ignore case and extra whitespace");
+        assertEquals(testPhysio, bookingSystem.getPhysiotherapistById(1), "ID lookup should find the physio");
+        assertNull(bookingSystem.getPhysiotherapistByName("Unknown Physio"), "Unknown name should not match");
+        System.out.println("SUCCESS: Physiotherapist lookups validated.");
+    }
+
+    @Test
+    void testAddDuplicatePhysiotherapist() {
+        System.out.println("\n--- Test: Add Duplicate Physiotherapist ID ---");
+        Physiotherapist duplicate = new Physiotherapist(1, "Duplicate Physio", "Same ID", "555-DUP");
+        assertThrows(IllegalArgumentException.class, () -> bookingSystem.addPhysiotherapist(duplicate));
+        assertEquals(1, bookingSystem.getAllPhysiotherapists().size(), "Duplicate should not be added");
+        System.out.println("SUCCESS: Duplicate physiotherapist addition blocked.");
+    }
+
+    @Test
+    void testExpertiseIndexTracksLaterChanges() {
+        System.out.println("\n--- Test: Expertise Index Tracks Later Changes ---");
+        assertTrue(bookingSystem.findAvailableSlotsByExpertise("Sports Therapy", 0, Integer.MAX_VALUE).isEmpty(),
+                "No one offers Sports Therapy yet");
+
+        System.out.println("Adding Sports Therapy to an already registered physio...");
+        testPhysio.addExpertiseArea("Sports Therapy");
+        assertTrue(testPhysio.hasExpertise("  sports   THERAPY "), "Any spelling of the new area should match");
+        Treatment rehab = new Treatment("Sports Rehab", "Sports Therapy", 45);
+        testPhysio.addTreatment(rehab);
+
+        List<Physiotherapist> physios = bookingSystem.getPhysiotherapistsByExpertise("Sports Therapy");
+        assertEquals(List.of(testPhysio), physios, "Physio should now be indexed under Sports Therapy");
+
+        List<SlotOffer> offers = bookingSystem.findAvailableSlotsByExpertise("Sports Therapy", 0, Integer.MAX_VALUE);
+        assertEquals(1, offers.size(), "Only the one open slot should be offered");
+        assertEquals(rehab, offers.get(0).getTreatment(), "Only the Sports Therapy treatment should be offered");
+        System.out.println("SUCCESS: Expertise index updated after registration.");
+    }
+
+    @Test
+    void testSlotSearchPagesLazily() {
+        System.out.println("\n--- Test: Paged Slot Search ---");
+        LocalDateTime base = LocalDateTime.now().plusDays(3);
+        for (int i = 0; i < 24; i++) {
+            testPhysio.addTimeSlot("2025-05-03", new TimeSlot(base.plusHours(i), base.plusHours(i + 1)));
+        }
+
+        System.out.println("Fetching the first ten Physiotherapy slots...");
+        List<SlotOffer> firstPage = bookingSystem.findAvailableSlotsByExpertise("Physiotherapy", 0, 10);
+        assertEquals(10, firstPage.size(), "First page should be full");
+        assertEquals(testPhysio, firstPage.get(0).getPhysiotherapist(), "Offer should be typed");
+        assertEquals(testTreatment, firstPage.get(0).getTreatment(), "Offer should carry the treatment");
+
+        List<SlotOffer> lastPage = bookingSystem.findAvailableSlotsByExpertise("Physiotherapy", 20, 10);
+        assertEquals(5, lastPage.size(), "Last page should hold the remaining 5 of 25 slots");
+
+        Iterator<SlotOffer> cursor = bookingSystem.findAvailableSlotsByPhysiotherapist("Test Physio");
+        int count = 0;
+        while (cursor.hasNext()) {
+            assertTrue(cursor.next().getTimeSlot().isAvailable(), "Cursor should only yield free slots");
+            count++;
+        }
+        assertEquals(25, count, "Cursor should walk every free slot");
+        System.out.println("SUCCESS: Paged and cursor searches validated.");
+    }
+
+    @Test
+    void testSearchWithinDateRange() {
+        System.out.println("\n--- Test: Search Within Date Range ---");
+        LocalDate start = LocalDate.of(2030, 1, 1);
+        System.out.println("Adding one slot a day for a year...");
+        for (int day = 0; day < 365; day++) {
+            LocalDateTime time = start.plusDays(day).atTime(9, 0);
+            testPhysio.addTimeSlot(new TimeSlot(time, time.plusHours(1)));
+        }
+
+        LocalDate weekStart = LocalDate.of(2030, 3, 4);
+        LocalDate weekEnd = weekStart.plusDays(6);
+        System.out.println("Searching the week of " + weekStart + "...");
+        List<SlotOffer> week = bookingSystem.findAvailableSlotsByExpertise("Physiotherapy", weekStart, weekEnd, 0, 100);
+        assertEquals(7, week.size(), "One slot per day of the week");
+        for (int i = 0; i < week.size(); i++) {
+            assertEquals(weekStart.plusDays(i), week.get(i).getDate(), "Slots should come back in date order");
+        }
+
+        List<TimeSlot> december = testPhysio.getAvailableSlots(LocalDate.of(2030, 12, 1), null);
+        assertEquals(31, december.size(), "Open-ended range should run to the last day");
+        assertEquals(365, testPhysio.getTimetable(start, null).size(), "Timetable should hold a year of days");
+        System.out.println("SUCCESS: Date range searches validated.");
+    }
+
+    @Test
+    void testEarliestSlotsMergeAcrossPhysiotherapists() {
+        System.out.println("\n--- Test: Earliest Slots Across Physiotherapists ---");
+        Physiotherapist other = new Physiotherapist(2, "Other Physio", "2 Side St", "555-0202");
+        other.addExpertiseArea("Physiotherapy");
+        other.addTreatment(new Treatment("Back Treatment", "Physiotherapy", 60));
+        bookingSystem.addPhysiotherapist(other);
+
+        System.out.println("Giving both physios two years of slots, interleaved...");
+        LocalDate start = LocalDate.of(2032, 1, 5);
+        for (int day = 0; day < 730; day++) {
+            LocalDateTime nine = start.plusDays(day).atTime(9, 0);
+            testPhysio.addTimeSlot(new TimeSlot(nine, nine.plusHours(1)));
+            other.addTimeSlot(new TimeSlot(nine.plusMinutes(30), nine.plusMinutes(90)));
+        }
+        LocalDateTime after = start.plusDays(100).atTime(9, 15);
+        bookingSystem.bookAppointment(testPatient, other, other.getTreatments().get(0),
+            other.getTimeSlotAt(after.plusMinutes(15)));
+
+        System.out.println("Asking for the soonest five after " + after + "...");
+        List<SlotOffer> earliest = bookingSystem.findEarliestSlotsByExpertise("Physiotherapy", after, 5);
+        assertEquals(5, earliest.size(), "Should stop at the five asked for");
+        assertEquals(testPhysio, earliest.get(0).getPhysiotherapist(), "Booked slot should be skipped");
+        assertEquals(after.toLocalDate().plusDays(1).atTime(9, 0), earliest.get(0).getTimeSlot().getStartTime(),
+            "Slots before the given time should be skipped");
+        for (int i = 1; i < earliest.size(); i++) {
+            assertTrue(earliest.get(i - 1).getTimeSlot().getStartTime()
+                .isBefore(earliest.get(i).getTimeSlot().getStartTime()), "Slots should come back soonest first");
+            assertNotEquals(earliest.get(i - 1).getPhysiotherapist(), earliest.get(i).getPhysiotherapist(),
+                "Physios' slots should be interleaved");
+        }
+        assertTrue(bookingSystem.findEarliestSlotsByExpertise("Unknown Area", after, 5).isEmpty(),
+            "Unknown area should have no slots");
+        System.out.println("SUCCESS: Earliest slots merged across physiotherapists.");
+    }
+
+    @Test
+    void testRescheduleSuggestionsRankedByCloseness() {
+        System.out.println("\n--- Test: Ranked Reschedule Suggestions ---");
+        Physiotherapist other = new Physiotherapist(2, "Other Physio", "2 Side St", "555-0202");
+        other.addExpertiseArea("Physiotherapy");
+        other.addTreatment(new Treatment("Test Treatment", "Physiotherapy", 60));
+        other.addTreatment(new Treatment("Back Treatment", "Physiotherapy", 60));
+        bookingSystem.addPhysiotherapist(other);
+
+        LocalDate day = LocalDate.of(2033, 6, 15);
+        for (int d = -30; d <= 30; d++) {
+            for (int hour = 9; hour < 17; hour++) {
+                LocalDateTime start = day.plusDays(d).atTime(hour, 0);
+                testPhysio.addTimeSlot(new TimeSlot(start, start.plusHours(1)));
+                other.addTimeSlot(new TimeSlot(start, start.plusHours(1)));
+            }
+        }
+        Appointment appointment = bookingSystem.bookAppointment(testPatient, testPhysio, testTreatment,
+            testPhysio.getTimeSlotAt(day.atTime(12, 0)));
+
+        System.out.println("Suggesting slots with the same physio...");
+        List<SlotOffer> same = bookingSystem.suggestRescheduleSlots(appointment.getId(), 4, false);
+        List<LocalDateTime> starts = new ArrayList<>();
+        for (SlotOffer offer : same) {
+            assertEquals(testPhysio, offer.getPhysiotherapist(), "Only the current physio should be offered");
+            starts.add(offer.getTimeSlot().getStartTime());
+        }
+        assertEquals(List.of(day.atTime(13, 0), day.atTime(11, 0), day.atTime(14, 0), day.atTime(10, 0)), starts,
+            "Closest slots should come first, later before earlier on a tie");
+
+        System.out.println("Suggesting slots with any physio offering the treatment...");
+        List<SlotOffer> any = bookingSystem.suggestRescheduleSlots(appointment.getId(), 3, true);
+        assertEquals(other, any.get(0).getPhysiotherapist(), "Same time with another physio should rank first");
+        assertEquals(day.atTime(12, 0), any.get(0).getTimeSlot().getStartTime());
+        assertEquals(testTreatment, any.get(0).getTreatment(), "Other treatments should not be offered");
+        assertEquals(3, any.size());
+
+        Appointment moved = bookingSystem.rescheduleAppointment(appointment.getId(), any.get(0));
+        assertEquals(other, moved.getPhysiotherapist(), "Appointment should move to the other physio");
+        assertEquals(Appointment.Status.CANCELLED, bookingSystem.getAppointmentById(appointment.getId()).getStatus());
+        assertTrue(testPhysio.getTimeSlotAt(day.atTime(12, 0)).isAvailable(), "Old slot should be freed");
+        System.out.println("SUCCESS: Reschedule suggestions ranked and applied.");
+    }
+
+    @Test
+    void testBookingReservesTreatmentDuration() {
+        System.out.println("\n--- Test: Duration-Aware Booking ---");
+        LocalDateTime nine = LocalDateTime.of(2031, 2, 3, 9, 0);
+        TimeSlot first = new TimeSlot(nine, nine.plusHours(1));
+        TimeSlot second = new TimeSlot(nine.plusHours(1), nine.plusHours(2));
+        testPhysio.addTimeSlot(first);
+        testPhysio.addTimeSlot(second);
+        Treatment shortTreatment = new Treatment("Short Treatment", "Physiotherapy", 45);
+        testPhysio.addTreatment(shortTreatment);
+        Treatment longTreatment = new Treatment("Long Treatment", "Physiotherapy", 90);
+        testPhysio.addTreatment(longTreatment);
+
+        System.out.println("Checking a 90 minute treatment can span two back-to-back slots...");
+        assertTrue(first.canStart(90), "90 minutes from 09:00 should fit across both slots");
+        assertFalse(second.canStart(90), "90 minutes from 10:00 runs past the open time");
+
+        System.out.println("Booking a 45 minute treatment at 09:00...");
+        bookingSystem.bookAppointment(testPatient, testPhysio, shortTreatment, first);
+        assertFalse(first.isAvailable(), "Part of the first slot is now booked");
+        assertFalse(testPhysio.isAvailable(nine.plusMinutes(30), 15), "09:30-09:45 is booked");
+        assertTrue(testPhysio.isAvailable(nine.plusMinutes(45), 15), "09:45-10:00 is still free");
+        assertTrue(testPhysio.isAvailable(nine.plusMinutes(45), 75), "09:45-11:00 is still free");
+        assertTrue(second.isAvailable(), "The next slot is untouched");
+
+        assertThrows(IllegalStateException.class,
+                () -> bookingSystem.bookAppointment(testPatient, testPhysio, longTreatment, first),
+                "A 90 minute treatment can no longer start at 09:00");
+        assertTrue(second.isAvailable(), "A failed booking must not leave anything reserved");
+        System.out.println("SUCCESS: Bookings reserve exactly the treatment's duration.");
+    }
+
+    @Test
+    void testAppointmentIndexesFollowStatusChanges() {
+        System.out.println("\n--- Test: Appointment Indexes by Patient and Physio ---");
+        LocalDateTime base = LocalDateTime.of(2031, 3, 3, 9, 0);
+        TimeSlot a = new TimeSlot(base, base.plusHours(1));
+        TimeSlot b = new TimeSlot(base.plusHours(1), base.plusHours(2));
+        TimeSlot c = new TimeSlot(base.plusHours(2), base.plusHours(3));
+        testPhysio.addTimeSlot(a);
+        testPhysio.addTimeSlot(b);
+        testPhysio.addTimeSlot(c);
+
+        System.out.println("Booking three appointments, then cancelling, attending and rescheduling...");
+        Appointment first = bookingSystem.bookAppointment(testPatient, testPhysio, testTreatment, a);
+        Appointment second = bookingSystem.bookAppointment(testPatient, testPhysio, testTreatment, b);
+        bookingSystem.cancelAppointment(first.getId());
+        second.markAsAttended(); // direct status change must be tracked too
+        Appointment third = bookingSystem.bookAppointment(testPatient, testPhysio, testTreatment, c);
+        Appointment moved = bookingSystem.rescheduleAppointment(third.getId(), a);
+
+        assertTrue(bookingSystem.hasActiveAppointments(101), "Rescheduled appointment is still active");
+        assertEquals(List.of(moved), bookingSystem.getAppointmentsForPatient(101, Appointment.Status.BOOKED));
+        assertEquals(2, bookingSystem.countAppointmentsForPhysiotherapist(1, Appointment.Status.CANCELLED));
+        assertEquals(1, bookingSystem.countAppointmentsForPhysiotherapist(1, Appointment.Status.ATTENDED));
+        assertEquals(List.of(first, second, third, moved), bookingSystem.getAppointmentsForPhysiotherapist(1),
+                "All appointments should be listed in booking order");
+
+        bookingSystem.cancelAppointment(moved.getId());
+        assertFalse(bookingSystem.hasActiveAppointments(101), "No active appointments should remain");
+        bookingSystem.removePatient(101);
+        System.out.println("SUCCESS: Indexes track every status change.");
+    }
+
+    @Test
+    void testBatchBookingIsAllOrNothing() {
+        System.out.println("\n--- Test: All-or-Nothing Batch Booking ---");
+        LocalDateTime base = LocalDateTime.of(2031, 5, 5, 9, 0);
+        TimeSlot a = new TimeSlot(base, base.plusHours(1));
+        TimeSlot b = new TimeSlot(base.plusHours(1), base.plusHours(2));
+        TimeSlot c = new TimeSlot(base.plusHours(2), base.plusHours(3));
+        testPhysio.addTimeSlot(a);
+        testPhysio.addTimeSlot(b);
+        testPhysio.addTimeSlot(c);
+        bookingSystem.bookAppointment(testPatient, testPhysio, testTreatment, c);
+
+        System.out.println("Booking a batch whose last slot is already taken...");
+        List<BookingRequest> clash = List.of(
+                new BookingRequest(testPatient, testPhysio, testTreatment, a),
+                new BookingRequest(testPatient, testPhysio, testTreatment, b),
+                new BookingRequest(testPatient, testPhysio, testTreatment, c));
+        assertThrows(IllegalStateException.class, () -> bookingSystem.bookAppointments(clash));
+        assertTrue(a.isAvailable() && b.isAvailable(), "Slots claimed before the clash must be released");
+        assertEquals(1, bookingSystem.getAppointmentsForPhysiotherapist(1).size(), "Nothing should be booked");
+
+        System.out.println("Booking a batch that asks for the same slot twice...");
+        assertThrows(IllegalStateException.class, () -> bookingSystem.bookAppointments(List.of(
+                new BookingRequest(testPatient, testPhysio, testTreatment, a),
+                new BookingRequest(testPatient, testPhysio, testTreatment, a))));
+        assertTrue(a.isAvailable(), "A batch can't double-book its own slot");
+
+        System.out.println("Booking a batch that fits...");
+        List<Appointment> booked = bookingSystem.bookAppointments(clash.subList(0, 2));
+        assertEquals(2, booked.size());
+        assertEquals(booked.get(0).getId() + 1, booked.get(1).getId(), "Batch IDs should be consecutive");
+        assertEquals(booked.get(1), bookingSystem.getAppointmentById(booked.get(1).getId()));
+        assertFalse(a.isAvailable() || b.isAvailable(), "Both slots should now be booked");
+        assertEquals(3, bookingSystem.getAppointmentsForPatient(101, Appointment.Status.BOOKED).size());
+        System.out.println("SUCCESS: Batches book every appointment or none.");
+    }
+
+    @Test
+    void testExpertiseMatchesAnySpelling() {
+        System.out.println("\n--- Test: Interned Expertise Catalog ---");
+        Physiotherapist physio = new Physiotherapist(2, "Catalog Physio", "2 Test St", "555-0002");
+        physio.addExpertiseArea(" Hand   Therapy ");
+        physio.addExpertiseArea("hand therapy");
+        assertEquals(List.of("Hand Therapy"), physio.getExpertiseAreas(),
+                "Spellings of one area should collapse to one entry");
+        assertTrue(physio.hasExpertise("HAND THERAPY"));
+        assertFalse(physio.hasExpertise("Hand Therapy Plus"));
+
+        System.out.println("Adding equal treatments to two physios...");
+        Treatment splint = new Treatment("Splint  Fitting", "hand therapy ", 30);
+        assertEquals("hand therapy", splint.getExpertiseArea());
+        assertEquals("Splint Fitting", splint.getName());
+        physio.addTreatment(splint);
+        Physiotherapist other = new Physiotherapist(3, "Other Physio", "3 Test St", "555-0003");
+        other.addExpertiseArea("Hand Therapy");
+        other.addTreatment(new Treatment("Splint Fitting", "Hand Therapy", 30));
+        assertThrows(IllegalArgumentException.class,
+                () -> other.addTreatment(new Treatment("Gait Analysis", "Podiatry", 30)));
+
+        bookingSystem.addPhysiotherapist(physio);
+        bookingSystem.addPhysiotherapist(other);
+        assertSame(physio.getTreatments().get(0), other.getTreatments().get(0),
+                "Equal treatments should be shared within a booking system");
+        assertEquals(2, bookingSystem.getPhysiotherapistsByExpertise("  hand THERAPY").size());
+        assertThrows(IllegalArgumentException.class,
+                () -> bookingSystem.joinWaitlist(testPatient, "Podiatry", 1, false),
+                "A rejected treatment must not register its area");
+        assertTrue(new BookingSystem().getPhysiotherapistsByExpertise("Hand Therapy").isEmpty(),
+                "Each booking system should have its own catalog");
+
+        // U+017F folds to 's', so equal treatments must also hash alike
+        Treatment longS = new Treatment("Ma\u017F\u017Fage", "Physiotherapy", 60);
+        assertEquals(new Treatment("MASSAGE", "physiotherapy", 60), longS);
+        assertEquals(new Treatment("MASSAGE", "physiotherapy", 60).hashCode(), longS.hashCode());
+        System.out.println("SUCCESS: Expertise matched through the catalog.");
+    }
+
+    @Test
+    void testAppointmentsAreViewsOverColumns() {
+        System.out.println("\n--- Test: Columnar Appointment Store ---");
+        LocalDateTime monday = LocalDateTime.of(2031, 6, 2, 9, 0);
+        Patient other = new Patient(102, "Other Patient", "1 Column St", "555-0102");
+        bookingSystem.addPatient(other);
+        List<Physiotherapist> physios = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            Physiotherapist physio = new Physiotherapist(10 + p, "Column Physio " + p, "1 Column St", null);
+            physio.addExpertiseArea("Physiotherapy");
+            physio.addTreatment(testTreatment);
+            for (int hour = 0; hour < 150; hour++) {
+                physio.addTimeSlot(new TimeSlot(monday.plusHours(hour), monday.plusHours(hour + 1)));
+            }
+            bookingSystem.addPhysiotherapist(physio);
+            physios.add(physio);
+        }
+        // 600 bookings in one week, more than one page of its columns
+        for (int i = 0; i < 600; i++) {
+            Physiotherapist physio = physios.get(i % 4);
+            bookingSystem.bookAppointment(i % 3 == 0 ? other : testPatient, physio, testTreatment,
+                    physio.getTimeSlotAt(monday.plusHours(i / 4)));
+        }
+
+        Appointment first = bookingSystem.getAppointmentById(1);
+        Appointment again = bookingSystem.getAppointmentById(1);
+        assertNotSame(first, again, "Lookups should hand out fresh views");
+        assertEquals(first, again, "Views of one appointment should be equal");
+        again.markAsAttended();
+        assertEquals(Appointment.Status.ATTENDED, first.getStatus(), "Every view should see the change");
+        assertEquals(200, bookingSystem.getAppointmentsForPatient(102).size());
+        assertEquals(1, bookingSystem.getAppointmentsForPatient(102, Appointment.Status.ATTENDED).size());
+        assertEquals(1, bookingSystem.countAppointmentsForPhysiotherapist(10, Appointment.Status.ATTENDED));
+        assertEquals(60, bookingSystem.getAppointmentsBetween(monday.toLocalDate(), monday.toLocalDate()).size());
+
+        List<Appointment> forPhysio = bookingSystem.getAppointmentsForPhysiotherapist(13);
+        assertEquals(150, forPhysio.size());
+        for (int i = 0; i < forPhysio.size(); i++) {
+            assertEquals(4 * i + 4, forPhysio.get(i).getId(), "Appointments should come back in ID order");
+            assertEquals(13, forPhysio.get(i).getPhysiotherapist().getId());
+        }
+
+        Appointment standalone = new Appointment(9999, testPhysio, testPatient, testTreatment, testTimeSlot);
+        assertSame(testPatient, standalone.getPatient(), "A standalone appointment should read its own row");
+        assertEquals(Appointment.Status.BOOKED, standalone.getStatus());
+        System.out.println("SUCCESS: Appointments read through their columns.");
+    }
+
+    @Test
+    void testReusedPatientIdKeepsOldAppointments() {
+        System.out.println("\n--- Test: Reused Patient ID ---");
+        LocalDateTime base = LocalDateTime.of(2031, 9, 1, 9, 0);
+        TimeSlot early = new TimeSlot(base, base.plusHours(1));
+        TimeSlot late = new TimeSlot(base.plusHours(1), base.plusHours(2));
+        testPhysio.addTimeSlot(early);
+        testPhysio.addTimeSlot(late);
+        Patient alice = new Patient(5, "Alice", "1 Old St", "555-0005");
+        bookingSystem.addPatient(alice);
+        Appointment old = bookingSystem.bookAppointment(alice, testPhysio, testTreatment, early);
+        old.markAsAttended();
+
+        System.out.println("Removing patient 5 and giving the ID to someone else...");
+        bookingSystem.removePatient(5);
+        Patient bob = new Patient(5, "Bob", "2 New St", "555-0050");
+        bookingSystem.addPatient(bob);
+        Appointment booked = bookingSystem.bookAppointment(bob, testPhysio, testTreatment, late);
+
+        assertSame(alice, bookingSystem.getAppointmentById(old.getId()).getPatient(),
+                "The old appointment should still be Alice's");
+        assertSame(bob, booked.getPatient());
+        assertEquals(List.of(booked), bookingSystem.getAppointmentsForPatient(5),
+                "Bob should not inherit Alice's appointments");
+        assertTrue(bookingSystem.getAppointmentsForPatient(5, Appointment.Status.ATTENDED).isEmpty());
+        bookingSystem.cancelAppointment(booked.getId());
+        assertFalse(bookingSystem.hasActiveAppointments(5));
+        bookingSystem.removePatient(5);
+        System.out.println("SUCCESS: Old appointments keep their patient.");
+    }
+}
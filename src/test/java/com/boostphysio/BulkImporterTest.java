@@ -0,0 +1,159 @@
+package com.boostphysio;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkImporterTest {
+    @TempDir
+    Path dir;
+
+    private BookingSystem bookingSystem;
+    private BulkImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        bookingSystem = new BookingSystem();
+        importer = new BulkImporter(bookingSystem);
+    }
+
+    private Path file(String name, String... lines) throws IOException {
+        return Files.write(dir.resolve(name), List.of(lines));
+    }
+
+    @Test
+    void testImportWithPerRowErrors() throws IOException {
+        System.out.println("\n--- Test: Bulk Import with Row Errors ---");
+        BulkImporter.ImportResult physios = importer.importPhysiotherapists(file("physios.csv",
+            "id,fullName,address,phoneNumber,expertiseAreas",
+            "1,\"Smith, John\",1 Main St,555-0001,Physiotherapy;Sports Therapy",
+            "2,Jane Doe,2 Main St,555-0002,Rehabilitation",
+            "1,Duplicate,3 Main St,555-0003,Physiotherapy"));
+        assertEquals(2, physios.getImported());
+        assertEquals(4, physios.getErrors().get(0).getLine(), "Duplicate ID should be reported on its line");
+        assertEquals("Smith, John", bookingSystem.getPhysiotherapistById(1).getFullName(),
+            "Quoted commas should stay in the field");
+        assertEquals(1, bookingSystem.getPhysiotherapistsByExpertise("Sports Therapy").size());
+
+        BulkImporter.ImportResult treatments = importer.importTreatments(file("treatments.jsonl",
+            "{\"physioId\": 1, \"name\": \"Massage\", \"expertiseArea\": \"Physiotherapy\", \"durationMinutes\": 30}",
+            "{\"physioId\": 2, \"name\": \"Massage\", \"expertiseArea\": \"Physiotherapy\", \"durationMinutes\": 30}",
+            "{\"physioId\": 9, \"name\": \"Massage\", \"expertiseArea\": \"Physiotherapy\", \"durationMinutes\": 30}",
+            "{\"physioId\": 2, \"name\": \"Gait Training\", \"expertiseArea\": \"Rehabilitation\", \"durationMinutes\": -5}",
+            "{\"physioId\": 2, \"name\": \"Gait Training\", \"expertiseArea\": \"Rehabilitation\""));
+        System.out.println("Treatments: " + treatments + " " + treatments.getErrors());
+        assertEquals(1, treatments.getImported(), "Only the treatment matching an expertise should be added");
+        assertEquals(4, treatments.getErrors().size());
+        assertTrue(treatments.getErrors().get(0).getMessage().contains("does not have expertise"),
+            "Expertise must match as in addTreatment");
+        assertTrue(treatments.getErrors().get(1).getMessage().contains("not found"), "Unknown physio");
+        assertTrue(treatments.getErrors().get(2).getMessage().contains("durationMinutes"), "Bad duration");
+        assertEquals(5, treatments.getErrors().get(3).getLine(), "Malformed JSON should be reported on its line");
+
+        BulkImporter.ImportResult slots = importer.importTimeSlots(file("slots.csv",
+            "physioId,start,end",
+            "1,2031-04-07T11:00,2031-04-07T12:00",
+            "1,2031-04-07T09:00,2031-04-07T10:00",
+            "1,2031-04-07T10:00,2031-04-07T09:00",
+            "1,not a time,2031-04-07T09:00"));
+        assertEquals(2, slots.getImported());
+        assertEquals(2, slots.getErrors().size());
+        List<TimeSlot> monday = bookingSystem.getPhysiotherapistById(1).getAvailableSlotsForDate(LocalDate.of(2031, 4, 7));
+        assertEquals(LocalDateTime.of(2031, 4, 7, 9, 0), monday.get(0).getStartTime(), "Slots should be date-sorted");
+        assertEquals(2, monday.size());
+        System.out.println("SUCCESS: Bulk import validated row by row.");
+    }
+
+    @Test
+    void testFailedSlotBatchOnlyFailsItsPhysio() throws IOException {
+        System.out.println("\n--- Test: Failed Slot Batch ---");
+        bookingSystem.addPhysiotherapist(new Physiotherapist(1, "Steady Physio", "1 Main St", "555-0001"));
+        Physiotherapist failing = new Physiotherapist(2, "Failing Physio", "2 Main St", "555-0002");
+        bookingSystem.addPhysiotherapist(failing);
+        // Stands in for a log that can no longer be written
+        failing.addListener(new PhysiotherapistListener() {
+            @Override
+            public void expertiseAdded(Physiotherapist physio, String area) {
+            }
+
+            @Override
+            public void treatmentAdded(Physiotherapist physio, Treatment treatment) {
+            }
+
+            @Override
+            public void timeSlotAdded(Physiotherapist physio, TimeSlot slot) {
+                throw new IllegalStateException("Booking log is closed");
+            }
+        });
+
+        BulkImporter.ImportResult slots = importer.importTimeSlots(file("slots.csv",
+            "physioId,start,end",
+            "1,2031-04-07T09:00,2031-04-07T10:00",
+            "2,2031-04-07T09:00,2031-04-07T10:00",
+            "1,2031-04-07T10:00,2031-04-07T11:00",
+            "2,2031-04-07T10:00,2031-04-07T11:00"));
+        System.out.println("Slots: " + slots + " " + slots.getErrors());
+        assertEquals(2, slots.getImported(), "The other physio's rows should still count");
+        assertEquals(2, slots.getErrors().size(), "Every row of the failed batch should be reported");
+        List<Integer> lines = new ArrayList<>();
+        for (BulkImporter.RowError error : slots.getErrors()) {
+            lines.add(error.getLine());
+            assertTrue(error.getMessage().contains("Booking log is closed"), "The cause should be reported");
+        }
+        lines.sort(null);
+        assertEquals(List.of(3, 5), lines);
+        assertEquals(2, bookingSystem.getPhysiotherapistById(1)
+            .getAvailableSlotsForDate(LocalDate.of(2031, 4, 7)).size());
+        System.out.println("SUCCESS: Failed batch reported row by row.");
+    }
+
+    @Test
+    void testLargeImportAcrossChunks() throws IOException {
+        System.out.println("\n--- Test: Bulk Import Across Chunks ---");
+        List<String> patients = new ArrayList<>();
+        patients.add("id,fullName,address,phoneNumber");
+        for (int i = 1; i <= 50_000; i++) {
+            patients.add(i + ",Patient " + i + ",Street " + i + ",555-" + i);
+        }
+        patients.add("oops,Bad Id,Nowhere,555");
+        patients.add("7,Repeat,Somewhere,555");
+        BulkImporter.ImportResult result = importer.importPatients(Files.write(dir.resolve("patients.csv"), patients));
+
+        assertEquals(50_002, result.getRows());
+        assertEquals(50_000, result.getImported());
+        assertEquals(50_002, result.getErrors().get(0).getLine(), "Errors keep their file line numbers");
+        assertEquals(50_003, result.getErrors().get(1).getLine());
+        assertEquals("Patient 25000", bookingSystem.getPatientById(25_000).getFullName());
+        assertEquals(1, bookingSystem.getAllPatients().get(0).getId(), "Patients keep file order");
+
+        // Slots for the same physio in a second batch merge into the existing days
+        Physiotherapist physio = new Physiotherapist(1, "Busy Physio", "1 Main St", "555-0001");
+        bookingSystem.addPhysiotherapist(physio);
+        physio.addTimeSlot(new TimeSlot(LocalDateTime.of(2031, 4, 7, 10, 0), LocalDateTime.of(2031, 4, 7, 11, 0)));
+        List<String> slots = new ArrayList<>();
+        slots.add("physioId,start,end");
+        for (int day = 0; day < 14; day++) {
+            for (int hour = 17; hour >= 9; hour -= 2) {
+                LocalDateTime start = LocalDateTime.of(2031, 4, 7, hour, 0).plusDays(day);
+                slots.add("1," + start + "," + start.plusHours(1));
+            }
+        }
+        assertEquals(70, importer.importTimeSlots(Files.write(dir.resolve("slots.csv"), slots)).getImported());
+        List<TimeSlot> monday = physio.getAvailableSlotsForDate(LocalDate.of(2031, 4, 7));
+        assertEquals(6, monday.size());
+        for (int i = 1; i < monday.size(); i++) {
+            assertTrue(monday.get(i - 1).getStartTime().isBefore(monday.get(i).getStartTime()),
+                "Merged day should stay sorted");
+        }
+        System.out.println("SUCCESS: Large import validated.");
+    }
+}
@@ -0,0 +1,64 @@
+package com.boostphysio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.DayOfWeek;
+
+public class ClinicDataGeneratorTest {
+
+    private static BookingSystem generate(long seed) {
+        BookingSystem system = new BookingSystem();
+        new ClinicDataGenerator(seed, 30, 500, 6).generate(system);
+        return system;
+    }
+
+    @Test
+    void testSameSeedGivesSameClinic() {
+        System.out.println("\n--- Test: Seeded Clinic Generation ---");
+        BookingSystem first = generate(7);
+        BookingSystem second = generate(7);
+        String report = new ReportGenerator(first).generateEndOfTermReport();
+        assertEquals(report, new ReportGenerator(second).generateEndOfTermReport(),
+            "The same seed should give the same physios, bookings and statuses");
+        assertEquals(first.getAllAppointments().size(), second.getAllAppointments().size());
+        assertEquals(first.getPatientById(250).getFullName(), second.getPatientById(250).getFullName());
+        assertNotEquals(report, new ReportGenerator(generate(8)).generateEndOfTermReport(),
+            "A different seed should give a different clinic");
+        System.out.println("SUCCESS: Generation is deterministic.");
+    }
+
+    @Test
+    void testHistoryCoversEveryStatus() {
+        System.out.println("\n--- Test: Generated Booking History ---");
+        BookingSystem system = generate(3);
+        assertEquals(30, system.getAllPhysiotherapists().size());
+        assertEquals(500, system.getAllPatients().size());
+        assertEquals(system.getPhysiotherapistById(12), system.getPhysiotherapistByName(
+            system.getPhysiotherapistById(12).getFullName()), "Physio names should be distinct");
+
+        int booked = 0;
+        int cancelled = 0;
+        int attended = 0;
+        for (Appointment appointment : system.getAllAppointments()) {
+            DayOfWeek day = appointment.getTimeSlot().getDate().getDayOfWeek();
+            assertTrue(day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY, "Timetables are weekdays only");
+            assertTrue(appointment.getPhysiotherapist().getTreatments().contains(appointment.getTreatment()));
+            switch (appointment.getStatus()) {
+                case BOOKED:
+                    booked++;
+                    assertFalse(appointment.getTimeSlot().isAvailable(), "Booked slots must be taken");
+                    break;
+                case CANCELLED:
+                    cancelled++;
+                    break;
+                case ATTENDED:
+                    attended++;
+                    break;
+            }
+        }
+        System.out.println("Booked: " + booked + ", cancelled: " + cancelled + ", attended: " + attended);
+        assertTrue(booked > 0 && cancelled > 0 && attended > 0, "History should hold every status");
+        System.out.println("SUCCESS: History generated.");
+    }
+}
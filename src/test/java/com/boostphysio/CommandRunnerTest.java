@@ -0,0 +1,97 @@
+package com.boostphysio;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class CommandRunnerTest {
+    private BookingSystem bookingSystem;
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setUp() {
+        bookingSystem = new BookingSystem();
+        Physiotherapist physio = new Physiotherapist(1, "Batch Physio", "1 Script St", "555-0001");
+        physio.addExpertiseArea("Physiotherapy");
+        physio.addTreatment(new Treatment("Massage", "Physiotherapy", 60));
+        start = LocalDateTime.of(2034, 3, 6, 9, 0);
+        for (int i = 0; i < 10; i++) {
+            physio.addTimeSlot(new TimeSlot(start.plusHours(i), start.plusHours(i + 1)));
+        }
+        bookingSystem.addPhysiotherapist(physio);
+        bookingSystem.addPatient(new Patient(1, "Batch Patient", "2 Script St", null));
+    }
+
+    private String[] run(String script, int expectedFailures) throws Exception {
+        StringWriter out = new StringWriter();
+        CommandRunner.Summary summary = new CommandRunner(bookingSystem, out)
+            .run(new BufferedReader(new StringReader(script)));
+        assertEquals(expectedFailures, summary.getFailures(), out.toString());
+        return out.toString().split("\n");
+    }
+
+    @Test
+    void testScriptRunsInOrderAndCarriesOnAfterErrors() throws Exception {
+        System.out.println("\n--- Test: Batch Command Script ---");
+        String script = String.join("\n",
+            "# a day at the front desk",
+            "add-patient 2 \"Second Patient\" \"3 Script St\" \"555-0002\"",
+            "search expertise Physiotherapy 2 " + start,
+            "",
+            "book 1 1 Massage " + start,
+            "book 2 1 \"Massage\" " + start.plusHours(1),
+            "book 2 1 Massage " + start.plusHours(1),
+            "book 1 1 Massage " + start.plusHours(2),
+            "cancel 3",
+            "attend 1",
+            "book-earliest 2 \"Physiotherapy\" " + start,
+            "fly away",
+            "appointments 2");
+        String[] lines = run(script, 2);
+
+        assertEquals("added patient 2: Second Patient", lines[0]);
+        assertEquals("slot 1 " + start + " \"Massage\"", lines[1], "Search output should feed book commands");
+        assertEquals("slot 1 " + start.plusHours(1) + " \"Massage\"", lines[2]);
+        System.out.println("A taken slot in a batch falls back to booking one at a time...");
+        assertTrue(lines[3].startsWith("Appointment #1: Batch Patient"), lines[3]);
+        assertTrue(lines[4].startsWith("Appointment #2: Second Patient"), lines[4]);
+        assertTrue(lines[5].startsWith("error line 7: "), "Errors keep their line number: " + lines[5]);
+        assertTrue(lines[6].startsWith("Appointment #3: Batch Patient"), lines[6]);
+        assertTrue(lines[7].endsWith("[CANCELLED]"), lines[7]);
+        assertTrue(lines[8].endsWith("[ATTENDED]"), lines[8]);
+        assertTrue(lines[9].contains("Second Patient") && lines[9].contains("11:00"),
+            "The freed slot should be the earliest: " + lines[9]);
+        assertEquals("error line 12: Unknown command: fly", lines[10]);
+        assertEquals(2, bookingSystem.getAppointmentsForPatient(2).size());
+        assertTrue(lines[lines.length - 1].startsWith("11 commands, 2 failed"), lines[lines.length - 1]);
+        System.out.println("SUCCESS: Script ran in order and reported each failure.");
+    }
+
+    @Test
+    void testConsecutiveBookingsAreBatched() throws Exception {
+        System.out.println("\n--- Test: Batched Bookings ---");
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            script.append("book 1 1 Massage ").append(start.plusHours(i)).append('\n');
+        }
+        script.append("report\n");
+        script.append("book 1 1 Massage 2034-03-06T25:00\n");
+        script.append("book 1 1 \"Massage\n");
+        String[] lines = run(script.toString(), 2);
+
+        assertEquals(10, bookingSystem.getAllAppointments().size());
+        assertEquals(1, bookingSystem.getMetrics().getLatency(BookingMetrics.Operation.BOOK_BATCH).getCount(),
+            "Ten bookings in a row should be one batch");
+        assertTrue(String.join("\n", lines).contains("Batch Physio"), "Report should be written inline");
+        assertTrue(lines[lines.length - 3].startsWith("error line 12: "), lines[lines.length - 3]);
+        assertEquals("error line 13: Unterminated quote", lines[lines.length - 2]);
+        assertEquals(List.of("a b", "c", "say \"hi\""), CommandRunner.tokenize("\"a b\"  c \"say \\\"hi\\\"\""));
+        System.out.println("SUCCESS: Bookings were sent as one batch.");
+    }
+}
@@ -0,0 +1,82 @@
+package com.boostphysio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class IntHashIndexTest {
+
+    @Test
+    void testPutGetRemove() {
+        System.out.println("\n--- Test: IntHashIndex put/get/remove ---");
+        IntHashIndex<String> index = new IntHashIndex<>();
+        assertNull(index.putIfAbsent(7, "seven"));
+        assertEquals("seven", index.putIfAbsent(7, "other"), "Existing value should be kept");
+        assertEquals("seven", index.get(7));
+        assertEquals("seven", index.remove(7));
+        assertNull(index.get(7), "Removed key should be gone");
+        assertEquals(0, index.size());
+        System.out.println("SUCCESS: Basic operations validated.");
+    }
+
+    @Test
+    void testMatchesHashMapUnderRandomOperations() {
+        System.out.println("\n--- Test: IntHashIndex against HashMap ---");
+        IntHashIndex<Integer> index = new IntHashIndex<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        System.out.println("Applying 100000 random puts and removes...");
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), index.remove(key), "Removed value should match");
+            } else {
+                assertEquals(expected.put(key, i), index.put(key, i), "Previous value should match");
+            }
+        }
+
+        assertEquals(expected.size(), index.size(), "Sizes should match");
+        for (int key = -1_000; key < 1_000; key++) {
+            assertEquals(expected.get(key), index.get(key), "Value for key " + key + " should match");
+        }
+        System.out.println("SUCCESS: Index agrees with HashMap.");
+    }
+
+    @Test
+    void testValuesKeepInsertionOrder() {
+        System.out.println("\n--- Test: IntHashIndex insertion order ---");
+        IntHashIndex<Integer> index = new IntHashIndex<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 100; i > 0; i--) {
+            index.put(i * 31, i);
+            expected.add(i);
+        }
+        for (int i = 1; i <= 100; i += 2) {
+            index.remove(i * 31);
+            expected.remove(Integer.valueOf(i));
+        }
+        assertEquals(expected, index.values(), "Values should come back in insertion order");
+        System.out.println("SUCCESS: Insertion order preserved across removals.");
+    }
+
+    @Test
+    void testNameMatchingIgnoresCaseAndWhitespace() {
+        System.out.println("\n--- Test: NameIndex normalisation ---");
+        NameIndex<String> names = new NameIndex<>();
+        assertTrue(names.add("Massage Therapy", "massage"));
+        assertFalse(names.add("  massage   THERAPY ", "duplicate"), "Normalised duplicate should be rejected");
+
+        assertEquals("massage", names.get("massage therapy"));
+        assertEquals("massage", names.get("Massage Therapy "));
+        assertEquals("massage", names.get("MASSAGE\tTHERAPY"));
+        assertNull(names.get("MassageTherapy"), "Missing space should not match");
+        assertNull(names.get("Massage"), "Prefix should not match");
+        System.out.println("SUCCESS: Names matched after normalisation.");
+    }
+}
@@ -0,0 +1,45 @@
+package com.boostphysio;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class LoadDriverTest {
+
+    @Test
+    void testMixedLoadKeepsBookingsConsistent() throws InterruptedException {
+        System.out.println("\n--- Test: Multi-threaded Load Driver ---");
+        BookingSystem system = new BookingSystem();
+        new ClinicDataGenerator(11, 8, 200, 2).generate(system);
+
+        LoadDriver driver = new LoadDriver(system,
+            LoadDriver.parseMix("Book=40,cancel=15,reschedule=15,attend=10,search_by_expertise=20"), 4, 11);
+        LoadDriver.Result result = driver.run(4_000);
+        System.out.print(result);
+
+        assertEquals(4_000, result.getOperations(), "Every operation should be counted once");
+        assertEquals(5, result.getStats().size(), "One line per operation in the mix");
+        for (LoadDriver.OperationStats stats : result.getStats()) {
+            assertTrue(stats.getCount() > 0, stats.getOperation() + " should have run");
+            assertTrue(stats.getPercentileMicros(50) <= stats.getPercentileMicros(99));
+            assertTrue(stats.getPercentileMicros(99) <= stats.getPercentileMicros(100));
+        }
+        assertTrue(result.getThroughput() > 0);
+
+        // However the threads interleaved, no slot holds two live bookings
+        Set<TimeSlot> taken = new HashSet<>();
+        for (Appointment appointment : system.getAllAppointments()) {
+            if (appointment.getStatus() == Appointment.Status.BOOKED) {
+                assertTrue(taken.add(appointment.getTimeSlot()), "Slot booked twice: " + appointment.getId());
+                assertFalse(appointment.getTimeSlot().isAvailable());
+            }
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> LoadDriver.parseMix("dance=5"));
+        assertThrows(IllegalArgumentException.class,
+            () -> new LoadDriver(system, LoadDriver.parseMix("book=0"), 1, 1));
+        System.out.println("SUCCESS: Load driver ran the mix without double bookings.");
+    }
+}
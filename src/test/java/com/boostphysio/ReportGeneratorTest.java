@@ -0,0 +1,115 @@
+package com.boostphysio;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.ForkJoinPool;
+
+public class ReportGeneratorTest {
+    private BookingSystem bookingSystem;
+    private ReportGenerator reportGenerator;
+    private Physiotherapist busyPhysio;
+    private Physiotherapist quietPhysio;
+    private Patient patient;
+    private Treatment treatment;
+
+    @BeforeEach
+    void setUp() {
+        bookingSystem = new BookingSystem();
+        reportGenerator = new ReportGenerator(bookingSystem);
+
+        quietPhysio = new Physiotherapist(1, "Quiet Physio", "1 Test St", "555-0001");
+        busyPhysio = new Physiotherapist(2, "Busy Physio", "2 Test St", "555-0002");
+        treatment = new Treatment("Assessment", "Physiotherapy", 60);
+        for (Physiotherapist physio : new Physiotherapist[] { quietPhysio, busyPhysio }) {
+            physio.addExpertiseArea("Physiotherapy");
+            physio.addTreatment(treatment);
+            bookingSystem.addPhysiotherapist(physio);
+        }
+
+        patient = new Patient(101, "Report Patient", "3 Test St", "555-0003");
+        bookingSystem.addPatient(patient);
+    }
+
+    private Appointment book(Physiotherapist physio, int hour) {
+        LocalDateTime start = LocalDateTime.of(2031, 4, 7, hour, 0);
+        TimeSlot slot = new TimeSlot(start, start.plusHours(1));
+        physio.addTimeSlot(slot);
+        return bookingSystem.bookAppointment(patient, physio, treatment, slot);
+    }
+
+    @Test
+    void testRankingAndCountsFollowStatusChanges() {
+        System.out.println("\n--- Test: Report Ranking and Counts ---");
+        System.out.println("Booking appointments and changing their status...");
+        Appointment attended1 = book(busyPhysio, 9);
+        Appointment attended2 = book(busyPhysio, 10);
+        Appointment cancelled = book(busyPhysio, 11);
+        book(busyPhysio, 12);
+        bookingSystem.markAppointmentAsAttended(attended1.getId());
+        attended2.markAsAttended();
+        bookingSystem.cancelAppointment(cancelled.getId());
+
+        AppointmentCounts counts = bookingSystem.getAppointmentCountsForPhysiotherapist(busyPhysio.getId());
+        assertEquals(1, counts.getBooked(), "One appointment still booked");
+        assertEquals(1, counts.getCancelled(), "One appointment cancelled");
+        assertEquals(2, counts.getAttended(), "Two appointments attended");
+
+        String report = reportGenerator.generateEndOfTermReport();
+        assertTrue(report.contains("1. Busy Physio - 2 attended appointments"), "Busy physio should rank first");
+        assertTrue(report.contains("2. Quiet Physio - 0 attended appointments"), "Quiet physio should rank second");
+        assertTrue(report.contains("Total Appointments: 4 (Booked: 1, Cancelled: 1, Attended: 2)"),
+                "Counts should reflect every status change");
+        assertTrue(report.contains("No appointments recorded."), "Quiet physio has no appointments");
+        System.out.println("SUCCESS: Report ranking and counts validated.");
+    }
+
+    @Test
+    void testStreamedReportMatchesStringReport() throws IOException {
+        System.out.println("\n--- Test: Streamed Report Output ---");
+        book(busyPhysio, 9).markAsAttended();
+        book(quietPhysio, 10);
+
+        String expected = reportGenerator.generateEndOfTermReport();
+
+        System.out.println("Writing report to an OutputStream and a channel...");
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        reportGenerator.writeEndOfTermReport(stream);
+        assertEquals(expected, stream.toString(StandardCharsets.UTF_8), "Stream output should match");
+
+        ByteArrayOutputStream channelTarget = new ByteArrayOutputStream();
+        reportGenerator.writeEndOfTermReport(Channels.newChannel(channelTarget));
+        assertEquals(expected, channelTarget.toString(StandardCharsets.UTF_8), "Channel output should match");
+        assertTrue(expected.contains("| Treatment: Assessment | Patient: Report Patient | Status: ATTENDED"),
+                "Appointment lines should be written in full");
+        System.out.println("SUCCESS: Streamed reports validated.");
+    }
+
+    @Test
+    void testParallelReportMatchesSequentialReport() {
+        System.out.println("\n--- Test: Parallel Report Output ---");
+        BookingSystem clinic = new BookingSystem();
+        new ClinicDataGenerator(5, 70, 400, 3).generate(clinic);
+        String expected = new ReportGenerator(clinic).generateEndOfTermReport();
+
+        System.out.println("Rendering 70 sections on a two-thread pool, several windows at a time...");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ReportGenerator parallel = new ReportGenerator(clinic, pool);
+            assertEquals(expected, parallel.generateEndOfTermReport(), "Parallel report must keep section order");
+            assertEquals(expected, parallel.generateEndOfTermReport(), "A second run should match too");
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(reportGenerator.generateEndOfTermReport(),
+                new ReportGenerator(bookingSystem, ForkJoinPool.commonPool()).generateEndOfTermReport(),
+                "Small reports should match as well");
+        System.out.println("SUCCESS: Parallel report validated.");
+    }
+}
@@ -0,0 +1,169 @@
+package com.boostphysio;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class WaitlistTest {
+    private BookingSystem bookingSystem;
+    private Physiotherapist physio;
+    private Treatment treatment;
+    private TimeSlot slot;
+    private Patient booked;
+
+    @BeforeEach
+    void setUp() {
+        bookingSystem = new BookingSystem();
+        physio = new Physiotherapist(1, "Wait Physio", "1 Queue St", "555-0001");
+        physio.addExpertiseArea("Physiotherapy");
+        treatment = new Treatment("Waitlist Treatment", "Physiotherapy", 60);
+        physio.addTreatment(treatment);
+        LocalDateTime start = LocalDateTime.now().plusDays(2).withNano(0);
+        slot = new TimeSlot(start, start.plusHours(1));
+        physio.addTimeSlot(slot);
+        bookingSystem.addPhysiotherapist(physio);
+        booked = new Patient(100, "Booked Patient", "1 Full St", null);
+        bookingSystem.addPatient(booked);
+    }
+
+    private Patient patient(int id) {
+        Patient patient = new Patient(id, "Waiting Patient " + id, "2 Wait St", null);
+        bookingSystem.addPatient(patient);
+        return patient;
+    }
+
+    @Test
+    void testCancellationAutoBooksBestWaitingPatient() {
+        System.out.println("\n--- Test: Cancellation Backfilled From Waitlist ---");
+        Appointment appointment = bookingSystem.bookAppointment(booked, physio, treatment, slot);
+
+        System.out.println("Queueing three patients with different priorities...");
+        WaitlistEntry early = bookingSystem.joinWaitlist(patient(101), "Physiotherapy", 1, true);
+        WaitlistEntry urgent = bookingSystem.joinWaitlist(patient(102), physio, treatment, 5, true);
+        WaitlistEntry alsoUrgent = bookingSystem.joinWaitlist(patient(103), "physiotherapy", 5, true);
+
+        System.out.println("Cancelling the booked appointment...");
+        bookingSystem.cancelAppointment(appointment.getId());
+        assertEquals(WaitlistEntry.Status.BOOKED, urgent.getStatus(), "First of the highest priority should win");
+        Appointment backfilled = urgent.getAppointment();
+        assertEquals(slot, backfilled.getTimeSlot());
+        assertEquals(Appointment.Status.BOOKED, backfilled.getStatus());
+        assertFalse(slot.isAvailable(), "Slot should be taken again");
+        assertEquals(WaitlistEntry.Status.WAITING, alsoUrgent.getStatus());
+
+        System.out.println("Cancelling directly on the appointment...");
+        backfilled.setStatus(Appointment.Status.CANCELLED);
+        assertEquals(WaitlistEntry.Status.BOOKED, alsoUrgent.getStatus(), "Next in line should get the slot");
+        assertEquals(treatment, alsoUrgent.getAppointment().getTreatment(), "Area entries take the freed treatment");
+
+        bookingSystem.leaveWaitlist(early.getId());
+        bookingSystem.cancelAppointment(alsoUrgent.getAppointment().getId());
+        assertEquals(WaitlistEntry.Status.LEFT, early.getStatus());
+        assertTrue(slot.isAvailable(), "No one is left to take the slot");
+        System.out.println("SUCCESS: Freed slots went to the waitlist in order.");
+    }
+
+    @Test
+    void testOffersCanBeDeclinedAndAccepted() {
+        System.out.println("\n--- Test: Waitlist Offers ---");
+        Appointment appointment = bookingSystem.bookAppointment(booked, physio, treatment, slot);
+        WaitlistEntry first = bookingSystem.joinWaitlist(patient(101), "Physiotherapy", 0, false);
+        WaitlistEntry second = bookingSystem.joinWaitlist(patient(102), "Physiotherapy", 0, false);
+
+        LocalDateTime later = slot.getStartTime().plusDays(1);
+        TimeSlot newSlot = new TimeSlot(later, later.plusHours(1));
+        physio.addTimeSlot(newSlot);
+        System.out.println("Rescheduling frees the old slot...");
+        bookingSystem.rescheduleAppointment(appointment.getId(), newSlot);
+
+        assertEquals(List.of(first), bookingSystem.getWaitlistOffers(), "Only the first in line gets an offer");
+        assertEquals(slot, first.getOffer().getTimeSlot());
+        assertTrue(slot.isAvailable(), "An offer does not hold the slot");
+
+        bookingSystem.declineWaitlistOffer(first.getId());
+        assertEquals(WaitlistEntry.Status.WAITING, first.getStatus(), "Declining keeps the entry waiting");
+        assertEquals(WaitlistEntry.Status.OFFERED, second.getStatus(), "The slot should pass to the next in line");
+
+        Appointment accepted = bookingSystem.acceptWaitlistOffer(second.getId());
+        assertEquals(second.getPatient(), accepted.getPatient());
+        assertEquals(WaitlistEntry.Status.BOOKED, second.getStatus());
+        assertThrows(IllegalStateException.class, () -> bookingSystem.acceptWaitlistOffer(first.getId()),
+            "A waiting entry has nothing to accept");
+        assertThrows(IllegalArgumentException.class,
+            () -> bookingSystem.joinWaitlist(patient(104), "Unknown Area", 0, true));
+        System.out.println("SUCCESS: Offers declined, passed on and accepted.");
+    }
+
+    @Test
+    void testUnansweredOfferPassesOn() throws InterruptedException {
+        System.out.println("\n--- Test: Waitlist Offer Deadline ---");
+        Appointment appointment = bookingSystem.bookAppointment(booked, physio, treatment, slot);
+        WaitlistEntry first = bookingSystem.joinWaitlist(patient(101), "Physiotherapy", 0, false);
+        WaitlistEntry second = bookingSystem.joinWaitlist(patient(102), "Physiotherapy", 0, false);
+        bookingSystem.setWaitlistOfferTimeout(Duration.ofMillis(1));
+
+        bookingSystem.cancelAppointment(appointment.getId());
+        assertEquals(WaitlistEntry.Status.OFFERED, first.getStatus());
+        assertNotNull(first.getOfferExpires());
+        Thread.sleep(20);
+        // Offers made from here on stay open, so the next one cannot lapse mid-test
+        bookingSystem.setWaitlistOfferTimeout(Duration.ofHours(1));
+
+        System.out.println("Letting the first offer lapse...");
+        assertEquals(List.of(second), bookingSystem.getWaitlistOffers(), "A lapsed offer should pass to the next");
+        assertEquals(WaitlistEntry.Status.WAITING, first.getStatus(), "The lapsed entry keeps waiting");
+        assertThrows(IllegalStateException.class, () -> bookingSystem.acceptWaitlistOffer(first.getId()));
+
+        bookingSystem.leaveWaitlist(second.getId());
+        assertEquals(List.of(first), bookingSystem.getWaitlistOffers(), "Leaving passes the offer on");
+        assertEquals(slot, bookingSystem.acceptWaitlistOffer(first.getId()).getTimeSlot());
+        System.out.println("SUCCESS: Unanswered offers passed on.");
+    }
+
+    @Test
+    void testBackfillIsLoggedAfterTheCancellation(@TempDir Path dataDir) throws IOException {
+        System.out.println("\n--- Test: Durable Waitlist Backfill ---");
+        int backfilledId;
+        try (BookingSystem durable = BookingSystem.open(dataDir, null)) {
+            Physiotherapist physio = new Physiotherapist(1, "Wait Physio", "1 Queue St", null);
+            physio.addExpertiseArea("Physiotherapy");
+            physio.addTreatment(treatment);
+            durable.addPhysiotherapist(physio);
+            physio.addTimeSlot(new TimeSlot(slot.getStartTime(), slot.getEndTime()));
+            TimeSlot durableSlot = physio.getTimeSlotAt(slot.getStartTime());
+            Patient first = new Patient(100, "Booked Patient", "1 Full St", null);
+            Patient waiting = new Patient(101, "Waiting Patient", "2 Wait St", null);
+            durable.addPatient(first);
+            durable.addPatient(waiting);
+            Appointment appointment = durable.bookAppointment(first, physio, treatment, durableSlot);
+            WaitlistEntry entry = durable.joinWaitlist(waiting, "Physiotherapy", 0, true);
+
+            durable.cancelAppointment(appointment.getId());
+            assertEquals(WaitlistEntry.Status.BOOKED, entry.getStatus());
+            backfilledId = entry.getAppointment().getId();
+            assertEquals(0, durable.getMetrics().getLatency(BookingMetrics.Operation.WAITLIST).getFailures());
+            // Simulate a crash, so the log is replayed
+            Files.copy(dataDir.resolve(BookingSystem.LOG_FILE), dataDir.resolve("crashed.wal"));
+        }
+        Files.delete(dataDir.resolve(BookingSystem.SNAPSHOT_FILE));
+        Files.move(dataDir.resolve("crashed.wal"), dataDir.resolve(BookingSystem.LOG_FILE),
+            StandardCopyOption.REPLACE_EXISTING);
+
+        try (BookingSystem reopened = BookingSystem.open(dataDir, null)) {
+            assertEquals(Appointment.Status.CANCELLED, reopened.getAppointmentById(1).getStatus());
+            Appointment backfilled = reopened.getAppointmentById(backfilledId);
+            assertEquals(Appointment.Status.BOOKED, backfilled.getStatus());
+            assertEquals(101, backfilled.getPatient().getId());
+        }
+        System.out.println("SUCCESS: Backfill replayed after the cancellation.");
+    }
+}